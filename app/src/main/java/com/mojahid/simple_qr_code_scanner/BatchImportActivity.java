@@ -0,0 +1,99 @@
+package com.mojahid.simple_qr_code_scanner;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryImporter;
+
+import java.util.List;
+import java.util.Locale;
+
+public class BatchImportActivity extends AppCompatActivity {
+
+    private static final String[] IMPORT_MIME_TYPES = {"image/*", "application/pdf"};
+
+    private BatchImportViewModel viewModel;
+    private Button chooseFilesButton;
+    private Button chooseFolderButton;
+    private View importPanel;
+    private ProgressBar importProgress;
+    private TextView importStatus;
+
+    private final ActivityResultLauncher<String[]> filesLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenMultipleDocuments(), this::importFiles);
+    private final ActivityResultLauncher<Uri> folderLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocumentTree(), this::importFolder);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_batch_import);
+
+        chooseFilesButton = findViewById(R.id.btnChooseFiles);
+        chooseFolderButton = findViewById(R.id.btnChooseFolder);
+        importPanel = findViewById(R.id.importPanel);
+        importProgress = findViewById(R.id.importProgress);
+        importStatus = findViewById(R.id.importStatus);
+
+        chooseFilesButton.setOnClickListener(v -> filesLauncher.launch(IMPORT_MIME_TYPES));
+        chooseFolderButton.setOnClickListener(v -> folderLauncher.launch(null));
+
+        // The import lives in the view model, so a rotation only reattaches to it.
+        viewModel = new ViewModelProvider(this).get(BatchImportViewModel.class);
+        findViewById(R.id.btnCancelImport).setOnClickListener(v -> viewModel.cancel());
+        viewModel.isRunning().observe(this, this::showRunning);
+        viewModel.getProgress().observe(this, progress -> {
+            if (progress != null) {
+                showProgress(progress);
+            }
+        });
+        viewModel.getResult().observe(this, message -> {
+            if (message != null) {
+                Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+                viewModel.resultShown();
+            }
+        });
+    }
+
+    private void importFiles(List<Uri> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return;
+        }
+        viewModel.importFiles(uris);
+    }
+
+    private void importFolder(Uri treeUri) {
+        if (treeUri == null) {
+            return;
+        }
+        viewModel.importFolder(treeUri);
+    }
+
+    private void showRunning(boolean running) {
+        chooseFilesButton.setEnabled(!running);
+        chooseFolderButton.setEnabled(!running);
+        importPanel.setVisibility(running ? View.VISIBLE : View.GONE);
+        if (running) {
+            importProgress.setProgress(0);
+            importStatus.setText("Preparing...");
+        }
+    }
+
+    private void showProgress(ScanHistoryImporter.Progress progress) {
+        importProgress.setMax(Math.max(progress.totalFiles, 1));
+        importProgress.setProgress(progress.processedFiles);
+        importStatus.setText(String.format(Locale.US, "%d / %d files, %d codes, %d failed, %.1f images/s",
+                progress.processedFiles, progress.totalFiles, progress.codes, progress.failedFiles,
+                progress.imagesPerSecond));
+    }
+}
@@ -0,0 +1,109 @@
+package com.mojahid.simple_qr_code_scanner;
+
+import android.app.Application;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanDatabase;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryImporter;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Owns the running import for {@link BatchImportActivity}, so it carries on across rotations and is only
+ * cancelled when the user cancels it or leaves the screen for good.
+ */
+public class BatchImportViewModel extends AndroidViewModel {
+
+    private final ScanHistoryImporter importer;
+    private final MutableLiveData<Boolean> running = new MutableLiveData<>(false);
+    private final MutableLiveData<ScanHistoryImporter.Progress> progress = new MutableLiveData<>();
+    // Set when an import ends, until the activity has shown it.
+    private final MutableLiveData<String> result = new MutableLiveData<>();
+    private Future<?> importTask;
+
+    public BatchImportViewModel(@NonNull Application application) {
+        super(application);
+        importer = new ScanHistoryImporter(application.getContentResolver(), ScanDatabase.getInstance(application));
+    }
+
+    public LiveData<Boolean> isRunning() {
+        return running;
+    }
+
+    public LiveData<ScanHistoryImporter.Progress> getProgress() {
+        return progress;
+    }
+
+    public LiveData<String> getResult() {
+        return result;
+    }
+
+    public void resultShown() {
+        result.setValue(null);
+    }
+
+    public void importFiles(List<Uri> uris) {
+        start();
+        importTask = importer.importDocuments(uris, listener);
+    }
+
+    public void importFolder(Uri treeUri) {
+        start();
+        importTask = importer.importTree(treeUri, listener);
+    }
+
+    public void cancel() {
+        if (importTask != null) {
+            importTask.cancel(true);
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        cancel();
+        importer.shutdown();
+    }
+
+    private void start() {
+        progress.setValue(null);
+        running.setValue(true);
+    }
+
+    private final ScanHistoryImporter.Listener listener = new ScanHistoryImporter.Listener() {
+        @Override
+        public void onProgress(ScanHistoryImporter.Progress update) {
+            progress.postValue(update);
+        }
+
+        @Override
+        public void onComplete(ScanHistoryImporter.Progress update) {
+            finish(update, "Imported " + update.codes + " codes");
+        }
+
+        @Override
+        public void onCancelled(ScanHistoryImporter.Progress update) {
+            finish(update, "Import cancelled");
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Log.e("Import", "Import failed", e);
+            finish(null, "Import failed");
+        }
+
+        private void finish(ScanHistoryImporter.Progress update, String message) {
+            if (update != null) {
+                progress.postValue(update);
+            }
+            result.postValue(message);
+            running.postValue(false);
+        }
+    };
+}
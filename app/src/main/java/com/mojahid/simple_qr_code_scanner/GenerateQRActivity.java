@@ -0,0 +1,152 @@
+package com.mojahid.simple_qr_code_scanner;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+import android.widget.Spinner;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class GenerateQRActivity extends AppCompatActivity {
+
+    private static final int PREVIEW_SIZE = 768;
+    private static final int LABEL_SIZE = 1024;
+    private static final ErrorCorrectionLevel[] LEVELS = {
+            ErrorCorrectionLevel.L, ErrorCorrectionLevel.M, ErrorCorrectionLevel.Q, ErrorCorrectionLevel.H
+    };
+
+    private GenerateQRViewModel viewModel;
+    private final ExecutorService previewExecutor = Executors.newSingleThreadExecutor();
+    private EditText contentInput;
+    private EditText batchInput;
+    private Spinner levelSpinner;
+    private ImageView qrImage;
+    private Button renderBatchButton;
+    private View batchPanel;
+    private ProgressBar batchProgress;
+    private TextView batchStatus;
+
+    private final ActivityResultLauncher<Uri> folderLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocumentTree(), this::renderBatch);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_generate_qr);
+
+        contentInput = findViewById(R.id.qrContent);
+        batchInput = findViewById(R.id.batchContent);
+        levelSpinner = findViewById(R.id.errorCorrection);
+        qrImage = findViewById(R.id.qrImage);
+        renderBatchButton = findViewById(R.id.btnRenderBatch);
+        batchPanel = findViewById(R.id.batchPanel);
+        batchProgress = findViewById(R.id.batchProgress);
+        batchStatus = findViewById(R.id.batchStatus);
+
+        levelSpinner.setAdapter(new ArrayAdapter<>(this, android.R.layout.simple_spinner_dropdown_item, LEVELS));
+        levelSpinner.setSelection(1);
+        findViewById(R.id.btnGenerate).setOnClickListener(v -> generate());
+        renderBatchButton.setOnClickListener(v -> chooseBatchFolder());
+
+        viewModel = new ViewModelProvider(this).get(GenerateQRViewModel.class);
+        findViewById(R.id.btnCancelBatch).setOnClickListener(v -> viewModel.cancel());
+        viewModel.isRunning().observe(this, this::showRunning);
+        viewModel.getProgress().observe(this, progress -> {
+            if (progress != null) {
+                showProgress(progress.done, progress.total);
+            }
+        });
+        viewModel.getResult().observe(this, message -> {
+            if (message != null) {
+                Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+                viewModel.resultShown();
+            }
+        });
+    }
+
+    private ErrorCorrectionLevel selectedLevel() {
+        return LEVELS[levelSpinner.getSelectedItemPosition()];
+    }
+
+    private void generate() {
+        String content = contentInput.getText().toString();
+        if (content.isEmpty()) {
+            Toast.makeText(this, "Enter some text first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        ErrorCorrectionLevel level = selectedLevel();
+        previewExecutor.execute(() -> {
+            try {
+                Bitmap bitmap = viewModel.getGenerator().generate(content, PREVIEW_SIZE, level);
+                runOnUiThread(() -> qrImage.setImageBitmap(bitmap));
+            } catch (WriterException | IllegalArgumentException e) {
+                runOnUiThread(() -> Toast.makeText(this, "Text is too long for a QR code", Toast.LENGTH_SHORT).show());
+            }
+        });
+    }
+
+    private void chooseBatchFolder() {
+        if (batchContents().isEmpty()) {
+            Toast.makeText(this, "Enter one code per line first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        folderLauncher.launch(null);
+    }
+
+    // Read again once the folder is picked: the field keeps its text if the activity was recreated meanwhile.
+    private List<String> batchContents() {
+        List<String> contents = new ArrayList<>();
+        for (String line : batchInput.getText().toString().split("\n")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty()) {
+                contents.add(trimmed);
+            }
+        }
+        return contents;
+    }
+
+    private void renderBatch(Uri treeUri) {
+        List<String> contents = batchContents();
+        if (treeUri == null || contents.isEmpty()) {
+            return;
+        }
+        viewModel.renderBatch(treeUri, contents, LABEL_SIZE, selectedLevel());
+    }
+
+    private void showRunning(boolean running) {
+        renderBatchButton.setEnabled(!running);
+        batchPanel.setVisibility(running ? View.VISIBLE : View.GONE);
+    }
+
+    private void showProgress(int done, int total) {
+        batchProgress.setMax(Math.max(total, 1));
+        batchProgress.setProgress(done);
+        batchStatus.setText(String.format(Locale.US, "%d / %d codes", done, total));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        previewExecutor.shutdownNow();
+    }
+}
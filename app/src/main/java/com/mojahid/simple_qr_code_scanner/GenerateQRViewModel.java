@@ -0,0 +1,139 @@
+package com.mojahid.simple_qr_code_scanner;
+
+import android.app.Application;
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.mojahid.simple_qr_code_scanner.generator.QrCodeGenerator;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Future;
+
+/**
+ * Owns the running label batch for {@link GenerateQRActivity}, so it carries on across rotations and is only
+ * cancelled when the user cancels it or leaves the screen for good. Rendering goes through the process-wide
+ * {@link QrCodeGenerator} of {@link ScannerApplication}.
+ */
+public class GenerateQRViewModel extends AndroidViewModel {
+
+    /**
+     * Codes saved so far out of the batch.
+     */
+    public static final class Progress {
+        public final int done;
+        public final int total;
+
+        Progress(int done, int total) {
+            this.done = done;
+            this.total = total;
+        }
+    }
+
+    private final QrCodeGenerator generator;
+    private final MutableLiveData<Boolean> running = new MutableLiveData<>(false);
+    private final MutableLiveData<Progress> progress = new MutableLiveData<>();
+    // Set when a batch ends, until the activity has shown it.
+    private final MutableLiveData<String> result = new MutableLiveData<>();
+    private Future<?> batchTask;
+
+    public GenerateQRViewModel(@NonNull Application application) {
+        super(application);
+        generator = ((ScannerApplication) application).getQrCodeGenerator();
+    }
+
+    public QrCodeGenerator getGenerator() {
+        return generator;
+    }
+
+    public LiveData<Boolean> isRunning() {
+        return running;
+    }
+
+    public LiveData<Progress> getProgress() {
+        return progress;
+    }
+
+    public LiveData<String> getResult() {
+        return result;
+    }
+
+    public void resultShown() {
+        result.setValue(null);
+    }
+
+    /**
+     * Saves one PNG label per content into the folder picked through {@code treeUri}.
+     */
+    public void renderBatch(Uri treeUri, List<String> contents, int size, ErrorCorrectionLevel level) {
+        ContentResolver resolver = getApplication().getContentResolver();
+        Uri folder = DocumentsContract.buildDocumentUriUsingTree(treeUri, DocumentsContract.getTreeDocumentId(treeUri));
+        String nameFormat = "qr-%0" + String.valueOf(contents.size()).length() + "d";
+        progress.setValue(new Progress(0, contents.size()));
+        running.setValue(true);
+        batchTask = generator.generateBatch(contents, size, level, (index, content, bitmap) -> {
+            Uri document = DocumentsContract.createDocument(resolver, folder, "image/png",
+                    String.format(Locale.US, nameFormat, index + 1));
+            if (document == null) {
+                throw new FileNotFoundException("Could not create file in " + folder);
+            }
+            try (OutputStream out = resolver.openOutputStream(document)) {
+                if (out == null || !bitmap.compress(Bitmap.CompressFormat.PNG, 100, out)) {
+                    throw new IOException("Could not write " + document);
+                }
+            }
+        }, listener);
+    }
+
+    public void cancel() {
+        if (batchTask != null) {
+            batchTask.cancel(true);
+        }
+    }
+
+    // The generator and its cache outlive this screen; only the batch stops with it.
+    @Override
+    protected void onCleared() {
+        cancel();
+    }
+
+    private final QrCodeGenerator.BatchListener listener = new QrCodeGenerator.BatchListener() {
+        @Override
+        public void onProgress(int done, int total) {
+            progress.postValue(new Progress(done, total));
+        }
+
+        @Override
+        public void onComplete(int written, int failed) {
+            finish("Saved " + written + " codes" + (failed > 0 ? ", " + failed + " failed" : ""));
+        }
+
+        @Override
+        public void onCancelled(int written) {
+            finish("Stopped after " + written + " codes");
+        }
+
+        @Override
+        public void onError(Exception e) {
+            Log.e("Generate", "Batch failed", e);
+            finish("Batch failed");
+        }
+
+        private void finish(String message) {
+            result.postValue(message);
+            running.postValue(false);
+        }
+    };
+}
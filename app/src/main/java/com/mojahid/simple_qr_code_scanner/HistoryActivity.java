@@ -1,38 +1,90 @@
 package com.mojahid.simple_qr_code_scanner;
 
+import android.content.Intent;
+import android.net.Uri;
 import android.os.Bundle;
-import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.util.Log;
+import android.view.View;
+import android.widget.ProgressBar;
 import android.widget.SearchView;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
+import androidx.paging.PagingLiveData;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import androidx.room.Room;
 
+import com.google.android.material.snackbar.Snackbar;
+import com.mojahid.simple_qr_code_scanner.history.RetentionSettings;
 import com.mojahid.simple_qr_code_scanner.history.ScanDatabase;
 import com.mojahid.simple_qr_code_scanner.history.ScanHistory;
 import com.mojahid.simple_qr_code_scanner.history.ScanHistoryAdapter;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryBackup;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryDeleteBuffer;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryExportWriter;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryExporter;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryFts;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryPagingSource;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistorySearchPagingSource;
+import com.mojahid.simple_qr_code_scanner.history.ScanSnapshot;
+import com.mojahid.simple_qr_code_scanner.sync.RoomOutbox;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Date;
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Future;
 
 public class HistoryActivity extends AppCompatActivity {
+    private static final int PAGE_SIZE = 50;
+    // Keep roughly six pages resident; pages scrolled far out of view are dropped and reloaded by key.
+    private static final int MAX_LOADED_ITEMS = PAGE_SIZE * 6;
+    private static final long SEARCH_DEBOUNCE_MILLIS = 300;
+
     private RecyclerView recyclerView;
     private ScanHistoryAdapter adapter;
     private ScanDatabase database;
-    private List<ScanHistory> scanHistoryList = new ArrayList<>();
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final MutableLiveData<String> searchMatch = new MutableLiveData<>(null);
+    private Runnable pendingSearch;
+    private ScanHistoryExporter exporter;
+    private ScanHistoryBackup backup;
+    private Future<?> exportTask;
+    private View exportPanel;
+    private ProgressBar exportProgress;
+    private ScanHistoryDeleteBuffer deleteBuffer;
+    private View selectionPanel;
+    private TextView selectionCount;
+
+    private final ActivityResultLauncher<String> csvExportLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(ScanHistoryExportWriter.Format.CSV.mimeType),
+            uri -> startExport(uri, ScanHistoryExportWriter.Format.CSV));
+    private final ActivityResultLauncher<String> jsonExportLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(ScanHistoryExportWriter.Format.JSON.mimeType),
+            uri -> startExport(uri, ScanHistoryExportWriter.Format.JSON));
+    private final ActivityResultLauncher<String> backupLauncher = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument(ScanSnapshot.MIME_TYPE), this::startBackup);
+    private final ActivityResultLauncher<String[]> restoreLauncher = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), this::confirmRestore);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -43,86 +95,318 @@ public class HistoryActivity extends AppCompatActivity {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
         SearchView searchView = findViewById(R.id.searchView);
-//        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
-//            @Override
-//            public boolean onQueryTextSubmit(String query) {
-//                adapter.filterList(query);
-//                return true;
-//            }
-//
-//            @Override
-//            public boolean onQueryTextChange(String newText) {
-//                adapter.filterList(newText);
-//                return true;
-//            }
-//        });
-
-        findViewById(R.id.btnExportCSV).setOnClickListener(v -> exportToCSV());
-        findViewById(R.id.btnExportJSON).setOnClickListener(v -> exportToJSON());
-
-
-        adapter = new ScanHistoryAdapter(scanHistoryList, this);
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                search(query, 0);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                search(newText, SEARCH_DEBOUNCE_MILLIS);
+                return true;
+            }
+        });
+
+        findViewById(R.id.btnExportCSV).setOnClickListener(v -> csvExportLauncher.launch(ScanHistoryExportWriter.Format.CSV.fileName));
+        findViewById(R.id.btnExportJSON).setOnClickListener(v -> jsonExportLauncher.launch(ScanHistoryExportWriter.Format.JSON.fileName));
+        findViewById(R.id.btnBackup).setOnClickListener(v -> backupLauncher.launch(ScanSnapshot.FILE_NAME));
+        findViewById(R.id.btnRestore).setOnClickListener(v -> restoreLauncher.launch(new String[]{"*/*"}));
+        findViewById(R.id.btnRetention).setOnClickListener(v -> chooseRetention());
+        findViewById(R.id.btnStats).setOnClickListener(v -> startActivity(new Intent(this, HistoryStatsActivity.class)));
+        exportPanel = findViewById(R.id.exportPanel);
+        exportProgress = findViewById(R.id.exportProgress);
+        findViewById(R.id.btnCancelExport).setOnClickListener(v -> cancelExport());
+
+
+        selectionPanel = findViewById(R.id.selectionPanel);
+        selectionCount = findViewById(R.id.selectionCount);
+        findViewById(R.id.btnDeleteSelected).setOnClickListener(v -> requestDelete(adapter.getSelectedIds()));
+        findViewById(R.id.btnCancelSelection).setOnClickListener(v -> adapter.clearSelection());
+
+        adapter = new ScanHistoryAdapter(this, new ScanHistoryAdapter.Callbacks() {
+            @Override
+            public void onDeleteRequested(List<Integer> ids) {
+                requestDelete(ids);
+            }
+
+            @Override
+            public void onSelectionChanged(int selectedCount) {
+                selectionPanel.setVisibility(selectedCount > 0 ? View.VISIBLE : View.GONE);
+                selectionCount.setText(selectedCount + " selected");
+            }
+        });
         recyclerView.setAdapter(adapter);
 
-        database = Room.databaseBuilder(getApplicationContext(), ScanDatabase.class, "scan_db").build();
+        database = ScanDatabase.getInstance(this);
+        deleteBuffer = new ScanHistoryDeleteBuffer(database, () -> runOnUiThread(adapter::refresh));
+        exporter = new ScanHistoryExporter(database);
+        backup = new ScanHistoryBackup(database);
         loadHistory();
     }
 
-    private void exportToCSV() {
-        // Get the Downloads folder path (works on Android 10 and below)
-        File folder = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "Magic QR");
-        if (!folder.exists()) {
-            folder.mkdirs(); // Create the folder if it doesn't exist
+    private void startExport(Uri uri, ScanHistoryExportWriter.Format format) {
+        if (uri == null) {
+            return;
+        }
+        OutputStream output;
+        try {
+            output = getContentResolver().openOutputStream(uri);
+        } catch (FileNotFoundException e) {
+            output = null;
+        }
+        if (output == null) {
+            Toast.makeText(this, "Cannot write to the selected file", Toast.LENGTH_SHORT).show();
+            return;
         }
 
-        // Save the CSV file inside the "Magic QR" folder in Downloads
-        File file = new File(folder, "scan_history.csv");
-        try (FileWriter writer = new FileWriter(file)) {
-            writer.append("Data,Timestamp\n");
-            for (ScanHistory scan : scanHistoryList) {
-                writer.append(scan.data).append(",").append(new Date(scan.timestamp).toString()).append("\n");
+        exportProgress.setProgress(0);
+        exportPanel.setVisibility(View.VISIBLE);
+        exportTask = exporter.export(format, output, new ScanHistoryExporter.Listener() {
+            @Override
+            public void onProgress(int written, int total) {
+                runOnUiThread(() -> {
+                    exportProgress.setMax(Math.max(total, 1));
+                    exportProgress.setProgress(written);
+                });
             }
-            Toast.makeText(this, "CSV Exported: " + file.getAbsolutePath(), Toast.LENGTH_SHORT).show();
-        } catch (IOException e) {
-            e.printStackTrace();
+
+            @Override
+            public void onComplete(int written) {
+                runOnUiThread(() -> {
+                    exportPanel.setVisibility(View.GONE);
+                    Toast.makeText(HistoryActivity.this, format.name() + " Exported: " + written + " scans", Toast.LENGTH_SHORT).show();
+                });
+            }
+
+            @Override
+            public void onCancelled() {
+                deleteDocument(uri);
+                runOnUiThread(() -> {
+                    exportPanel.setVisibility(View.GONE);
+                    Toast.makeText(HistoryActivity.this, "Export cancelled", Toast.LENGTH_SHORT).show();
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e("Export", "Export failed", e);
+                deleteDocument(uri);
+                runOnUiThread(() -> {
+                    exportPanel.setVisibility(View.GONE);
+                    Toast.makeText(HistoryActivity.this, "Export failed", Toast.LENGTH_SHORT).show();
+                });
+            }
+        });
+    }
+
+    private void startBackup(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        OutputStream output;
+        try {
+            output = getContentResolver().openOutputStream(uri);
+        } catch (FileNotFoundException e) {
+            output = null;
+        }
+        if (output == null) {
+            Toast.makeText(this, "Cannot write to the selected file", Toast.LENGTH_SHORT).show();
+            return;
         }
+        showProgress();
+        exportTask = backup.backup(output, new ProgressListener("Backup", "Backed up", uri));
+    }
+
+    private void confirmRestore(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Restore backup")
+                .setMessage("Replace the current scan history with this backup?")
+                .setPositiveButton("Restore", (dialog, which) -> startRestore(uri))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // Applied by the next daily retention run.
+    private void chooseRetention() {
+        new AlertDialog.Builder(this)
+                .setTitle("Keep history")
+                .setSingleChoiceItems(RetentionSettings.CHOICE_LABELS, RetentionSettings.getChoice(this),
+                        (dialog, which) -> {
+                            RetentionSettings.setChoice(this, which);
+                            dialog.dismiss();
+                        })
+                .setNegativeButton("Cancel", null)
+                .show();
     }
 
+    private void startRestore(Uri uri) {
+        ParcelFileDescriptor descriptor;
+        try {
+            descriptor = getContentResolver().openFileDescriptor(uri, "r");
+        } catch (FileNotFoundException e) {
+            descriptor = null;
+        }
+        if (descriptor == null) {
+            Toast.makeText(this, "Cannot read the selected file", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        deleteBuffer.commitNow();
+        showProgress();
+        exportTask = backup.restore(new ParcelFileDescriptor.AutoCloseInputStream(descriptor),
+                new ProgressListener("Restore", "Restored", null));
+    }
+
+    private void showProgress() {
+        exportProgress.setProgress(0);
+        exportPanel.setVisibility(View.VISIBLE);
+    }
+
+    // Reports a backup or restore in the export panel; a backup that does not finish removes its partial file.
+    private class ProgressListener implements ScanHistoryExporter.Listener {
+        private final String operation;
+        private final String doneVerb;
+        private final Uri partialFile;
+
+        ProgressListener(String operation, String doneVerb, Uri partialFile) {
+            this.operation = operation;
+            this.doneVerb = doneVerb;
+            this.partialFile = partialFile;
+        }
+
+        @Override
+        public void onProgress(int done, int total) {
+            runOnUiThread(() -> {
+                exportProgress.setMax(Math.max(total, 1));
+                exportProgress.setProgress(done);
+            });
+        }
+
+        @Override
+        public void onComplete(int scans) {
+            finish(doneVerb + " " + scans + " scans");
+        }
 
+        @Override
+        public void onCancelled() {
+            removePartialFile();
+            finish(operation + " cancelled");
+        }
 
-    private void exportToJSON() {
-        // Get the Downloads folder path (works on Android 10 and below)
-        File folder = new File(Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS), "Magic QR");
-        if (!folder.exists()) {
-            folder.mkdirs(); // Create the folder if it doesn't exist
+        @Override
+        public void onError(Exception e) {
+            Log.e("Backup", operation + " failed", e);
+            removePartialFile();
+            finish(operation + " failed");
         }
 
-        // Save the JSON file inside the "Magic QR" folder in Downloads
-        File file = new File(folder, "scan_history.json");
-        try (FileWriter writer = new FileWriter(file)) {
-            JSONArray jsonArray = new JSONArray();
-            for (ScanHistory scan : scanHistoryList) {
-                JSONObject json = new JSONObject();
-                json.put("data", scan.data);
-                json.put("timestamp", scan.timestamp);
-                jsonArray.put(json);
+        private void removePartialFile() {
+            if (partialFile != null) {
+                deleteDocument(partialFile);
             }
-            writer.write(jsonArray.toString());
-            Toast.makeText(this, "JSON Exported: " + file.getAbsolutePath(), Toast.LENGTH_SHORT).show();
-        } catch (Exception e) {
-            e.printStackTrace();
+        }
+
+        private void finish(String message) {
+            runOnUiThread(() -> {
+                exportPanel.setVisibility(View.GONE);
+                adapter.refresh();
+                Toast.makeText(HistoryActivity.this, message, Toast.LENGTH_SHORT).show();
+            });
         }
     }
 
+    private void cancelExport() {
+        if (exportTask != null) {
+            exportTask.cancel(true);
+        }
+    }
+
+    private void deleteDocument(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(getContentResolver(), uri);
+        } catch (Exception e) {
+            Log.w("Export", "Could not remove partial export " + uri, e);
+        }
+    }
 
     private void loadHistory() {
-        new Thread(() -> {
-            List<ScanHistory> history = database.scanHistoryDao().getAllScans();
-            runOnUiThread(() -> {
-                scanHistoryList.clear();
-                scanHistoryList.addAll(history);
-                adapter.notifyDataSetChanged();
-            });
-        }).start();
+        Pager<ScanHistoryPagingSource.PageKey, ScanHistory> pager =
+                new Pager<>(pagingConfig(), () -> new ScanHistoryPagingSource(database));
+        LiveData<PagingData<ScanHistory>> allHistory =
+                PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), getLifecycle());
+
+        LiveData<PagingData<ScanHistory>> history = Transformations.switchMap(searchMatch,
+                match -> match == null ? allHistory : searchResults(match));
+        // Rows waiting in the undo buffer are filtered out here, so a delete shows up before it is committed.
+        history.observe(this, pagingData -> adapter.submitData(getLifecycle(),
+                PagingDataTransforms.filter(pagingData, database.getQueryExecutor(),
+                        scan -> !deleteBuffer.isPending(scan.id))));
+
+        TextView title = findViewById(R.id.historyTitle);
+        database.scanHistoryDao().observeCount().observe(this, count -> title.setText("Scan History (" + count + ")"));
+        TextView syncDropped = findViewById(R.id.syncDropped);
+        database.syncDao().observeDropped(RoomOutbox.COLLECTOR).observe(this, dropped -> {
+            boolean any = dropped != null && dropped > 0;
+            syncDropped.setVisibility(any ? View.VISIBLE : View.GONE);
+            if (any) {
+                syncDropped.setText(dropped == 1 ? "1 scan could not be synced" : dropped + " scans could not be synced");
+            }
+        });
+    }
+
+    private void requestDelete(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        deleteBuffer.delete(ids);
+        adapter.clearSelection();
+        String message = ids.size() == 1 ? "Scan deleted" : ids.size() + " scans deleted";
+        Snackbar.make(recyclerView, message, Snackbar.LENGTH_LONG)
+                .setDuration((int) ScanHistoryDeleteBuffer.UNDO_WINDOW_MILLIS)
+                .setAction("Undo", v -> deleteBuffer.undo())
+                .show();
+    }
+
+    private LiveData<PagingData<ScanHistory>> searchResults(String match) {
+        Pager<ScanHistorySearchPagingSource.SearchKey, ScanHistory> pager =
+                new Pager<>(pagingConfig(), () -> new ScanHistorySearchPagingSource(database, match));
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    private static PagingConfig pagingConfig() {
+        return new PagingConfig(PAGE_SIZE, PAGE_SIZE, false, PAGE_SIZE * 2, MAX_LOADED_ITEMS);
+    }
+
+    // Keystrokes only reschedule the query; the database is hit once typing pauses.
+    private void search(String text, long delayMillis) {
+        if (pendingSearch != null) {
+            searchHandler.removeCallbacks(pendingSearch);
+        }
+        String match = ScanHistoryFts.toMatchQuery(text);
+        pendingSearch = () -> {
+            if (!Objects.equals(match, searchMatch.getValue())) {
+                searchMatch.setValue(match);
+            }
+        };
+        searchHandler.postDelayed(pendingSearch, delayMillis);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        deleteBuffer.commitNow();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchHandler.removeCallbacksAndMessages(null);
+        cancelExport();
+        exporter.shutdown();
+        backup.shutdown();
     }
 }
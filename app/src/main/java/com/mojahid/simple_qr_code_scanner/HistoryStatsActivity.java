@@ -0,0 +1,118 @@
+package com.mojahid.simple_qr_code_scanner;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanDatabase;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryDao;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryFormatter;
+import com.mojahid.simple_qr_code_scanner.history.ScanStats;
+
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Scan counts by type, over time and per payload for the last day, week or month.
+ * Only the aggregated rows are loaded; the text is built off the main thread.
+ */
+public class HistoryStatsActivity extends AppCompatActivity {
+
+    private static final int TOP_PAYLOADS = 50;
+    private static final int MAX_PAYLOAD_CHARS = 60;
+
+    private ScanDatabase database;
+    private TextView byType;
+    private TextView overTime;
+    private TextView topPayloads;
+    private int loadGeneration;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_history_stats);
+
+        byType = findViewById(R.id.statsByType);
+        overTime = findViewById(R.id.statsOverTime);
+        topPayloads = findViewById(R.id.statsTopPayloads);
+        findViewById(R.id.btnStatsDay).setOnClickListener(v -> load(ScanStats.DAY_MILLIS, ScanStats.HOUR_MILLIS));
+        findViewById(R.id.btnStatsWeek).setOnClickListener(v -> load(7 * ScanStats.DAY_MILLIS, ScanStats.DAY_MILLIS));
+        findViewById(R.id.btnStatsMonth).setOnClickListener(v -> load(30 * ScanStats.DAY_MILLIS, ScanStats.DAY_MILLIS));
+
+        database = ScanDatabase.getInstance(this);
+        load(ScanStats.DAY_MILLIS, ScanStats.HOUR_MILLIS);
+    }
+
+    private void load(long rangeMillis, long bucketMillis) {
+        int generation = ++loadGeneration;
+        byType.setText("Loading...");
+        overTime.setText("");
+        topPayloads.setText("");
+        long to = System.currentTimeMillis();
+        long from = to - rangeMillis;
+        long offsetMillis = TimeZone.getDefault().getOffset(to);
+        database.getQueryExecutor().execute(() -> {
+            ScanHistoryDao dao = database.scanHistoryDao();
+            String types = formatTypes(dao.countByType(from, to));
+            String buckets = formatBuckets(dao.countByBucketAndType(from, to, bucketMillis, offsetMillis));
+            String payloads = formatPayloads(dao.topPayloads(from, to, TOP_PAYLOADS));
+            runOnUiThread(() -> {
+                // A newer period was picked while this one was loading.
+                if (generation != loadGeneration || isFinishing()) {
+                    return;
+                }
+                byType.setText(types);
+                overTime.setText(buckets);
+                topPayloads.setText(payloads);
+            });
+        });
+    }
+
+    private static String formatTypes(List<ScanStats.TypeCount> counts) {
+        if (counts.isEmpty()) {
+            return "No scans in this period";
+        }
+        int total = 0;
+        StringBuilder text = new StringBuilder();
+        for (ScanStats.TypeCount count : counts) {
+            total += count.count;
+            text.append(ScanHistoryFormatter.typeLabel(count.type)).append(": ").append(count.count).append('\n');
+        }
+        return text.append("Total: ").append(total).toString();
+    }
+
+    // Rows arrive ordered by bucket, so each bucket's types are adjacent.
+    private static String formatBuckets(List<ScanStats.TimeBucket> buckets) {
+        StringBuilder text = new StringBuilder();
+        int i = 0;
+        while (i < buckets.size()) {
+            long bucketStart = buckets.get(i).bucketStart;
+            int total = 0;
+            StringBuilder types = new StringBuilder();
+            for (; i < buckets.size() && buckets.get(i).bucketStart == bucketStart; i++) {
+                ScanStats.TimeBucket bucket = buckets.get(i);
+                total += bucket.count;
+                if (types.length() > 0) {
+                    types.append(", ");
+                }
+                types.append(ScanHistoryFormatter.typeLabel(bucket.type)).append(' ').append(bucket.count);
+            }
+            text.append(ScanHistoryFormatter.formatTimestamp(bucketStart))
+                    .append("  ").append(total).append(" (").append(types).append(")\n");
+        }
+        return text.toString();
+    }
+
+    private static String formatPayloads(List<ScanStats.TopPayload> payloads) {
+        StringBuilder text = new StringBuilder();
+        for (ScanStats.TopPayload payload : payloads) {
+            String data = payload.text();
+            if (data.length() > MAX_PAYLOAD_CHARS) {
+                data = data.substring(0, MAX_PAYLOAD_CHARS) + "...";
+            }
+            text.append(payload.count).append("x  ").append(data).append('\n');
+        }
+        return text.toString();
+    }
+}
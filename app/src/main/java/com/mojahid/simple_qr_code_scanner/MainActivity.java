@@ -5,15 +5,25 @@ import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.media.Image;
 import android.net.Uri;
 import android.net.wifi.WifiConfiguration;
 import android.net.wifi.WifiManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.util.Log;
+import android.util.Size;
+import android.view.View;
+import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.CompoundButton;
+import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
@@ -24,32 +34,120 @@ import androidx.camera.view.PreviewView;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LifecycleOwner;
-import androidx.room.Room;
 
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.mlkit.vision.barcode.*;
-import com.google.mlkit.vision.barcode.common.Barcode;
-import com.google.mlkit.vision.common.InputImage;
+import com.mojahid.simple_qr_code_scanner.history.RecentScans;
 import com.mojahid.simple_qr_code_scanner.history.ScanDatabase;
 import com.mojahid.simple_qr_code_scanner.history.ScanHistory;
-
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryFormatter;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryStore;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryWriter;
+import com.mojahid.simple_qr_code_scanner.scanner.AnalysisProfile;
+import com.mojahid.simple_qr_code_scanner.scanner.BarcodeDecoder;
+import com.mojahid.simple_qr_code_scanner.scanner.BarcodeOverlayView;
+import com.mojahid.simple_qr_code_scanner.scanner.BarcodeScannerSession;
+import com.mojahid.simple_qr_code_scanner.scanner.BarcodeTracker;
+import com.mojahid.simple_qr_code_scanner.scanner.DecodedBarcode;
+import com.mojahid.simple_qr_code_scanner.scanner.LumaMotionDetector;
+import com.mojahid.simple_qr_code_scanner.scanner.MlKitBarcodeDecoder;
+import com.mojahid.simple_qr_code_scanner.scanner.PowerGovernor;
+import com.mojahid.simple_qr_code_scanner.scanner.ScanAction;
+import com.mojahid.simple_qr_code_scanner.scanner.ScanDeduplicator;
+import com.mojahid.simple_qr_code_scanner.scanner.ScanMetrics;
+import com.mojahid.simple_qr_code_scanner.scanner.ScanResultClassifier;
+import com.mojahid.simple_qr_code_scanner.scanner.StartupTrace;
+import com.mojahid.simple_qr_code_scanner.scanner.ZxingBarcodeDecoder;
+import com.mojahid.simple_qr_code_scanner.sync.ScanSyncWorker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final int CAMERA_PERMISSION_REQUEST_CODE = 100;
+    private static final long METRICS_REFRESH_MILLIS = 500;
+    // Pulled from devices with: adb shell run-as <package> cat files/scan_metrics.json
+    private static final String METRICS_FILE = "scan_metrics.json";
+    private static final int MAX_FEED_CHARS = 40;
     private PreviewView previewView;
     private ExecutorService cameraExecutor;
-    private boolean hasScanned = false;
+    // Swapped on cameraExecutor only.
+    private volatile BarcodeDecoder decoder;
+    private ScanHistoryWriter historyWriter;
+    private RecentScans recentScans;
+    private final AtomicBoolean hasScanned = new AtomicBoolean(false);
+    private final ScanDeduplicator deduplicator = new ScanDeduplicator();
+    private volatile boolean continuousMode = false;
+    private volatile boolean multiCodeMode = false;
+    private final BarcodeTracker tracker = new BarcodeTracker();
+    private BarcodeOverlayView overlay;
+    private TextView multiCodeCount;
+    private final AnalysisProfile analysisProfile = AnalysisProfile.DEFAULT;
+    private final ScanMetrics metrics = new ScanMetrics();
+    private final PowerGovernor governor = new PowerGovernor(
+            PowerGovernor.DEFAULT_IDLE_AFTER_MILLIS, PowerGovernor.DEFAULT_IDLE_STRIDE, metrics);
+    // Only touched on cameraExecutor.
+    private final LumaMotionDetector motionDetector = new LumaMotionDetector();
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+    private final Handler metricsHandler = new Handler(Looper.getMainLooper());
+    private TextView metricsOverlay;
+    // Only touched on cameraExecutor.
+    private long frameIndex = 0;
+    private ScannerApplication startup;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        startup = (ScannerApplication) getApplication();
+        startup.warmUp();
         setContentView(R.layout.activity_main);
+        startup.mark(StartupTrace.Mark.ACTIVITY_CREATED);
 
         previewView = findViewById(R.id.previewView);
+        overlay = findViewById(R.id.barcodeOverlay);
+        multiCodeCount = findViewById(R.id.multiCodeCount);
+        View reticle = findViewById(R.id.reticle);
+        reticle.setVisibility(analysisProfile.isCropping() ? View.VISIBLE : View.GONE);
+        // The preview fills its square view from the frame's centre, so the reticle scales with the view.
+        previewView.post(() -> {
+            ViewGroup.LayoutParams params = reticle.getLayoutParams();
+            params.width = (int) (Math.min(previewView.getWidth(), previewView.getHeight()) * analysisProfile.roiFraction);
+            params.height = params.width;
+            reticle.setLayoutParams(params);
+        });
         cameraExecutor = Executors.newSingleThreadExecutor();
+        decoder = createDecoder(false);
+        ScanHistoryStore store = new ScanHistoryStore(ScanDatabase.getInstance(this));
+        historyWriter = new ScanHistoryWriter(batch -> {
+            long start = System.nanoTime();
+            store.insertAll(batch);
+            metrics.record(ScanMetrics.Stage.DB_WRITE, System.nanoTime() - start);
+        }, ScanDatabase.getWriteExecutor(), ScanHistoryWriter.DEFAULT_MAX_BATCH_SIZE, ScanHistoryWriter.DEFAULT_MAX_DELAY_MILLIS);
+
+        TextView recentScansFeed = findViewById(R.id.recentScansFeed);
+        recentScans = new RecentScans(RecentScans.DEFAULT_CAPACITY, scans -> recentScansFeed.setText(formatFeed(scans)));
+        ScanDatabase.getInstance(this).scanHistoryDao().observeRecent(recentScans.getCapacity())
+                .observe(this, rows -> recentScans.onLoaded(rows,
+                        ScanDatabase.getWriteExecutor(), ContextCompat.getMainExecutor(this)));
+
+        // Latency figures are shown on debuggable builds; long-press them to share the JSON dump.
+        metricsOverlay = findViewById(R.id.metricsOverlay);
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            metricsOverlay.setVisibility(View.VISIBLE);
+            metricsOverlay.setOnLongClickListener(v -> {
+                shareMetrics();
+                return true;
+            });
+        }
 
         Button historyButton = findViewById(R.id.historyButton);
         historyButton.setOnClickListener(v -> {
@@ -63,6 +161,35 @@ public class MainActivity extends AppCompatActivity {
             startActivity(intent);
         });
 
+        Button batchImportButton = findViewById(R.id.batchImportButton);
+        batchImportButton.setOnClickListener(v -> startActivity(new Intent(MainActivity.this, BatchImportActivity.class)));
+
+        CompoundButton continuousSwitch = findViewById(R.id.continuousScanSwitch);
+        continuousSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            continuousMode = isChecked;
+            hasScanned.set(false);
+            deduplicator.clear();
+        });
+
+        CompoundButton multiCodeSwitch = findViewById(R.id.multiCodeSwitch);
+        multiCodeSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            multiCodeMode = isChecked;
+            decoder.setMultiCode(isChecked);
+            tracker.reset();
+            overlay.clear();
+            multiCodeCount.setText("Captured: 0");
+            multiCodeCount.setVisibility(isChecked ? View.VISIBLE : View.GONE);
+        });
+
+        CompoundButton engineSwitch = findViewById(R.id.zxingEngineSwitch);
+        engineSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> switchEngine(isChecked));
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            PowerManager powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
+            governor.setThermalStatus(powerManager.getCurrentThermalStatus());
+            thermalListener = governor::setThermalStatus;
+            powerManager.addThermalStatusListener(ContextCompat.getMainExecutor(this), thermalListener);
+        }
 
         checkCameraPermission();
     }
@@ -100,6 +227,7 @@ public class MainActivity extends AppCompatActivity {
 
                 ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
                         .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                        .setTargetResolution(new Size(analysisProfile.targetWidth, analysisProfile.targetHeight))
                         .build();
 
                 imageAnalysis.setAnalyzer(cameraExecutor, this::scanQRCode);
@@ -107,6 +235,7 @@ public class MainActivity extends AppCompatActivity {
                 cameraProvider.unbindAll();
                 cameraProvider.bindToLifecycle((LifecycleOwner) this, cameraSelector, preview, imageAnalysis);
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
+                startup.mark(StartupTrace.Mark.CAMERA_BOUND);
 
             } catch (Exception e) {
                 Log.e("CameraX", "Failed to bind camera use cases", e);
@@ -115,119 +244,204 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void scanQRCode(ImageProxy imageProxy) {
-        if (hasScanned) {
+        startup.mark(StartupTrace.Mark.FIRST_FRAME);
+        long sensorTimestamp = imageProxy.getImageInfo().getTimestamp();
+        metrics.onFrameReceived(sensorTimestamp);
+        metrics.record(ScanMetrics.Stage.QUEUE_WAIT, queueWaitNanos(sensorTimestamp));
+        boolean multiCode = multiCodeMode;
+        if (!multiCode && !continuousMode && hasScanned.get()) {
+            metrics.onFrameSkipped();
             imageProxy.close();
             return;
         }
-        @SuppressWarnings("UnsafeOptInUsageError")
-        Image mediaImage = imageProxy.getImage();
-        if (mediaImage != null) {
-            InputImage image = InputImage.fromMediaImage(mediaImage, imageProxy.getImageInfo().getRotationDegrees());
-            BarcodeScanner scanner = BarcodeScanning.getClient();
-
-            scanner.process(image)
-                    .addOnSuccessListener(barcodes -> {
-                        if (!barcodes.isEmpty()) {
-                            hasScanned = true;
-                        }
-                        for (Barcode barcode : barcodes) {
-                            int valueType = barcode.getValueType();
-                            String scannedData = barcode.getRawValue();
-                            saveToHistory(scannedData, valueType);
-                            copyToClipboard(scannedData);
-
-                            switch (valueType) {
-                                case Barcode.TYPE_URL:
-                                    String url = barcode.getUrl().getUrl();
-                                    showToast("Website: " + url);
-                                    openWebPage(url);
-                                    break;
-
-                                case Barcode.TYPE_PHONE:
-                                    String phoneNumber = barcode.getPhone().getNumber();
-                                    showToast("Call: " + phoneNumber);
-                                    dialPhoneNumber(phoneNumber);
-                                    break;
-
-                                case Barcode.TYPE_EMAIL:
-                                    String email = barcode.getEmail().getAddress();
-                                    showToast("Email: " + email);
-                                    sendEmail(email);
-                                    break;
-
-                                case Barcode.TYPE_SMS:
-                                    String smsNumber = barcode.getSms().getPhoneNumber();
-                                    String smsMessage = barcode.getSms().getMessage();
-                                    showToast("SMS to: " + smsNumber + "\nMessage: " + smsMessage);
-                                    sendSMS(smsNumber, smsMessage);
-                                    break;
-
-                                case Barcode.TYPE_TEXT:
-                                    String text = barcode.getRawValue();
-                                    showToast("Text: " + text);
-                                    break;
-
-                                case Barcode.TYPE_WIFI:
-                                    Barcode.WiFi wifi = barcode.getWifi();
-                                    String ssid = wifi.getSsid();
-                                    String password = wifi.getPassword();
-                                    int encryptionType = wifi.getEncryptionType();
-
-                                    autoConnectWiFi(barcode.getWifi());
-
-                                    showToast("WiFi SSID: " + ssid + "\nPassword: " + password);
-                                    break;
-
-                                case Barcode.TYPE_GEO:
-                                    Barcode.GeoPoint geo = barcode.getGeoPoint();
-                                    showToast("Location: Lat " + geo.getLat() + ", Long " + geo.getLng());
-                                    openGoogleMaps(geo.getLat(), geo.getLng());
-                                    break;
-
-                                case Barcode.TYPE_CONTACT_INFO:
-                                    Barcode.ContactInfo contact = barcode.getContactInfo();
-                                    showToast("Contact: " + contact.getName().getFormattedName());
-                                    break;
-
-                                case Barcode.TYPE_CALENDAR_EVENT:
-                                    Barcode.CalendarEvent event = barcode.getCalendarEvent();
-                                    showToast("Event: " + event.getDescription() + "\nAt: " + event.getStart());
-                                    break;
-
-                                case Barcode.TYPE_DRIVER_LICENSE:
-                                    Barcode.DriverLicense license = barcode.getDriverLicense();
-                                    showToast("Driver License No: " + license.getLicenseNumber());
-                                    break;
-
-                                case Barcode.TYPE_ISBN:
-                                    String isbn = barcode.getRawValue();
-                                    showToast("Book ISBN: " + isbn);
-                                    break;
-
-                                case Barcode.TYPE_PRODUCT:
-                                    String productCode = barcode.getRawValue();
-                                    showToast("Product Barcode: " + productCode);
-                                    break;
-
-                                default:
-                                    showToast("Unknown QR Code");
-                            }
-                        }
-                    })
-                    .addOnFailureListener(e -> Log.e("MLKit", "QR Code scanning failed", e))
-                    .addOnCompleteListener(task -> imageProxy.close());
-        } else {
+        ImageProxy.PlaneProxy luma = imageProxy.getPlanes()[0];
+        boolean motion = motionDetector.update(luma.getBuffer(), luma.getRowStride(),
+                imageProxy.getWidth(), imageProxy.getHeight());
+        long index = frameIndex++;
+        if (!analysisProfile.shouldAnalyze(index)
+                || !governor.shouldAnalyze(index, SystemClock.elapsedRealtime(), motion)
+                || multiCode && !tracker.shouldDecode(index)) {
+            metrics.onFrameSkipped();
             imageProxy.close();
+            return;
+        }
+        metrics.onFrameAnalyzed();
+        // Overlay geometry in upright coordinates, captured before the decoder closes the frame.
+        boolean sideways = imageProxy.getImageInfo().getRotationDegrees() % 180 != 0;
+        int frameWidth = sideways ? imageProxy.getHeight() : imageProxy.getWidth();
+        int frameHeight = sideways ? imageProxy.getWidth() : imageProxy.getHeight();
+        int roiSide = (int) (Math.min(frameWidth, frameHeight) * analysisProfile.roiFraction);
+        int windowWidth = analysisProfile.isCropping() ? roiSide : frameWidth;
+        int windowHeight = analysisProfile.isCropping() ? roiSide : frameHeight;
+        decoder.decode(imageProxy, new BarcodeDecoder.Callback() {
+            @Override
+            public void onSuccess(List<DecodedBarcode> barcodes) {
+                long start = System.nanoTime();
+                if (!barcodes.isEmpty()) {
+                    governor.onDecoded(SystemClock.elapsedRealtime());
+                    startup.mark(StartupTrace.Mark.FIRST_DECODE);
+                }
+                if (multiCode && multiCodeMode) {
+                    handleMultiCode(barcodes, frameWidth, frameHeight, windowWidth, windowHeight);
+                } else if (!multiCode) {
+                    handleBarcodes(barcodes);
+                }
+                metrics.record(ScanMetrics.Stage.HANDLING, System.nanoTime() - start);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                Log.e("Scanner", "QR Code scanning failed", e);
+            }
+
+            @Override
+            public void onPartialDetection() {
+                governor.onPartialDetection(SystemClock.elapsedRealtime());
+            }
+        });
+    }
+
+    private void handleBarcodes(List<DecodedBarcode> barcodes) {
+        if (!continuousMode && !barcodes.isEmpty() && !hasScanned.compareAndSet(false, true)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (DecodedBarcode barcode : barcodes) {
+            String scannedData = barcode.rawValue;
+            if (!deduplicator.accept(scannedData, barcode.format, now)) {
+                continue;
+            }
+            saveToHistory(scannedData, barcode.valueType);
+            copyToClipboard(scannedData);
+
+            ScanAction action = ScanResultClassifier.classify(barcode);
+            showToast(action.message);
+            switch (action.type) {
+                case DecodedBarcode.TYPE_URL:
+                    openWebPage(action.target);
+                    break;
+
+                case DecodedBarcode.TYPE_PHONE:
+                    dialPhoneNumber(action.target);
+                    break;
+
+                case DecodedBarcode.TYPE_EMAIL:
+                    sendEmail(action.target);
+                    break;
+
+                case DecodedBarcode.TYPE_SMS:
+                    sendSMS(action.target, action.extra);
+                    break;
+
+                case DecodedBarcode.TYPE_WIFI:
+                    if (action.target != null) {
+                        autoConnectWiFi(action.target, action.extra, action.wifiEncryption);
+                    }
+                    break;
+
+                case DecodedBarcode.TYPE_GEO:
+                    openGoogleMaps(action.latitude, action.longitude);
+                    break;
+            }
+        }
+    }
+
+    // Every code is saved once per sweep without actions, so a shelf of labels does not open a stack of activities.
+    private void handleMultiCode(List<DecodedBarcode> barcodes, int frameWidth, int frameHeight,
+                                 int windowWidth, int windowHeight) {
+        for (DecodedBarcode barcode : tracker.update(barcodes)) {
+            saveToHistory(barcode.rawValue, barcode.valueType);
+        }
+        overlay.setTracks(tracker.getTracks(), frameWidth, frameHeight, windowWidth, windowHeight);
+        multiCodeCount.setText("Captured: " + tracker.getEmittedCount());
+    }
+
+    // Sensor timestamps use the realtime clock on most devices and the uptime clock on some; take whichever is sane.
+    private static long queueWaitNanos(long sensorTimestamp) {
+        long wait = SystemClock.elapsedRealtimeNanos() - sensorTimestamp;
+        if (wait < 0 || wait > TimeUnit.SECONDS.toNanos(1)) {
+            wait = System.nanoTime() - sensorTimestamp;
         }
+        return wait;
     }
+
+    private final Runnable metricsUpdater = new Runnable() {
+        @Override
+        public void run() {
+            metricsOverlay.setText(metrics.summary());
+            metricsHandler.postDelayed(this, METRICS_REFRESH_MILLIS);
+        }
+    };
+
+    private void shareMetrics() {
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("application/json");
+        intent.putExtra(Intent.EXTRA_TEXT, metrics.toJson());
+        startActivity(Intent.createChooser(intent, "Share scan metrics"));
+    }
+
+    private void writeMetrics() {
+        String json = metrics.toJson();
+        File file = new File(getFilesDir(), METRICS_FILE);
+        ScanDatabase.getWriteExecutor().execute(() -> {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+                out.write(json);
+            } catch (IOException e) {
+                Log.w("Metrics", "Could not write " + file, e);
+            }
+        });
+    }
+
+    // The first ML Kit decoder takes over the session the application started warming up. If ZXing comes
+    // first, the session is closed rather than left holding the model.
+    private BarcodeDecoder createDecoder(boolean zxing) {
+        BarcodeScannerSession warmSession = startup.takeWarmSession();
+        BarcodeDecoder created;
+        if (zxing) {
+            if (warmSession != null) {
+                warmSession.close();
+            }
+            created = new ZxingBarcodeDecoder(analysisProfile, metrics);
+        } else if (warmSession != null) {
+            created = new MlKitBarcodeDecoder(warmSession, analysisProfile, metrics);
+        } else {
+            created = new MlKitBarcodeDecoder(analysisProfile, metrics);
+        }
+        created.setMultiCode(multiCodeMode);
+        return created;
+    }
+
+    // Runs on cameraExecutor so the analyzer never sees a decoder that is being closed.
+    private void switchEngine(boolean zxing) {
+        cameraExecutor.execute(() -> {
+            BarcodeDecoder previous = decoder;
+            decoder = createDecoder(zxing);
+            previous.close();
+        });
+    }
+
     private void saveToHistory(String data, int type) {
-        new Thread(() -> {
-            ScanDatabase db = Room.databaseBuilder(getApplicationContext(), ScanDatabase.class, "scan_db").build();
-            db.scanHistoryDao().insert(new ScanHistory(data, String.valueOf(type), System.currentTimeMillis()));
-        }).start();
+        ScanHistory scan = new ScanHistory(data, type, System.currentTimeMillis());
+        recentScans.add(scan);
+        historyWriter.enqueue(scan);
     }
 
 
+    private static String formatFeed(List<ScanHistory> scans) {
+        StringBuilder text = new StringBuilder();
+        for (ScanHistory scan : scans) {
+            String data = scan.data == null ? "" : scan.data;
+            if (data.length() > MAX_FEED_CHARS) {
+                data = data.substring(0, MAX_FEED_CHARS) + "...";
+            }
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(ScanHistoryFormatter.typeLabel(scan.type)).append(": ").append(data);
+        }
+        return text.toString();
+    }
+
     private void copyToClipboard(String text) {
         ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
         ClipData clip = ClipData.newPlainText("Scanned QR Code", text);
@@ -263,17 +477,13 @@ public class MainActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
-    private void autoConnectWiFi(Barcode.WiFi wifi) {
-        String ssid = wifi.getSsid();
-        String password = wifi.getPassword();
-        int encryptionType = wifi.getEncryptionType();
-
+    private void autoConnectWiFi(String ssid, String password, int encryptionType) {
         WifiConfiguration wifiConfig = new WifiConfiguration();
         wifiConfig.SSID = "\"" + ssid + "\"";
 
-        if (encryptionType == Barcode.WiFi.TYPE_WPA) {
+        if (encryptionType == ScanAction.WIFI_WPA) {
             wifiConfig.preSharedKey = "\"" + password + "\"";
-        } else if (encryptionType == Barcode.WiFi.TYPE_WEP) {
+        } else if (encryptionType == ScanAction.WIFI_WEP) {
             wifiConfig.wepKeys[0] = "\"" + password + "\"";
             wifiConfig.wepTxKeyIndex = 0;
             wifiConfig.allowedKeyManagement.set(WifiConfiguration.KeyMgmt.NONE);
@@ -311,9 +521,30 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (metricsOverlay.getVisibility() == View.VISIBLE) {
+            metricsHandler.post(metricsUpdater);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        historyWriter.flush();
+        ScanSyncWorker.requestSync(this);
+        metricsHandler.removeCallbacks(metricsUpdater);
+        writeMetrics();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        if (thermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            ((PowerManager) getSystemService(Context.POWER_SERVICE)).removeThermalStatusListener(thermalListener);
+        }
+        cameraExecutor.execute(() -> decoder.close());
         cameraExecutor.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package com.mojahid.simple_qr_code_scanner;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.core.content.pm.PackageInfoCompat;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.mojahid.simple_qr_code_scanner.generator.QrCodeGenerator;
+import com.mojahid.simple_qr_code_scanner.history.ScanDatabase;
+import com.mojahid.simple_qr_code_scanner.history.ScanRetentionWorker;
+import com.mojahid.simple_qr_code_scanner.scanner.BarcodeScannerSession;
+import com.mojahid.simple_qr_code_scanner.scanner.StartupTrace;
+import com.mojahid.simple_qr_code_scanner.sync.ScanSyncWorker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Starts the slow parts of a cold start together once {@link MainActivity} is created, instead of one after
+ * another as the activity needs them: the CameraX provider initialises on CameraX's threads, the ML Kit
+ * model loads on ML Kit's threads and the history database opens, running any migration, on the write thread.
+ * Processes started only to run a worker never create the activity, so they skip all of it.
+ *
+ * <p>Also keeps the {@link StartupTrace} for this process. It is timed from process start when the process was
+ * started to show an activity, and otherwise from {@link #warmUp}, so time a worker's process spent idle before
+ * the scanner opened is not counted. When the first code is decoded the trace is logged, emitted as a
+ * {@code time-to-first-decode} trace section and appended to {@link #TRACE_FILE}.
+ */
+public class ScannerApplication extends Application {
+
+    private static final String TAG = "Startup";
+    private static final String TRACE_SECTION = "time-to-first-decode";
+    // Pulled from devices with: adb shell run-as <package> cat files/startup_trace.jsonl
+    private static final String TRACE_FILE = "startup_trace.jsonl";
+    private static final long MAX_TRACE_FILE_BYTES = 256 * 1024;
+
+    // Null until the start is being timed; set on the main thread.
+    private volatile StartupTrace trace;
+    private final AtomicReference<BarcodeScannerSession> warmSession = new AtomicReference<>();
+    private boolean warmedUp;
+    private QrCodeGenerator qrCodeGenerator;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if (startedForActivity()) {
+            startTrace(TimeUnit.MILLISECONDS.toNanos(Process.getStartElapsedRealtime()));
+        }
+        mark(StartupTrace.Mark.APP_CREATED);
+
+        ScanSyncWorker.schedulePeriodic(this);
+        ScanRetentionWorker.schedulePeriodic(this);
+    }
+
+    /**
+     * Called by {@link MainActivity} before it inflates its layout, so the warm-up runs while it does.
+     * Only the first call in a process does anything. Main thread only.
+     */
+    public void warmUp() {
+        if (warmedUp) {
+            return;
+        }
+        warmedUp = true;
+        if (trace == null) {
+            startTrace(SystemClock.elapsedRealtimeNanos());
+        }
+
+        // The provider future is a process-wide singleton, so MainActivity's getInstance call gets this one.
+        ListenableFuture<ProcessCameraProvider> cameraProvider = ProcessCameraProvider.getInstance(this);
+        cameraProvider.addListener(() -> mark(StartupTrace.Mark.CAMERA_PROVIDER_READY), Runnable::run);
+
+        BarcodeScannerSession session = new BarcodeScannerSession();
+        warmSession.set(session);
+        session.warmUp().addOnCompleteListener(Runnable::run, task -> mark(StartupTrace.Mark.DETECTOR_READY));
+
+        ScanDatabase.getWriteExecutor().execute(() -> {
+            ScanDatabase.getInstance(this).getOpenHelper().getWritableDatabase();
+            mark(StartupTrace.Mark.DATABASE_READY);
+        });
+    }
+
+    /**
+     * Hands over the detector session started by {@link #warmUp}, once. Returns null after that.
+     */
+    public BarcodeScannerSession takeWarmSession() {
+        return warmSession.getAndSet(null);
+    }
+
+    /**
+     * The generator behind {@link GenerateQRActivity}, kept for the life of the process so its preview cache
+     * survives the activity. Previews are cached in up to an eighth of the heap.
+     */
+    public synchronized QrCodeGenerator getQrCodeGenerator() {
+        if (qrCodeGenerator == null) {
+            qrCodeGenerator = new QrCodeGenerator((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8));
+        }
+        return qrCodeGenerator;
+    }
+
+    public void mark(StartupTrace.Mark mark) {
+        StartupTrace trace = this.trace;
+        if (trace == null || !trace.mark(mark, SystemClock.elapsedRealtimeNanos())
+                || mark != StartupTrace.Mark.FIRST_DECODE) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_SECTION, 0);
+        }
+        String json = trace.toJson(versionLabel());
+        Log.i(TAG, json);
+        File file = new File(getFilesDir(), TRACE_FILE);
+        ScanDatabase.getWriteExecutor().execute(() -> {
+            boolean append = file.length() < MAX_TRACE_FILE_BYTES;
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8)) {
+                out.write(json);
+                out.write('\n');
+            } catch (IOException e) {
+                Log.w(TAG, "Could not write " + file, e);
+            }
+        });
+    }
+
+    private void startTrace(long originNanos) {
+        trace = new StartupTrace(originNanos);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(TRACE_SECTION, 0);
+        }
+    }
+
+    // A process started to launch an activity is already in the foreground when the application is created;
+    // one started for a worker or a broadcast is not.
+    private static boolean startedForActivity() {
+        ActivityManager.RunningAppProcessInfo info = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(info);
+        return info.importance == ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+    }
+
+    private String versionLabel() {
+        try {
+            PackageInfo info = getPackageManager().getPackageInfo(getPackageName(), 0);
+            return info.versionName + " (" + PackageInfoCompat.getLongVersionCode(info) + ")";
+        } catch (PackageManager.NameNotFoundException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.mojahid.simple_qr_code_scanner.generator;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders QR codes to bitmaps. Single codes are kept in an LRU cache keyed by content, size and
+ * error-correction level, bounded by bitmap bytes. Batches are rendered on one thread per core and
+ * bypass the cache: every thread reuses one bitmap and hands it to a {@link BitmapSink} in turn.
+ */
+public class QrCodeGenerator {
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 250;
+
+    /**
+     * Receives each rendered code of a batch, on a worker thread. The bitmap is reused once this returns.
+     */
+    public interface BitmapSink {
+        void write(int index, String content, Bitmap bitmap) throws IOException;
+    }
+
+    /**
+     * Callbacks arrive on background threads.
+     */
+    public interface BatchListener {
+        void onProgress(int done, int total);
+
+        void onComplete(int written, int failed);
+
+        void onCancelled(int written);
+
+        void onError(Exception e);
+    }
+
+    private static final class Key {
+        final String content;
+        final int size;
+        final ErrorCorrectionLevel level;
+
+        Key(String content, int size, ErrorCorrectionLevel level) {
+            this.content = content;
+            this.size = size;
+            this.level = level;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return size == other.size && level == other.level && content.equals(other.content);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(content, size, level);
+        }
+    }
+
+    private final LruCache<Key, Bitmap> cache;
+    private final int workerCount = Runtime.getRuntime().availableProcessors();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> new Thread(r, "qr-batch"));
+    private final ExecutorService workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "qr-render-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+    private final ThreadLocal<Worker> worker = ThreadLocal.withInitial(Worker::new);
+
+    public QrCodeGenerator(int cacheBytes) {
+        cache = new LruCache<Key, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns a cached bitmap when there is one, otherwise renders and caches it. Safe to call from any thread;
+     * the returned bitmap is shared and must not be recycled.
+     */
+    public Bitmap generate(String content, int size, ErrorCorrectionLevel level) throws WriterException {
+        Key key = new Key(content, size, level);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            int[] pixels = worker.get().renderer.render(content, size, level);
+            bitmap = Bitmap.createBitmap(pixels, 0, size, size, size, Bitmap.Config.ARGB_8888);
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    public Future<?> generateBatch(List<String> contents, int size, ErrorCorrectionLevel level,
+                                   BitmapSink sink, BatchListener listener) {
+        return dispatcher.submit(() -> runBatch(contents, size, level, sink, listener));
+    }
+
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        workers.shutdownNow();
+        cache.evictAll();
+    }
+
+    // Each worker takes the next index until the list runs out, so no per-code tasks are queued.
+    private void runBatch(List<String> contents, int size, ErrorCorrectionLevel level,
+                          BitmapSink sink, BatchListener listener) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger lastReportAt = new AtomicInteger();
+        long startedAt = System.currentTimeMillis();
+        List<Future<?>> parts = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            parts.add(workers.submit(() -> {
+                Worker state = worker.get();
+                int index;
+                while (!Thread.currentThread().isInterrupted() && (index = next.getAndIncrement()) < contents.size()) {
+                    String content = contents.get(index);
+                    try {
+                        sink.write(index, content, state.renderBitmap(content, size, level));
+                        written.incrementAndGet();
+                    } catch (WriterException | IOException e) {
+                        failed.incrementAndGet();
+                    }
+                    int elapsed = (int) (System.currentTimeMillis() - startedAt);
+                    int last = lastReportAt.get();
+                    if (elapsed - last >= PROGRESS_INTERVAL_MILLIS && lastReportAt.compareAndSet(last, elapsed)) {
+                        listener.onProgress(written.get() + failed.get(), contents.size());
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> part : parts) {
+                part.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> part : parts) {
+                part.cancel(true);
+            }
+            listener.onCancelled(written.get());
+            return;
+        } catch (ExecutionException e) {
+            for (Future<?> part : parts) {
+                part.cancel(true);
+            }
+            listener.onError(e);
+            return;
+        }
+        listener.onComplete(written.get(), failed.get());
+    }
+
+    /**
+     * Per-thread renderer and bitmap, reused for every code the thread renders.
+     */
+    private static final class Worker {
+        final QrRenderer renderer = new QrRenderer();
+        private Bitmap bitmap;
+
+        Bitmap renderBitmap(String content, int size, ErrorCorrectionLevel level) throws WriterException {
+            int[] pixels = renderer.render(content, size, level);
+            if (bitmap == null || bitmap.getWidth() != size) {
+                if (bitmap != null) {
+                    bitmap.recycle();
+                }
+                bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            }
+            bitmap.setPixels(pixels, 0, size, 0, 0, size, size);
+            return bitmap;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The last few scans, kept in memory for the live feed on the scanner screen. A scan shows up the moment
+ * it is {@link #add added}, before its batch is written. The window is kept in step with the table by
+ * passing every result of {@link ScanHistoryDao#observeRecent} to {@link #onLoaded}: a scan the store has
+ * given an id is then taken from those rows instead, and rows deleted elsewhere drop out.
+ *
+ * <p>Not thread-safe; call it from the main thread, where LiveData delivers.
+ */
+public class RecentScans {
+
+    public static final int DEFAULT_CAPACITY = 5;
+
+    public interface Listener {
+        void onChanged(List<ScanHistory> scans);
+    }
+
+    private final int capacity;
+    private final Listener listener;
+    // Newest first; scans that have not been written yet.
+    private final ArrayDeque<ScanHistory> unsaved = new ArrayDeque<>();
+    private List<ScanHistory> stored = Collections.emptyList();
+
+    public RecentScans(int capacity, Listener listener) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.listener = listener;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void add(ScanHistory scan) {
+        unsaved.addFirst(scan);
+        if (unsaved.size() > capacity) {
+            unsaved.removeLast();
+        }
+        listener.onChanged(getScans());
+    }
+
+    /**
+     * Inflates rows delivered by {@link ScanHistoryDao#observeRecent} on {@code background}, then hands them
+     * to {@link #onStored} on {@code main}. Both executors must run tasks in order, so updates keep the order
+     * Room delivered them in.
+     */
+    public void onLoaded(List<ScanHistory> rows, Executor background, Executor main) {
+        background.execute(() -> {
+            ScanHistory.inflatePayloads(rows);
+            main.execute(() -> onStored(rows));
+        });
+    }
+
+    /**
+     * Takes the newest stored rows, newest first, with their payloads already inflated.
+     */
+    public void onStored(List<ScanHistory> rows) {
+        stored = rows;
+        unsaved.removeIf(scan -> scan.id != 0);
+        listener.onChanged(getScans());
+    }
+
+    public List<ScanHistory> getScans() {
+        List<ScanHistory> scans = new ArrayList<>(capacity);
+        for (ScanHistory scan : unsaved) {
+            scans.add(scan);
+        }
+        for (int i = 0; i < stored.size() && scans.size() < capacity; i++) {
+            scans.add(stored.get(i));
+        }
+        return scans;
+    }
+}
@@ -0,0 +1,64 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+
+import com.mojahid.simple_qr_code_scanner.R;
+
+/**
+ * The user's choice of how much scan history to keep, read by {@link ScanRetentionWorker}. Until one is
+ * made the limits in {@code res/values/retention.xml} apply, which keep everything.
+ */
+public final class RetentionSettings {
+
+    private static final String PREFERENCES = "retention";
+    private static final String KEY_MAX_AGE_DAYS = "max_age_days";
+    private static final String KEY_MAX_ROWS = "max_rows";
+
+    public static final String[] CHOICE_LABELS = {
+            "Keep everything",
+            "Last year, up to 100,000 scans",
+            "Last 90 days",
+            "Last 30 days"
+    };
+    private static final int[] CHOICE_MAX_AGE_DAYS = {0, 365, 90, 30};
+    private static final int[] CHOICE_MAX_ROWS = {0, 100_000, 0, 0};
+
+    private RetentionSettings() {
+    }
+
+    public static RetentionPolicy load(Context context) {
+        Resources resources = context.getResources();
+        SharedPreferences preferences = preferences(context);
+        return RetentionPolicy.fromConfig(
+                preferences.getInt(KEY_MAX_AGE_DAYS, resources.getInteger(R.integer.retention_max_age_days)),
+                preferences.getInt(KEY_MAX_ROWS, resources.getInteger(R.integer.retention_max_rows)),
+                resources.getStringArray(R.array.retention_type_rules));
+    }
+
+    /**
+     * The index in {@link #CHOICE_LABELS} matching the current limits, or -1 if none does.
+     */
+    public static int getChoice(Context context) {
+        RetentionPolicy policy = load(context);
+        for (int i = 0; i < CHOICE_LABELS.length; i++) {
+            if (policy.maxAgeMillis == CHOICE_MAX_AGE_DAYS[i] * RetentionPolicy.DAY_MILLIS
+                    && policy.maxRows == CHOICE_MAX_ROWS[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static void setChoice(Context context, int choice) {
+        preferences(context).edit()
+                .putInt(KEY_MAX_AGE_DAYS, CHOICE_MAX_AGE_DAYS[choice])
+                .putInt(KEY_MAX_ROWS, CHOICE_MAX_ROWS[choice])
+                .apply();
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,193 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The {@link HistoryRetention.Store} over the scan database. Reads run on the calling thread; every
+ * write is queued on the write thread as its own short task and waited for, so scans saved meanwhile
+ * are written between two chunks instead of after the whole run.
+ */
+public class RoomRetentionStore implements HistoryRetention.Store {
+
+    static final String AUTO_VACUUM = "PRAGMA auto_vacuum";
+    static final int AUTO_VACUUM_INCREMENTAL = 2;
+    static final String ENABLE_INCREMENTAL_VACUUM = "PRAGMA auto_vacuum = INCREMENTAL";
+    static final String FREELIST_COUNT = "PRAGMA freelist_count";
+    static final String PAGE_COUNT = "PRAGMA page_count";
+    static final String PAGE_SIZE = "PRAGMA page_size";
+    // A database created before incremental vacuum is only rewritten once at least this much is free.
+    static final int FULL_VACUUM_MIN_FREE_PAGES = 256;
+    // Analyzes only the tables whose statistics are missing or out of date; older SQLite ignores it.
+    static final String OPTIMIZE = "PRAGMA optimize";
+    // Frees one page per result row, so the statement has to be stepped to the end.
+    static final String INCREMENTAL_VACUUM = "PRAGMA incremental_vacuum(%d)";
+    // Copies the compacted pages from the write-ahead log into the file, which then shrinks, and empties the log.
+    static final String CHECKPOINT = "PRAGMA wal_checkpoint(TRUNCATE)";
+    static final int REBUILD_CHUNK_ROWS = 500;
+
+    private final ScanDatabase database;
+    private final ScanHistoryDao dao;
+
+    public RoomRetentionStore(ScanDatabase database) {
+        this.database = database;
+        this.dao = database.scanHistoryDao();
+    }
+
+    @Override
+    public List<Integer> idsOfTypeBefore(int type, long before, int limit) {
+        return dao.getIdsOfTypeBefore(type, before, limit);
+    }
+
+    @Override
+    public List<Integer> idsBefore(long before, Collection<Integer> exceptTypes, int limit) {
+        return dao.getIdsBefore(before, exceptTypes, limit);
+    }
+
+    @Override
+    public List<Integer> oldestIds(int limit) {
+        return dao.getOldestIds(limit);
+    }
+
+    @Override
+    public long count() {
+        return dao.countScans();
+    }
+
+    @Override
+    public int delete(List<Integer> ids) {
+        return onWriteThread(() -> dao.deleteByIds(ids));
+    }
+
+    @Override
+    public long sizeBytes() {
+        SupportSQLiteDatabase db = database.getOpenHelper().getReadableDatabase();
+        return queryLong(db, PAGE_COUNT) * queryLong(db, PAGE_SIZE);
+    }
+
+    @Override
+    public long staleSearchEntries() {
+        return Math.max(0, queryLong(database.getOpenHelper().getReadableDatabase(), ScanHistoryFts.COUNT_STALE));
+    }
+
+    // The live table keeps answering searches while the new one is filled a chunk at a time. Payloads saved
+    // meanwhile get higher ids, so the last chunk, written with the swap, picks them up.
+    @Override
+    public void rebuildSearchIndex() {
+        onWriteThread(() -> {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            db.execSQL(ScanHistoryFts.DROP_REBUILD_TABLE);
+            db.execSQL(ScanHistoryFts.CREATE_REBUILD_TABLE);
+            return null;
+        });
+        long lastId = 0;
+        while (true) {
+            long afterId = lastId;
+            lastId = onWriteThread(() -> database.runInTransaction(() ->
+                    indexPayloads(database.getOpenHelper().getWritableDatabase(), afterId, REBUILD_CHUNK_ROWS)));
+            if (lastId == afterId) {
+                break;
+            }
+        }
+        long afterId = lastId;
+        onWriteThread(() -> database.runInTransaction(() -> {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            indexPayloads(db, afterId, Integer.MAX_VALUE);
+            db.execSQL(ScanHistoryFts.DROP_TABLE);
+            db.execSQL(ScanHistoryFts.RENAME_REBUILD_TABLE);
+            return null;
+        }));
+    }
+
+    // Returns the last payload id indexed, or afterId if there were none left.
+    private static long indexPayloads(SupportSQLiteDatabase db, long afterId, int limit) {
+        long lastId = afterId;
+        try (Cursor cursor = db.query(ScanHistoryFts.SELECT_PAYLOADS_AFTER, new Object[]{afterId, limit});
+             SupportSQLiteStatement insert = db.compileStatement(ScanHistoryFts.INSERT_REBUILD)) {
+            while (cursor.moveToNext()) {
+                lastId = cursor.getLong(0);
+                insert.bindLong(1, lastId);
+                insert.bindString(2, cursor.isNull(1) ? ScanPayloadCodec.decompress(cursor.getBlob(2)) : cursor.getString(1));
+                insert.executeInsert();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return lastId;
+    }
+
+    // New databases get this setting when they are created. Older ones need one full VACUUM to take it,
+    // which blocks writes while it runs, so it waits until a run has freed enough pages to be worth it.
+    @Override
+    public void enableIncrementalVacuum() {
+        onWriteThread(() -> {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            if (queryLong(db, AUTO_VACUUM) != AUTO_VACUUM_INCREMENTAL
+                    && queryLong(db, FREELIST_COUNT) >= FULL_VACUUM_MIN_FREE_PAGES) {
+                db.execSQL(ENABLE_INCREMENTAL_VACUUM);
+                db.execSQL("VACUUM");
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean vacuum(int maxPages) {
+        return onWriteThread(() -> {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            long free = queryLong(db, FREELIST_COUNT);
+            if (free > 0) {
+                try (Cursor cursor = db.query(String.format(Locale.ROOT, INCREMENTAL_VACUUM, maxPages))) {
+                    while (cursor.moveToNext()) {
+                        // Each row is one page released.
+                    }
+                }
+            }
+            long left = queryLong(db, FREELIST_COUNT);
+            // Stop if nothing moved too, rather than spin on a database still without incremental vacuum.
+            return left > 0 && left < free;
+        });
+    }
+
+    @Override
+    public void analyze() {
+        onWriteThread(() -> {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            try (Cursor cursor = db.query(OPTIMIZE)) {
+                while (cursor.moveToNext()) {
+                    // Steps through every table it analyzes.
+                }
+            }
+            try (Cursor cursor = db.query(CHECKPOINT)) {
+                cursor.moveToNext();
+            }
+            return null;
+        });
+    }
+
+    private static long queryLong(SupportSQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.query(pragma)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    private static <T> T onWriteThread(Callable<T> task) {
+        try {
+            return ScanDatabase.getWriteExecutor().submit(task).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Retention write failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write thread", e);
+        }
+    }
+}
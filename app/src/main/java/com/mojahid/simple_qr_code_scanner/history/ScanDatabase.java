@@ -1,9 +1,238 @@
 package com.mojahid.simple_qr_code_scanner.history;
 
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
 import androidx.room.Database;
+import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.mojahid.simple_qr_code_scanner.sync.SyncCursor;
+import com.mojahid.simple_qr_code_scanner.sync.SyncDao;
 
-@Database(entities = {ScanHistory.class}, version = 1, exportSchema = false)
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Database(entities = {ScanEvent.class, ScanPayload.class, SyncCursor.class}, version = 7, exportSchema = false)
 public abstract class ScanDatabase extends RoomDatabase {
+
+    private static final String DATABASE_NAME = "scan_db";
+
+    private static volatile ScanDatabase instance;
+
+    // The version 3 and 4 full-text table over scan_history, kept so older databases can still be upgraded.
+    static final String LEGACY_FTS_CREATE_TABLE =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS `scan_history_fts` USING FTS4(`data` TEXT, content=`scan_history`)";
+
+    static final String[] LEGACY_FTS_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_scan_history_fts_BEFORE_UPDATE BEFORE UPDATE ON `scan_history` "
+                    + "BEGIN DELETE FROM `scan_history_fts` WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_scan_history_fts_BEFORE_DELETE BEFORE DELETE ON `scan_history` "
+                    + "BEGIN DELETE FROM `scan_history_fts` WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_scan_history_fts_AFTER_UPDATE AFTER UPDATE ON `scan_history` "
+                    + "BEGIN INSERT INTO `scan_history_fts`(`docid`, `data`) VALUES (NEW.`rowid`, NEW.`data`); END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_scan_history_fts_AFTER_INSERT AFTER INSERT ON `scan_history` "
+                    + "BEGIN INSERT INTO `scan_history_fts`(`docid`, `data`) VALUES (NEW.`rowid`, NEW.`data`); END"
+    };
+
+    static final String LEGACY_FTS_REBUILD = "INSERT INTO `scan_history_fts`(`scan_history_fts`) VALUES ('rebuild')";
+
+    static final int MIGRATION_PAGE_SIZE = 500;
+
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scan_history_timestamp` ON `scan_history` (`timestamp`)");
+        }
+    };
+
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(LEGACY_FTS_CREATE_TABLE);
+            createLegacyFtsTriggers(db);
+            db.execSQL(LEGACY_FTS_REBUILD);
+        }
+    };
+
+    // SQLite cannot change a column type in place, so the table is rebuilt with an INTEGER type column.
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `scan_history_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`data` TEXT, `type` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO `scan_history_new` (`id`, `data`, `type`, `timestamp`) "
+                    + "SELECT `id`, `data`, COALESCE(CAST(`type` AS INTEGER), 0), `timestamp` FROM `scan_history`");
+            db.execSQL("DROP TABLE `scan_history`");
+            db.execSQL("ALTER TABLE `scan_history_new` RENAME TO `scan_history`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scan_history_timestamp` ON `scan_history` (`timestamp`)");
+            createLegacyFtsTriggers(db);
+            db.execSQL(LEGACY_FTS_REBUILD);
+        }
+    };
+
+    /*
+     * Splits scan_history into events and deduplicated payloads. Payloads are grouped and joined back in SQL
+     * through a temporary index on their text; hashing, compression and the new search index need Java,
+     * so that pass walks the payload table in id order, a page at a time.
+     */
+    static final String[] MIGRATION_4_5_SPLIT = {
+            "DROP TRIGGER IF EXISTS room_fts_content_sync_scan_history_fts_BEFORE_UPDATE",
+            "DROP TRIGGER IF EXISTS room_fts_content_sync_scan_history_fts_BEFORE_DELETE",
+            "DROP TRIGGER IF EXISTS room_fts_content_sync_scan_history_fts_AFTER_UPDATE",
+            "DROP TRIGGER IF EXISTS room_fts_content_sync_scan_history_fts_AFTER_INSERT",
+            "DROP TABLE IF EXISTS `scan_history_fts`",
+
+            "CREATE TABLE IF NOT EXISTS `scan_payload` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`hash` BLOB NOT NULL, `data` TEXT, `compressed` BLOB, `ref_count` INTEGER NOT NULL)",
+            "INSERT INTO `scan_payload` (`hash`, `data`, `ref_count`) "
+                    + "SELECT X'', COALESCE(`data`, ''), COUNT(*) FROM `scan_history` GROUP BY COALESCE(`data`, '')",
+            "CREATE INDEX `migration_scan_payload_data` ON `scan_payload` (`data`)",
+
+            "CREATE TABLE IF NOT EXISTS `scan_history_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`type` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL, `payload_id` INTEGER NOT NULL)",
+            "INSERT INTO `scan_history_new` (`id`, `type`, `timestamp`, `payload_id`) "
+                    + "SELECT h.`id`, h.`type`, h.`timestamp`, p.`id` FROM `scan_history` h "
+                    + "JOIN `scan_payload` p ON p.`data` = COALESCE(h.`data`, '')",
+            "DROP INDEX `migration_scan_payload_data`",
+            "DROP TABLE `scan_history`",
+            "ALTER TABLE `scan_history_new` RENAME TO `scan_history`",
+            "CREATE INDEX IF NOT EXISTS `index_scan_history_timestamp` ON `scan_history` (`timestamp`)",
+            "CREATE INDEX IF NOT EXISTS `index_scan_history_payload_id` ON `scan_history` (`payload_id`)",
+
+            ScanHistoryFts.CREATE_TABLE
+    };
+
+    static final String ENCODE_PAYLOADS_PAGE =
+            "SELECT `id`, `data` FROM `scan_payload` WHERE `id` > ? ORDER BY `id` LIMIT ?";
+    static final String ENCODE_PAYLOAD =
+            "UPDATE `scan_payload` SET `hash` = ?, `data` = ?, `compressed` = ? WHERE `id` = ?";
+    static final String MIGRATION_4_5_INDEX_HASH =
+            "CREATE UNIQUE INDEX IF NOT EXISTS `index_scan_payload_hash` ON `scan_payload` (`hash`)";
+
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            for (String statement : MIGRATION_4_5_SPLIT) {
+                db.execSQL(statement);
+            }
+            encodePayloads(db, new ScanPayloadCodec());
+            db.execSQL(MIGRATION_4_5_INDEX_HASH);
+        }
+    };
+
+    private static void createLegacyFtsTriggers(SupportSQLiteDatabase db) {
+        for (String trigger : LEGACY_FTS_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    private static void encodePayloads(SupportSQLiteDatabase db, ScanPayloadCodec codec) {
+        SupportSQLiteStatement update = db.compileStatement(ENCODE_PAYLOAD);
+        SupportSQLiteStatement index = db.compileStatement(ScanHistoryFts.INSERT);
+        long lastId = 0;
+        while (true) {
+            int rows = 0;
+            try (Cursor cursor = db.query(ENCODE_PAYLOADS_PAGE, new Object[]{lastId, MIGRATION_PAGE_SIZE})) {
+                while (cursor.moveToNext()) {
+                    lastId = cursor.getLong(0);
+                    String data = cursor.getString(1);
+                    byte[] compressed = codec.compress(data);
+                    update.bindBlob(1, ScanPayloadCodec.hash(data));
+                    if (compressed == null) {
+                        update.bindString(2, data);
+                        update.bindNull(3);
+                    } else {
+                        update.bindNull(2);
+                        update.bindBlob(3, compressed);
+                    }
+                    update.bindLong(4, lastId);
+                    update.executeUpdateDelete();
+                    index.bindLong(1, lastId);
+                    index.bindString(2, data);
+                    index.executeInsert();
+                    rows++;
+                }
+            }
+            if (rows < MIGRATION_PAGE_SIZE) {
+                return;
+            }
+        }
+    }
+
+    // Widens the timestamp index so the statistics queries are answered from the index alone.
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS `index_scan_history_timestamp`");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_scan_history_timestamp_type_payload_id` "
+                    + "ON `scan_history` (`timestamp`, `type`, `payload_id`)");
+        }
+    };
+
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `sync_cursor` (`name` TEXT NOT NULL, `acked_id` INTEGER NOT NULL, "
+                    + "`dropped` INTEGER NOT NULL, `device_id` TEXT NOT NULL, `last_success` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`name`))");
+        }
+    };
+
+    // The full-text table is not a Room entity, so a fresh database creates it here. Room has created its own
+    // tables by then, so incremental vacuum only takes with a VACUUM, which cannot run inside the create
+    // transaction; it runs when the new database is first opened, while it is still empty and quick to rewrite.
+    private static final Callback ON_CREATE = new Callback() {
+        private boolean created;
+
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL(ScanHistoryFts.CREATE_TABLE);
+            db.execSQL(RoomRetentionStore.ENABLE_INCREMENTAL_VACUUM);
+            created = true;
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            if (created) {
+                created = false;
+                db.execSQL("VACUUM");
+            }
+        }
+    };
+
+    // All writes go through one thread so scans and deletes never contend for the write lock.
+    private static final ScheduledExecutorService writeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "scan-db-writer");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
     public abstract ScanHistoryDao scanHistoryDao();
+
+    public abstract SyncDao syncDao();
+
+    public static ScanDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ScanDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(), ScanDatabase.class, DATABASE_NAME)
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6,
+                                    MIGRATION_6_7)
+                            .addCallback(ON_CREATE)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public static ScheduledExecutorService getWriteExecutor() {
+        return writeExecutor;
+    }
 }
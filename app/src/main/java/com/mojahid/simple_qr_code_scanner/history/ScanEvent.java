@@ -0,0 +1,30 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One scan: when it happened, its type and the payload it read. The text lives in {@link ScanPayload},
+ * so a code scanned a thousand times costs a thousand small rows and one copy of its text.
+ * The timestamp index also carries type and payload, so statistics over a time range never read the table.
+ */
+@Entity(tableName = ScanEvent.TABLE_NAME,
+        indices = {@Index({"timestamp", "type", "payload_id"}), @Index("payload_id")})
+public class ScanEvent {
+    public static final String TABLE_NAME = "scan_history";
+
+    @PrimaryKey(autoGenerate = true)
+    public int id;
+    public int type;
+    public long timestamp;
+    @ColumnInfo(name = "payload_id")
+    public long payloadId;
+
+    public ScanEvent(int type, long timestamp, long payloadId) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.payloadId = payloadId;
+    }
+}
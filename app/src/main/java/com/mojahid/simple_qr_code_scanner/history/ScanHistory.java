@@ -1,20 +1,40 @@
 package com.mojahid.simple_qr_code_scanner.history;
 
-import androidx.room.Entity;
-import androidx.room.PrimaryKey;
+import androidx.room.Ignore;
 
-@Entity(tableName = "scan_history")
+import java.util.List;
+
+/**
+ * A scan joined with its payload text, as shown in the history list and written by {@link ScanHistoryStore}.
+ */
 public class ScanHistory {
-    @PrimaryKey(autoGenerate = true)
     public int id;
     public String data;
-    public String type;
+    public int type;
     public long timestamp;
 
-    public ScanHistory(String data, String type, long timestamp) {
+    // Set instead of data when the payload is stored deflated; see inflatePayloads.
+    public byte[] compressed;
+
+    // Filled in off the main thread when a page is loaded, so binding a row does not format dates.
+    @Ignore
+    public String displayTimestamp;
+
+    public ScanHistory(String data, int type, long timestamp) {
         this.data = data;
         this.type = type;
         this.timestamp = timestamp;
     }
-}
 
+    /**
+     * Restores the text of deflated payloads in a loaded page. Call it off the main thread.
+     */
+    public static void inflatePayloads(List<? extends ScanHistory> scans) {
+        for (ScanHistory scan : scans) {
+            if (scan.compressed != null) {
+                scan.data = ScanPayloadCodec.decompress(scan.compressed);
+                scan.compressed = null;
+            }
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.mojahid.simple_qr_code_scanner.history;
 
-import android.app.Activity;
 import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
+import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,51 +14,162 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
-import androidx.room.Room;
 
 import com.mojahid.simple_qr_code_scanner.R;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
+
+public class ScanHistoryAdapter extends PagingDataAdapter<ScanHistory, ScanHistoryAdapter.ViewHolder> {
+
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    private static final DiffUtil.ItemCallback<ScanHistory> DIFF_CALLBACK = new DiffUtil.ItemCallback<ScanHistory>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ScanHistory oldItem, @NonNull ScanHistory newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ScanHistory oldItem, @NonNull ScanHistory newItem) {
+            return oldItem.timestamp == newItem.timestamp
+                    && Objects.equals(oldItem.data, newItem.data)
+                    && oldItem.type == newItem.type;
+        }
+    };
+
+    public interface Callbacks {
+        void onDeleteRequested(List<Integer> ids);
+
+        void onSelectionChanged(int selectedCount);
+    }
+
+    interface RowListener {
+        void onRowClicked(int position);
+
+        void onRowLongClicked(int position);
+
+        void onDeleteClicked(int position);
+    }
 
-public class ScanHistoryAdapter extends RecyclerView.Adapter<ScanHistoryAdapter.ViewHolder> {
-    private List<ScanHistory> historyList;
     private Context context;
+    private final Callbacks callbacks;
+    // Selected rows are tracked by id, so a selection survives pages being reloaded or shifted.
+    private final SparseBooleanArray selectedIds = new SparseBooleanArray();
+    private int selectionAnchor = RecyclerView.NO_POSITION;
+
+    private final RowListener rowListener = new RowListener() {
+        @Override
+        public void onRowClicked(int position) {
+            ScanHistory scan = peek(position);
+            if (scan == null) {
+                return;
+            }
+            if (selectedIds.size() > 0) {
+                toggleSelection(position, scan);
+            } else {
+                copyToClipboard(scan.data);
+                openData(scan.data);
+            }
+        }
 
-    public ScanHistoryAdapter(List<ScanHistory> historyList, Context context) {
-        this.historyList = historyList;
+        @Override
+        public void onRowLongClicked(int position) {
+            if (selectedIds.size() == 0 || selectionAnchor == RecyclerView.NO_POSITION) {
+                ScanHistory scan = peek(position);
+                if (scan != null) {
+                    selectionAnchor = position;
+                    toggleSelection(position, scan);
+                }
+            } else {
+                selectRange(selectionAnchor, position);
+            }
+        }
+
+        @Override
+        public void onDeleteClicked(int position) {
+            ScanHistory scan = peek(position);
+            if (scan != null) {
+                callbacks.onDeleteRequested(Collections.singletonList(scan.id));
+            }
+        }
+    };
+
+    public ScanHistoryAdapter(Context context, Callbacks callbacks) {
+        super(DIFF_CALLBACK);
         this.context = context;
+        this.callbacks = callbacks;
+    }
+
+    public List<Integer> getSelectedIds() {
+        List<Integer> ids = new ArrayList<>(selectedIds.size());
+        for (int i = 0; i < selectedIds.size(); i++) {
+            ids.add(selectedIds.keyAt(i));
+        }
+        return ids;
+    }
+
+    public void clearSelection() {
+        selectedIds.clear();
+        selectionAnchor = RecyclerView.NO_POSITION;
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+        callbacks.onSelectionChanged(0);
+    }
+
+    private void toggleSelection(int position, ScanHistory scan) {
+        if (selectedIds.get(scan.id)) {
+            selectedIds.delete(scan.id);
+            if (selectedIds.size() == 0) {
+                selectionAnchor = RecyclerView.NO_POSITION;
+            }
+        } else {
+            selectedIds.put(scan.id, true);
+        }
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+        callbacks.onSelectionChanged(selectedIds.size());
+    }
+
+    private void selectRange(int from, int to) {
+        int start = Math.min(from, to);
+        int end = Math.max(from, to);
+        for (int position = start; position <= end; position++) {
+            ScanHistory scan = peek(position);
+            if (scan != null) {
+                selectedIds.put(scan.id, true);
+            }
+        }
+        notifyItemRangeChanged(start, end - start + 1, PAYLOAD_SELECTION);
+        callbacks.onSelectionChanged(selectedIds.size());
     }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_scan_history, parent, false);
-        return new ViewHolder(view);
+        return new ViewHolder(view, rowListener);
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        ScanHistory scan = historyList.get(position);
-
-        if (scan.type.equals("7")) {
-            holder.typeTextView.setText("Text Type");
+        ScanHistory scan = getItem(position);
+        if (scan != null) {
+            holder.bind(scan, selectedIds.get(scan.id));
         }
+    }
 
-        holder.dataTextView.setText(scan.data);
-        holder.timestampTextView.setText(new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault()).format(new Date(scan.timestamp)));
-
-        holder.itemView.setOnClickListener(v -> {
-            copyToClipboard(scan.data);
-            openData(scan.data);
-        });
-
-        holder.deleteButton.setOnClickListener(v -> {
-            deleteItem(position);
-        });
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        ScanHistory scan = peek(position);
+        holder.itemView.setActivated(scan != null && selectedIds.get(scan.id));
     }
 
     private void copyToClipboard(String text) {
@@ -78,34 +189,61 @@ public class ScanHistoryAdapter extends RecyclerView.Adapter<ScanHistoryAdapter.
         }
     }
 
-    private void deleteItem(int position) {
-        ScanHistory scan = historyList.get(position);
-        new Thread(() -> {
-            ScanDatabase db = Room.databaseBuilder(context, ScanDatabase.class, "scan_db").build();
-            db.scanHistoryDao().delete(scan);
-            ((Activity) context).runOnUiThread(() -> {
-                historyList.remove(position);
-                notifyItemRemoved(position);
-                notifyItemRangeChanged(position, historyList.size());
-            });
-        }).start();
-    }
-
-    @Override
-    public int getItemCount() {
-        return historyList.size();
-    }
-
-    public static class ViewHolder extends RecyclerView.ViewHolder {
+    // Click listeners are attached once here and resolve the row at click time, so binding allocates nothing.
+    public static class ViewHolder extends RecyclerView.ViewHolder implements ScanHistoryRowBinder.Row {
         TextView dataTextView, timestampTextView, typeTextView;
         ImageButton deleteButton;
 
-        public ViewHolder(@NonNull View itemView) {
+        ViewHolder(@NonNull View itemView, RowListener listener) {
             super(itemView);
             typeTextView = itemView.findViewById(R.id.typeTextView);
             dataTextView = itemView.findViewById(R.id.dataTextView);
             timestampTextView = itemView.findViewById(R.id.timestampTextView);
             deleteButton = itemView.findViewById(R.id.deleteButton);
+
+            itemView.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    listener.onRowClicked(position);
+                }
+            });
+            itemView.setOnLongClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    listener.onRowLongClicked(position);
+                }
+                return true;
+            });
+            deleteButton.setOnClickListener(v -> {
+                int position = getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    listener.onDeleteClicked(position);
+                }
+            });
+        }
+
+        void bind(ScanHistory scan, boolean selected) {
+            ScanHistoryRowBinder.bind(this, scan, selected);
+        }
+
+        @Override
+        public void setSelected(boolean selected) {
+            itemView.setActivated(selected);
+        }
+
+        @Override
+        public void setTypeLabel(String label) {
+            typeTextView.setText(label);
+        }
+
+        @Override
+        public void setData(String data) {
+            dataTextView.setText(data);
+        }
+
+        @Override
+        public void setTimestamp(String timestamp) {
+            timestampTextView.setText(timestamp);
         }
     }
 }
@@ -0,0 +1,203 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import android.database.Cursor;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.mojahid.simple_qr_code_scanner.sync.RoomOutbox;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Backs the scan history up to a {@link ScanSnapshot} and restores one over it. Cancel the returned
+ * future to stop either part way through.
+ *
+ * <p>A restore replaces the whole history in one transaction on the write thread, so it either lands
+ * completely or, if the file is damaged or the restore is cancelled, leaves the old history untouched.
+ * {@link ScanHistoryRestorer} writes the rows through statements compiled once.
+ */
+public class ScanHistoryBackup {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PAGE_ROWS = 5000;
+    private static final int PROGRESS_EVERY_ROWS = 10_000;
+
+    private final ScanDatabase database;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "scan-backup"));
+
+    public ScanHistoryBackup(ScanDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Writes every scan, in id order. Progress is in rows.
+     */
+    public Future<?> backup(OutputStream output, ScanHistoryExporter.Listener listener) {
+        return executor.submit(() -> runBackup(output, listener));
+    }
+
+    /**
+     * Replaces the history with the snapshot in {@code input}, which this closes. Progress is in KiB
+     * read; completion reports rows restored.
+     */
+    public Future<?> restore(FileInputStream input, ScanHistoryExporter.Listener listener) {
+        return ScanDatabase.getWriteExecutor().submit(() -> runRestore(input, listener));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void runBackup(OutputStream output, ScanHistoryExporter.Listener listener) {
+        ScanHistoryDao dao = database.scanHistoryDao();
+        int written = 0;
+        boolean cancelled = false;
+        try (ScanSnapshot.Writer writer = new ScanSnapshot.Writer(new BufferedOutputStream(output, BUFFER_SIZE))) {
+            int total = (int) dao.countScans();
+            listener.onProgress(0, total);
+            long lastId = 0;
+            int rows = PAGE_ROWS;
+            while (rows == PAGE_ROWS && !cancelled) {
+                rows = 0;
+                try (Cursor cursor = dao.getScansCursorAfter(lastId, PAGE_ROWS)) {
+                    int idColumn = cursor.getColumnIndexOrThrow("id");
+                    int dataColumn = cursor.getColumnIndexOrThrow("data");
+                    int compressedColumn = cursor.getColumnIndexOrThrow("compressed");
+                    int typeColumn = cursor.getColumnIndexOrThrow("type");
+                    int timestampColumn = cursor.getColumnIndexOrThrow("timestamp");
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getLong(idColumn);
+                        String data = cursor.isNull(compressedColumn)
+                                ? cursor.getString(dataColumn) : ScanPayloadCodec.decompress(cursor.getBlob(compressedColumn));
+                        writer.write(lastId, cursor.getInt(typeColumn), cursor.getLong(timestampColumn), data);
+                        rows++;
+                        written++;
+                        if (written % PROGRESS_EVERY_ROWS == 0) {
+                            listener.onProgress(written, total);
+                        }
+                    }
+                }
+                cancelled = Thread.currentThread().isInterrupted();
+            }
+        } catch (IOException | RuntimeException e) {
+            listener.onError(e);
+            return;
+        }
+
+        if (cancelled) {
+            listener.onCancelled();
+        } else {
+            listener.onComplete(written);
+        }
+    }
+
+    private void runRestore(FileInputStream input, ScanHistoryExporter.Listener listener) {
+        int restored;
+        try (FileChannel channel = input.getChannel()) {
+            ScanSnapshot.Reader reader = new ScanSnapshot.Reader(channel);
+            int totalKib = (int) (channel.size() / 1024);
+            restored = database.runInTransaction(() -> restoreAll(reader, totalKib, listener));
+        } catch (CancellationException | ClosedByInterruptException e) {
+            // FileChannel closes itself when its thread is interrupted; the transaction is already rolled back.
+            Thread.interrupted();
+            listener.onCancelled();
+            return;
+        } catch (IOException | RuntimeException e) {
+            listener.onError(e);
+            return;
+        }
+        listener.onComplete(restored);
+    }
+
+    private int restoreAll(ScanSnapshot.Reader reader, int totalKib, ScanHistoryExporter.Listener listener)
+            throws IOException {
+        database.scanHistoryDao().clearAll();
+        int restored;
+        long maxId;
+        try (RoomTarget target = new RoomTarget(database.getOpenHelper().getWritableDatabase())) {
+            ScanHistoryRestorer restorer = new ScanHistoryRestorer(target);
+            restored = restorer.restore(reader, totalKib, listener);
+            maxId = restorer.getMaxId();
+        }
+
+        // These scans were this history's before, and may already have been sent from the old device.
+        RoomOutbox outbox = RoomOutbox.open(database, RoomOutbox.COLLECTOR);
+        if (outbox.getAckedId() < maxId) {
+            outbox.acknowledge(maxId, 0);
+        }
+        return restored;
+    }
+
+    private static final class RoomTarget implements ScanHistoryRestorer.Target, Closeable {
+        private final SupportSQLiteDatabase db;
+        private final SupportSQLiteStatement insertEvent;
+        private final SupportSQLiteStatement insertPayload;
+        private final SupportSQLiteStatement indexPayload;
+
+        RoomTarget(SupportSQLiteDatabase db) {
+            this.db = db;
+            insertEvent = db.compileStatement(ScanHistoryRestorer.INSERT_EVENT);
+            insertPayload = db.compileStatement(ScanHistoryRestorer.INSERT_PAYLOAD);
+            indexPayload = db.compileStatement(ScanHistoryFts.INSERT);
+        }
+
+        @Override
+        public void execute(String sql) {
+            db.execSQL(sql);
+        }
+
+        @Override
+        public Long findPayloadId(byte[] hash) {
+            try (Cursor cursor = db.query(ScanHistoryRestorer.FIND_PAYLOAD, new Object[]{hash})) {
+                return cursor.moveToFirst() ? cursor.getLong(0) : null;
+            }
+        }
+
+        @Override
+        public long insertPayload(byte[] hash, String data, byte[] compressed) {
+            insertPayload.bindBlob(1, hash);
+            if (compressed == null) {
+                insertPayload.bindString(2, data);
+                insertPayload.bindNull(3);
+            } else {
+                insertPayload.bindNull(2);
+                insertPayload.bindBlob(3, compressed);
+            }
+            return insertPayload.executeInsert();
+        }
+
+        @Override
+        public void indexPayload(long payloadId, String data) {
+            indexPayload.bindLong(1, payloadId);
+            indexPayload.bindString(2, data);
+            indexPayload.executeInsert();
+        }
+
+        @Override
+        public void insertEvent(long id, int type, long timestamp, long payloadId) {
+            insertEvent.bindLong(1, id);
+            insertEvent.bindLong(2, type);
+            insertEvent.bindLong(3, timestamp);
+            insertEvent.bindLong(4, payloadId);
+            insertEvent.executeInsert();
+        }
+
+        @Override
+        public void close() throws IOException {
+            insertEvent.close();
+            insertPayload.close();
+            indexPayload.close();
+        }
+    }
+}
@@ -1,22 +1,148 @@
 package com.mojahid.simple_qr_code_scanner.history;
 
+import android.database.Cursor;
+
+import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
-import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.Collection;
 import java.util.List;
 
 @Dao
 public interface ScanHistoryDao {
+    String SELECT_SCANS = "SELECT scan_history.id, scan_history.type, scan_history.timestamp, "
+            + "scan_payload.data, scan_payload.compressed "
+            + "FROM scan_history JOIN scan_payload ON scan_payload.id = scan_history.payload_id ";
+
+    // The three steps of deleteByIds, in order.
+    String RELEASE_PAYLOADS = "UPDATE scan_payload SET ref_count = ref_count - (SELECT COUNT(*) FROM scan_history "
+            + "WHERE scan_history.payload_id = scan_payload.id AND scan_history.id IN (:ids)) "
+            + "WHERE id IN (SELECT payload_id FROM scan_history WHERE id IN (:ids))";
+    String DELETE_RELEASED_PAYLOADS = "DELETE FROM scan_payload WHERE ref_count <= 0 "
+            + "AND id IN (SELECT payload_id FROM scan_history WHERE id IN (:ids))";
+    String DELETE_EVENTS = "DELETE FROM scan_history WHERE id IN (:ids)";
+
     @Insert
-    void insert(ScanHistory scanHistory);
+    long[] insertEvents(List<ScanEvent> events);
 
-    @Delete
-    void delete(ScanHistory scanHistory);
+    @Insert
+    long insertPayload(ScanPayload payload);
+
+    @Query("SELECT id FROM scan_payload WHERE hash = :hash")
+    Long findPayloadId(byte[] hash);
 
-    @Query("SELECT * FROM scan_history ORDER BY timestamp DESC")
+    @Query("UPDATE scan_payload SET ref_count = ref_count + :count WHERE id = :id")
+    void addPayloadRefs(long id, int count);
+
+    @Query(SELECT_SCANS + "ORDER BY scan_history.timestamp DESC")
     List<ScanHistory> getAllScans();
 
+    // The export reads newest first in pages keyed on (timestamp, id), for the same reason as below.
+    @Query(SELECT_SCANS + "WHERE scan_history.timestamp <= :timestamp "
+            + "AND (scan_history.timestamp < :timestamp OR scan_history.id < :id) "
+            + "ORDER BY scan_history.timestamp DESC, scan_history.id DESC LIMIT :limit")
+    Cursor getScansCursorOlderThan(long timestamp, int id, int limit);
+
+    // Read in id-keyed pages, so a backup of a million rows never re-steps a cursor from the start.
+    @Query(SELECT_SCANS + "WHERE scan_history.id > :afterId ORDER BY scan_history.id LIMIT :limit")
+    Cursor getScansCursorAfter(long afterId, int limit);
+
+    @Query(SELECT_SCANS + "ORDER BY scan_history.timestamp DESC, scan_history.id DESC LIMIT :limit")
+    List<ScanHistory> getFirstPage(int limit);
+
+    // Observable queries: Room re-runs them on its query executor whenever the invalidation tracker
+    // reports a commit to either table, and only while they have an active observer.
+    @Query(SELECT_SCANS + "ORDER BY scan_history.timestamp DESC, scan_history.id DESC LIMIT :limit")
+    LiveData<List<ScanHistory>> observeRecent(int limit);
+
+    @Query("SELECT COUNT(*) FROM scan_history")
+    LiveData<Integer> observeCount();
+
+    @Query(SELECT_SCANS + "WHERE scan_history.timestamp <= :timestamp "
+            + "AND (scan_history.timestamp < :timestamp OR scan_history.id <= :id) "
+            + "ORDER BY scan_history.timestamp DESC, scan_history.id DESC LIMIT :limit")
+    List<ScanHistory> getPageAtOrOlderThan(long timestamp, int id, int limit);
+
+    @Query(SELECT_SCANS + "WHERE scan_history.timestamp <= :timestamp "
+            + "AND (scan_history.timestamp < :timestamp OR scan_history.id < :id) "
+            + "ORDER BY scan_history.timestamp DESC, scan_history.id DESC LIMIT :limit")
+    List<ScanHistory> getPageOlderThan(long timestamp, int id, int limit);
+
+    @Query(SELECT_SCANS + "WHERE scan_history.timestamp >= :timestamp "
+            + "AND (scan_history.timestamp > :timestamp OR scan_history.id > :id) "
+            + "ORDER BY scan_history.timestamp ASC, scan_history.id ASC LIMIT :limit")
+    List<ScanHistory> getPageNewerThan(long timestamp, int id, int limit);
+
+    @Query(ScanStats.COUNT_BY_BUCKET_AND_TYPE)
+    List<ScanStats.TimeBucket> countByBucketAndType(long from, long to, long bucketMillis, long offsetMillis);
+
+    @Query(ScanStats.COUNT_BY_TYPE)
+    List<ScanStats.TypeCount> countByType(long from, long to);
+
+    @Query(ScanStats.TOP_PAYLOADS)
+    List<ScanStats.TopPayload> topPayloads(long from, long to, int limit);
+
+    // The full-text table is created outside Room, so the query cannot be checked at compile time.
+    @RawQuery(observedEntities = {ScanEvent.class, ScanPayload.class})
+    List<ScanHistoryFts.Hit> searchRaw(SupportSQLiteQuery query);
+
+    /**
+     * Runs one of the {@code ScanHistoryFts.SEARCH_*} queries from the given boundary row.
+     */
+    default List<ScanHistoryFts.Hit> search(String query, String match, String rank, long timestamp, int id, int limit) {
+        return searchRaw(new SimpleSQLiteQuery(query, new Object[]{match, rank, timestamp, id, limit}));
+    }
+
+    @Query(RELEASE_PAYLOADS)
+    void releasePayloads(List<Integer> ids);
+
+    @Query(DELETE_RELEASED_PAYLOADS)
+    void deleteReleasedPayloads(List<Integer> ids);
+
+    @Query(DELETE_EVENTS)
+    int deleteEvents(List<Integer> ids);
+
+    /**
+     * Deletes the given scans and every payload no other scan points to. {@code ids} appears twice
+     * in one statement, so keep it under half of SQLite's bound-variable limit.
+     */
+    @Transaction
+    default int deleteByIds(List<Integer> ids) {
+        releasePayloads(ids);
+        deleteReleasedPayloads(ids);
+        return deleteEvents(ids);
+    }
+
+    // Retention walks from the oldest end of the timestamp index, a chunk at a time.
+    @Query("SELECT id FROM scan_history WHERE type = :type AND timestamp < :before "
+            + "ORDER BY timestamp, id LIMIT :limit")
+    List<Integer> getIdsOfTypeBefore(int type, long before, int limit);
+
+    @Query("SELECT id FROM scan_history WHERE timestamp < :before AND type NOT IN (:exceptTypes) "
+            + "ORDER BY timestamp, id LIMIT :limit")
+    List<Integer> getIdsBefore(long before, Collection<Integer> exceptTypes, int limit);
+
+    @Query("SELECT id FROM scan_history ORDER BY timestamp, id LIMIT :limit")
+    List<Integer> getOldestIds(int limit);
+
+    @Query("SELECT COUNT(*) FROM scan_history")
+    long countScans();
+
     @Query("DELETE FROM scan_history")
-    void clearAll();
+    void deleteAllEvents();
+
+    @Query("DELETE FROM scan_payload")
+    void deleteAllPayloads();
+
+    @Transaction
+    default void clearAll() {
+        deleteAllEvents();
+        deleteAllPayloads();
+    }
 }
@@ -0,0 +1,94 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the most recent deletion back for an undo window before committing it.
+ * Rows waiting here are reported by {@link #isPending(int)} so the list can hide them right away;
+ * the commit itself is one transaction that deletes the rows and releases their payloads.
+ */
+public class ScanHistoryDeleteBuffer {
+
+    public static final long UNDO_WINDOW_MILLIS = 4000;
+
+    // Ids are bound twice per statement, which must stay below SQLite's default limit of 999 variables.
+    private static final int MAX_IDS_PER_STATEMENT = 400;
+
+    private final ScanDatabase database;
+    private final ScheduledExecutorService executor;
+    private final Runnable onPendingChanged;
+    private final Set<Integer> pendingIds = ConcurrentHashMap.newKeySet();
+
+    private List<Integer> batch;
+    private ScheduledFuture<?> scheduledCommit;
+
+    public ScanHistoryDeleteBuffer(ScanDatabase database, Runnable onPendingChanged) {
+        this.database = database;
+        this.executor = ScanDatabase.getWriteExecutor();
+        this.onPendingChanged = onPendingChanged;
+    }
+
+    public boolean isPending(int id) {
+        return pendingIds.contains(id);
+    }
+
+    /**
+     * Hides the given rows and schedules their deletion. A deletion that is still waiting is committed first,
+     * so only the latest one can be undone.
+     */
+    public synchronized void delete(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        commitNow();
+        batch = new ArrayList<>(ids);
+        pendingIds.addAll(batch);
+        List<Integer> scheduled = batch;
+        scheduledCommit = executor.schedule(() -> commit(scheduled), UNDO_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        onPendingChanged.run();
+    }
+
+    public synchronized void undo() {
+        if (batch == null) {
+            return;
+        }
+        scheduledCommit.cancel(false);
+        pendingIds.removeAll(batch);
+        batch = null;
+        scheduledCommit = null;
+        onPendingChanged.run();
+    }
+
+    public synchronized void commitNow() {
+        if (batch == null) {
+            return;
+        }
+        scheduledCommit.cancel(false);
+        List<Integer> committing = batch;
+        batch = null;
+        scheduledCommit = null;
+        executor.execute(() -> commit(committing));
+    }
+
+    private void commit(List<Integer> ids) {
+        synchronized (this) {
+            if (batch == ids) {
+                batch = null;
+                scheduledCommit = null;
+            }
+        }
+        ScanHistoryDao dao = database.scanHistoryDao();
+        database.runInTransaction(() -> {
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_STATEMENT) {
+                dao.deleteByIds(ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_STATEMENT)));
+            }
+        });
+        pendingIds.removeAll(ids);
+    }
+}
@@ -0,0 +1,97 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import android.database.Cursor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports scan history in the background, newest first, reading rows a page at a time and streaming
+ * them straight to the output. Cancel the returned future to stop an export part way through.
+ */
+public class ScanHistoryExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PAGE_ROWS = 5000;
+    private static final int PROGRESS_EVERY_ROWS = 1000;
+
+    /**
+     * Callbacks arrive on the export thread.
+     */
+    public interface Listener {
+        void onProgress(int written, int total);
+
+        void onComplete(int written);
+
+        void onCancelled();
+
+        void onError(Exception e);
+    }
+
+    private final ScanDatabase database;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "scan-export"));
+
+    public ScanHistoryExporter(ScanDatabase database) {
+        this.database = database;
+    }
+
+    public Future<?> export(ScanHistoryExportWriter.Format format, OutputStream output, Listener listener) {
+        return executor.submit(() -> run(format, output, listener));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ScanHistoryExportWriter.Format format, OutputStream output, Listener listener) {
+        ScanHistoryDao dao = database.scanHistoryDao();
+        int written = 0;
+        boolean cancelled = false;
+        try (ScanHistoryExportWriter writer = format.open(
+                new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            int total = (int) dao.countScans();
+            listener.onProgress(0, total);
+            long lastTimestamp = Long.MAX_VALUE;
+            int lastId = Integer.MAX_VALUE;
+            int rows = PAGE_ROWS;
+            while (rows == PAGE_ROWS && !cancelled) {
+                rows = 0;
+                try (Cursor cursor = dao.getScansCursorOlderThan(lastTimestamp, lastId, PAGE_ROWS)) {
+                    int idColumn = cursor.getColumnIndexOrThrow("id");
+                    int dataColumn = cursor.getColumnIndexOrThrow("data");
+                    int compressedColumn = cursor.getColumnIndexOrThrow("compressed");
+                    int typeColumn = cursor.getColumnIndexOrThrow("type");
+                    int timestampColumn = cursor.getColumnIndexOrThrow("timestamp");
+                    while (cursor.moveToNext()) {
+                        lastId = cursor.getInt(idColumn);
+                        lastTimestamp = cursor.getLong(timestampColumn);
+                        String data = cursor.isNull(compressedColumn)
+                                ? cursor.getString(dataColumn) : ScanPayloadCodec.decompress(cursor.getBlob(compressedColumn));
+                        writer.writeRow(data, cursor.getInt(typeColumn), lastTimestamp);
+                        rows++;
+                        written++;
+                        if (written % PROGRESS_EVERY_ROWS == 0) {
+                            listener.onProgress(written, total);
+                        }
+                    }
+                }
+                cancelled = Thread.currentThread().isInterrupted();
+            }
+        } catch (IOException | RuntimeException e) {
+            listener.onError(e);
+            return;
+        }
+
+        if (cancelled) {
+            listener.onCancelled();
+        } else {
+            listener.onComplete(written);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import com.google.mlkit.vision.barcode.common.Barcode;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Display strings for history rows. Type labels come from a fixed table indexed by the
+ * ML Kit value type, and timestamps are formatted with one formatter per thread.
+ */
+public final class ScanHistoryFormatter {
+
+    private static final String[] TYPE_LABELS = new String[Barcode.TYPE_DRIVER_LICENSE + 1];
+
+    static {
+        TYPE_LABELS[Barcode.TYPE_UNKNOWN] = "Unknown Type";
+        TYPE_LABELS[Barcode.TYPE_CONTACT_INFO] = "Contact Type";
+        TYPE_LABELS[Barcode.TYPE_EMAIL] = "Email Type";
+        TYPE_LABELS[Barcode.TYPE_ISBN] = "ISBN Type";
+        TYPE_LABELS[Barcode.TYPE_PHONE] = "Phone Type";
+        TYPE_LABELS[Barcode.TYPE_PRODUCT] = "Product Type";
+        TYPE_LABELS[Barcode.TYPE_SMS] = "SMS Type";
+        TYPE_LABELS[Barcode.TYPE_TEXT] = "Text Type";
+        TYPE_LABELS[Barcode.TYPE_URL] = "URL Type";
+        TYPE_LABELS[Barcode.TYPE_WIFI] = "WiFi Type";
+        TYPE_LABELS[Barcode.TYPE_GEO] = "Location Type";
+        TYPE_LABELS[Barcode.TYPE_CALENDAR_EVENT] = "Event Type";
+        TYPE_LABELS[Barcode.TYPE_DRIVER_LICENSE] = "Driver License Type";
+    }
+
+    private static final ThreadLocal<TimestampFormat> TIMESTAMP_FORMAT = new ThreadLocal<TimestampFormat>() {
+        @Override
+        protected TimestampFormat initialValue() {
+            return new TimestampFormat();
+        }
+    };
+
+    private ScanHistoryFormatter() {
+    }
+
+    public static String typeLabel(int type) {
+        if (type < 0 || type >= TYPE_LABELS.length) {
+            return TYPE_LABELS[Barcode.TYPE_UNKNOWN];
+        }
+        return TYPE_LABELS[type];
+    }
+
+    public static String formatTimestamp(long timestamp) {
+        return TIMESTAMP_FORMAT.get().format(timestamp);
+    }
+
+    public static void formatTimestamps(List<? extends ScanHistory> scans) {
+        TimestampFormat format = TIMESTAMP_FORMAT.get();
+        for (int i = 0; i < scans.size(); i++) {
+            ScanHistory scan = scans.get(i);
+            scan.displayTimestamp = format.format(scan.timestamp);
+        }
+    }
+
+    private static final class TimestampFormat {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
+        private final Date date = new Date();
+
+        String format(long timestamp) {
+            date.setTime(timestamp);
+            return dateFormat.format(date);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+/**
+ * Contentless FTS4 index over payload text, keyed by {@link ScanPayload#id}. It keeps no copy of the
+ * text, so large payloads that are stored deflated are still searchable without being stored twice.
+ *
+ * <p>Room does not manage this table: {@link ScanHistoryStore} adds an entry when it inserts a new payload.
+ * A contentless table cannot delete entries, so entries of deleted payloads stay behind and drop out
+ * of results through the join; payload ids are never reused, so they cannot match a newer payload.
+ * {@link RoomRetentionStore} rebuilds the table once enough of them have piled up.
+ */
+public final class ScanHistoryFts {
+    public static final String TABLE_NAME = "scan_payload_fts";
+
+    static final String CREATE_TABLE =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS `scan_payload_fts` USING FTS4(`data`, content=\"\")";
+
+    static final String INSERT = "INSERT INTO `scan_payload_fts` (`docid`, `data`) VALUES (?, ?)";
+
+    // FTS4 keeps one docsize row per entry, and every stored payload has an entry.
+    static final String COUNT_STALE = "SELECT (SELECT COUNT(*) FROM `scan_payload_fts_docsize`) "
+            + "- (SELECT COUNT(*) FROM `scan_payload`)";
+
+    // A rebuild fills a second table beside the live one, then swaps it in.
+    static final String DROP_REBUILD_TABLE = "DROP TABLE IF EXISTS `scan_payload_fts_rebuild`";
+    static final String CREATE_REBUILD_TABLE =
+            "CREATE VIRTUAL TABLE `scan_payload_fts_rebuild` USING FTS4(`data`, content=\"\")";
+    static final String INSERT_REBUILD = "INSERT INTO `scan_payload_fts_rebuild` (`docid`, `data`) VALUES (?, ?)";
+    static final String SELECT_PAYLOADS_AFTER =
+            "SELECT `id`, `data`, `compressed` FROM `scan_payload` WHERE `id` > ? ORDER BY `id` LIMIT ?";
+    static final String DROP_TABLE = "DROP TABLE `scan_payload_fts`";
+    static final String RENAME_REBUILD_TABLE = "ALTER TABLE `scan_payload_fts_rebuild` RENAME TO `scan_payload_fts`";
+
+    // Sorts above every rank, so a key with it starts from the best match.
+    public static final String FIRST_RANK = "G";
+
+    static final String SEARCH_AFTER = searchQuery("<", "<", "DESC");
+    static final String SEARCH_AT_OR_AFTER = searchQuery("<", "<=", "DESC");
+    static final String SEARCH_BEFORE = searchQuery(">", ">", "ASC");
+
+    /**
+     * A scan found by a search, with the rank it was found at so the next page can start after it.
+     */
+    public static class Hit extends ScanHistory {
+        public String rank;
+
+        public Hit(String data, int type, long timestamp) {
+            super(data, type, timestamp);
+        }
+    }
+
+    private ScanHistoryFts() {
+    }
+
+    // offsets() needs the text, so rows are ranked by matchinfo's hit count for the first term instead. It is a
+    // little-endian 32-bit value; reversing the bytes of its hex form makes a string that sorts numerically.
+    // OFFSET 0 keeps SQLite from flattening the hits query into its caller, so matchinfo and the rank are worked
+    // out once per matching payload rather than at every use. Only the (rank, timestamp, id) keys go through the
+    // sort, which keeps one page of them since a page starts after the key of its boundary row; payloads are
+    // joined to that page alone. Stale entries of deleted payloads match no scan and drop out of the join.
+    // Bound as ?1 the match, ?2 to ?4 the boundary rank, timestamp and id, and ?5 the page size.
+    private static String searchQuery(String compare, String compareId, String order) {
+        String orderBy = "rank " + order + ", scan_history.timestamp " + order + ", scan_history.id " + order;
+        return "SELECT scan_history.id, scan_history.type, scan_history.timestamp, "
+                + "scan_payload.data, scan_payload.compressed, page.rank "
+                + "FROM (SELECT scan_history.id AS id, hits.rank AS rank "
+                + "FROM (SELECT docid, substr(info, 7, 2) || substr(info, 5, 2) || substr(info, 3, 2) "
+                + "|| substr(info, 1, 2) AS rank FROM (SELECT docid, hex(matchinfo(scan_payload_fts, 'x')) AS info "
+                + "FROM scan_payload_fts WHERE scan_payload_fts MATCH ?1 LIMIT -1 OFFSET 0) LIMIT -1 OFFSET 0) AS hits "
+                + "JOIN scan_history ON scan_history.payload_id = hits.docid "
+                + "WHERE hits.rank " + compare + " ?2 OR (hits.rank = ?2 AND (scan_history.timestamp " + compare
+                + " ?3 OR (scan_history.timestamp = ?3 AND scan_history.id " + compareId + " ?4))) "
+                + "ORDER BY hits." + orderBy + " LIMIT ?5) AS page "
+                + "JOIN scan_history ON scan_history.id = page.id "
+                + "JOIN scan_payload ON scan_payload.id = scan_history.payload_id "
+                + "ORDER BY page." + orderBy;
+    }
+
+    /**
+     * Turns free text typed into the search box into an FTS prefix query, so "examp co" matches
+     * "https://example.com". Returns null when the text has nothing searchable.
+     */
+    public static String toMatchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                if (match.length() > 0) {
+                    match.append(' ');
+                }
+                match.append(token).append('*');
+                token.setLength(0);
+            }
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+}
@@ -0,0 +1,384 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+import android.provider.DocumentsContract;
+
+import com.mojahid.simple_qr_code_scanner.scanner.DecodedBarcode;
+import com.mojahid.simple_qr_code_scanner.scanner.Luminance;
+import com.mojahid.simple_qr_code_scanner.scanner.ZxingDecoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decodes barcodes from images and PDFs picked from storage and adds them to the history.
+ * Files are decoded on a pool with one thread per core. At most two files per thread are queued at once,
+ * so a folder of thousands of photos never piles up decoded bitmaps faster than they can be scanned.
+ * Images are downsampled on load to at most {@code MAX_EDGE} on their long side, and each bitmap is
+ * recycled as soon as its file is done. Every worker keeps its own decoder and small pixel buffers.
+ * Found codes go through a {@link ScanHistoryWriter} so they are inserted in large batches.
+ */
+public class ScanHistoryImporter {
+
+    private static final int MAX_EDGE = 2048;
+    private static final int STRIP_ROWS = 32;
+    // Workers keep their luminance buffer between files only up to this size; larger frames get a one-off buffer.
+    private static final int KEEP_PIXELS = 1024 * 1024;
+    private static final int INSERT_BATCH_SIZE = 200;
+    private static final long INSERT_DELAY_MILLIS = 1000;
+    private static final long PROGRESS_INTERVAL_MILLIS = 250;
+    private static final String MIME_PDF = "application/pdf";
+
+    public static final class Progress {
+        public final int processedFiles;
+        public final int totalFiles;
+        public final int images;
+        public final int codes;
+        public final int failedFiles;
+        public final double imagesPerSecond;
+
+        Progress(int processedFiles, int totalFiles, int images, int codes, int failedFiles, double imagesPerSecond) {
+            this.processedFiles = processedFiles;
+            this.totalFiles = totalFiles;
+            this.images = images;
+            this.codes = codes;
+            this.failedFiles = failedFiles;
+            this.imagesPerSecond = imagesPerSecond;
+        }
+    }
+
+    /**
+     * Callbacks arrive on background threads.
+     */
+    public interface Listener {
+        void onProgress(Progress progress);
+
+        void onComplete(Progress progress);
+
+        void onCancelled(Progress progress);
+
+        void onError(Exception e);
+    }
+
+    private final ContentResolver resolver;
+    private final ScanHistoryWriter writer;
+    private final int workerCount = Runtime.getRuntime().availableProcessors();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(r -> new Thread(r, "scan-import"));
+    private final ExecutorService workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "scan-import-" + count.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+    private final ThreadLocal<Worker> worker = ThreadLocal.withInitial(Worker::new);
+
+    public ScanHistoryImporter(ContentResolver resolver, ScanDatabase database) {
+        this.resolver = resolver;
+        ScanHistoryStore store = new ScanHistoryStore(database);
+        this.writer = new ScanHistoryWriter(store::insertAll, ScanDatabase.getWriteExecutor(),
+                INSERT_BATCH_SIZE, INSERT_DELAY_MILLIS);
+    }
+
+    public Future<?> importDocuments(List<Uri> uris, Listener listener) {
+        return dispatcher.submit(() -> run(uris, listener));
+    }
+
+    /**
+     * Imports every image and PDF under a tree picked with {@code ACTION_OPEN_DOCUMENT_TREE}, including subfolders.
+     */
+    public Future<?> importTree(Uri treeUri, Listener listener) {
+        return dispatcher.submit(() -> {
+            List<Uri> uris;
+            try {
+                uris = listTree(treeUri);
+            } catch (RuntimeException e) {
+                listener.onError(e);
+                return;
+            }
+            run(uris, listener);
+        });
+    }
+
+    /**
+     * Cancels the running import and stops both pools. Files a worker already started finish; the rest
+     * are dropped.
+     */
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        workers.shutdown();
+    }
+
+    private List<Uri> listTree(Uri treeUri) {
+        List<Uri> files = new ArrayList<>();
+        Deque<String> folders = new ArrayDeque<>();
+        folders.add(DocumentsContract.getTreeDocumentId(treeUri));
+        String[] projection = {DocumentsContract.Document.COLUMN_DOCUMENT_ID, DocumentsContract.Document.COLUMN_MIME_TYPE};
+        while (!folders.isEmpty()) {
+            Uri children = DocumentsContract.buildChildDocumentsUriUsingTree(treeUri, folders.poll());
+            try (Cursor cursor = resolver.query(children, projection, null, null, null)) {
+                if (cursor == null) {
+                    continue;
+                }
+                while (cursor.moveToNext()) {
+                    String id = cursor.getString(0);
+                    String mimeType = cursor.getString(1);
+                    if (DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType)) {
+                        folders.add(id);
+                    } else if (mimeType != null && (mimeType.startsWith("image/") || mimeType.equals(MIME_PDF))) {
+                        files.add(DocumentsContract.buildDocumentUriUsingTree(treeUri, id));
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    // Waits on the workers' futures rather than a count of free slots, so an interrupt always ends the wait:
+    // files not yet started are cancelled, and those already running stop at their next page.
+    private void run(List<Uri> uris, Listener listener) {
+        int maxQueued = workerCount * 2;
+        CompletionService<Void> completion = new ExecutorCompletionService<>(workers);
+        List<Future<Void>> submitted = new ArrayList<>(uris.size());
+        Counters counters = new Counters(uris.size(), listener);
+        int finished = 0;
+        boolean cancelled = false;
+        try {
+            for (Uri uri : uris) {
+                if (submitted.size() - finished >= maxQueued) {
+                    completion.take().get();
+                    finished++;
+                }
+                submitted.add(completion.submit(() -> {
+                    if (!counters.cancelled) {
+                        importFile(uri, counters);
+                    }
+                    return null;
+                }));
+            }
+            while (finished < submitted.size()) {
+                completion.take().get();
+                finished++;
+            }
+        } catch (InterruptedException | RejectedExecutionException e) {
+            cancelled = true;
+            counters.cancelled = true;
+            for (Future<Void> task : submitted) {
+                task.cancel(false);
+            }
+        } catch (ExecutionException e) {
+            listener.onError(e);
+            return;
+        }
+        try {
+            writer.flush().get();
+        } catch (ExecutionException e) {
+            listener.onError(e);
+            return;
+        } catch (InterruptedException e) {
+            cancelled = true;
+        }
+        if (cancelled) {
+            listener.onCancelled(counters.snapshot());
+        } else {
+            listener.onComplete(counters.snapshot());
+        }
+    }
+
+    private void importFile(Uri uri, Counters counters) {
+        Worker state = worker.get();
+        long now = System.currentTimeMillis();
+        try {
+            if (MIME_PDF.equals(resolver.getType(uri))) {
+                importPdf(uri, state, counters, now);
+            } else {
+                Bitmap bitmap = state.loadImage(uri);
+                if (bitmap == null) {
+                    counters.fileFailed();
+                    return;
+                }
+                try {
+                    save(state.decode(bitmap), now, counters);
+                } finally {
+                    bitmap.recycle();
+                }
+                counters.imageDone();
+            }
+            counters.fileDone();
+        } catch (IOException | RuntimeException e) {
+            counters.fileFailed();
+        }
+    }
+
+    // Pages render into one bitmap per document, reused while the page size stays the same.
+    private void importPdf(Uri uri, Worker state, Counters counters, long now) throws IOException {
+        Bitmap bitmap = null;
+        try (ParcelFileDescriptor descriptor = resolver.openFileDescriptor(uri, "r");
+             PdfRenderer renderer = new PdfRenderer(descriptor)) {
+            for (int i = 0; i < renderer.getPageCount() && !counters.cancelled; i++) {
+                try (PdfRenderer.Page page = renderer.openPage(i)) {
+                    bitmap = pageBitmap(bitmap, page.getWidth(), page.getHeight());
+                    page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_PRINT);
+                    save(state.decode(bitmap), now, counters);
+                    counters.imageDone();
+                }
+            }
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    // Renders pages at up to MAX_EDGE on their long side.
+    private static Bitmap pageBitmap(Bitmap reuse, int pageWidth, int pageHeight) {
+        float scale = (float) MAX_EDGE / Math.max(pageWidth, pageHeight);
+        int width = Math.max(1, Math.round(pageWidth * scale));
+        int height = Math.max(1, Math.round(pageHeight * scale));
+        if (reuse == null || reuse.getWidth() != width || reuse.getHeight() != height) {
+            if (reuse != null) {
+                reuse.recycle();
+            }
+            reuse = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+        reuse.eraseColor(Color.WHITE);
+        return reuse;
+    }
+
+    private void save(List<DecodedBarcode> barcodes, long now, Counters counters) {
+        for (DecodedBarcode barcode : barcodes) {
+            writer.enqueue(new ScanHistory(barcode.rawValue, barcode.valueType, now));
+        }
+        counters.codesFound(barcodes.size());
+    }
+
+    /**
+     * Per-thread decoder and buffers, reused for every file the thread handles.
+     */
+    private final class Worker {
+        private final ZxingDecoder decoder = new ZxingDecoder(ZxingDecoder.DEFAULT_FORMATS, true);
+        private final BitmapFactory.Options options = new BitmapFactory.Options();
+        private int[] strip = new int[0];
+        private byte[] luma = new byte[0];
+
+        Bitmap loadImage(Uri uri) throws IOException {
+            options.inJustDecodeBounds = true;
+            options.inSampleSize = 1;
+            try (InputStream input = resolver.openInputStream(uri)) {
+                BitmapFactory.decodeStream(input, null, options);
+            }
+            if (options.outWidth <= 0 || options.outHeight <= 0) {
+                return null;
+            }
+            int sampleSize = 1;
+            while (Math.max(options.outWidth, options.outHeight) / sampleSize > MAX_EDGE) {
+                sampleSize *= 2;
+            }
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            try (InputStream input = resolver.openInputStream(uri)) {
+                return BitmapFactory.decodeStream(input, null, options);
+            }
+        }
+
+        // Converts a strip of rows at a time, so no full-frame ARGB copy is ever held.
+        List<DecodedBarcode> decode(Bitmap bitmap) {
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            int count = width * height;
+            byte[] frame = luma;
+            if (frame.length < count) {
+                frame = new byte[count];
+                if (count <= KEEP_PIXELS) {
+                    luma = frame;
+                }
+            }
+            if (strip.length < width * STRIP_ROWS) {
+                strip = new int[width * STRIP_ROWS];
+            }
+            for (int y = 0; y < height; y += STRIP_ROWS) {
+                int rows = Math.min(STRIP_ROWS, height - y);
+                bitmap.getPixels(strip, 0, width, 0, y, width, rows);
+                Luminance.fromArgb(strip, width * rows, frame, y * width);
+            }
+            return decoder.decode(frame, width, height, 0);
+        }
+    }
+
+    private static final class Counters {
+        private final int totalFiles;
+        private final Listener listener;
+        private final long startedAt = SystemClock.elapsedRealtime();
+        private final AtomicInteger processedFiles = new AtomicInteger();
+        private final AtomicInteger failedFiles = new AtomicInteger();
+        private final AtomicInteger images = new AtomicInteger();
+        private final AtomicInteger codes = new AtomicInteger();
+        private long lastReportAt;
+        volatile boolean cancelled;
+
+        Counters(int totalFiles, Listener listener) {
+            this.totalFiles = totalFiles;
+            this.listener = listener;
+        }
+
+        void imageDone() {
+            images.incrementAndGet();
+        }
+
+        void codesFound(int count) {
+            codes.addAndGet(count);
+        }
+
+        void fileDone() {
+            processedFiles.incrementAndGet();
+            report();
+        }
+
+        void fileFailed() {
+            failedFiles.incrementAndGet();
+            fileDone();
+        }
+
+        Progress snapshot() {
+            long elapsed = Math.max(1, SystemClock.elapsedRealtime() - startedAt);
+            return new Progress(processedFiles.get(), totalFiles, images.get(), codes.get(), failedFiles.get(),
+                    images.get() * 1000.0 / elapsed);
+        }
+
+        private void report() {
+            long now = SystemClock.elapsedRealtime();
+            synchronized (this) {
+                if (now - lastReportAt < PROGRESS_INTERVAL_MILLIS) {
+                    return;
+                }
+                lastReportAt = now;
+            }
+            listener.onProgress(snapshot());
+        }
+    }
+}
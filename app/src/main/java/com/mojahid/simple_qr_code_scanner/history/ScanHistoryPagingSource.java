@@ -0,0 +1,113 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyset-paged source over {@code scan_history} joined with its payloads, newest first.
+ * Pages are addressed by the (timestamp, id) of their boundary row instead of an OFFSET,
+ * so loading a page deep in the history costs the same as loading the first one.
+ */
+public class ScanHistoryPagingSource extends ListenableFuturePagingSource<ScanHistoryPagingSource.PageKey, ScanHistory> {
+
+    public static final class PageKey {
+        static final int AT_OR_OLDER = 0;
+        static final int OLDER = 1;
+        static final int NEWER = 2;
+
+        final long timestamp;
+        final int id;
+        final int direction;
+
+        PageKey(long timestamp, int id, int direction) {
+            this.timestamp = timestamp;
+            this.id = id;
+            this.direction = direction;
+        }
+
+        static PageKey of(ScanHistory scan, int direction) {
+            return new PageKey(scan.timestamp, scan.id, direction);
+        }
+    }
+
+    private final ScanDatabase database;
+    private final ScanHistoryDao dao;
+    private final InvalidationTracker.Observer observer;
+
+    public ScanHistoryPagingSource(ScanDatabase database) {
+        this.database = database;
+        this.dao = database.scanHistoryDao();
+        this.observer = new InvalidationTracker.Observer(ScanEvent.TABLE_NAME, ScanPayload.TABLE_NAME) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        database.getInvalidationTracker().addObserver(observer);
+        registerInvalidatedCallback(() -> {
+            database.getInvalidationTracker().removeObserver(observer);
+            return null;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<PageKey, ScanHistory>> loadFuture(@NonNull LoadParams<PageKey> params) {
+        return Futures.submit(() -> load(params.getKey(), params.getLoadSize()), database.getQueryExecutor());
+    }
+
+    private LoadResult<PageKey, ScanHistory> load(@Nullable PageKey key, int loadSize) {
+        List<ScanHistory> items;
+        if (key == null) {
+            items = dao.getFirstPage(loadSize);
+        } else if (key.direction == PageKey.NEWER) {
+            items = dao.getPageNewerThan(key.timestamp, key.id, loadSize);
+            Collections.reverse(items);
+        } else if (key.direction == PageKey.OLDER) {
+            items = dao.getPageOlderThan(key.timestamp, key.id, loadSize);
+        } else {
+            items = dao.getPageAtOrOlderThan(key.timestamp, key.id, loadSize);
+        }
+
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+        ScanHistory.inflatePayloads(items);
+        ScanHistoryFormatter.formatTimestamps(items);
+
+        PageKey prevKey = null;
+        PageKey nextKey = null;
+        if (!items.isEmpty()) {
+            boolean prepending = key != null && key.direction == PageKey.NEWER;
+            if (key != null && (!prepending || items.size() >= loadSize)) {
+                prevKey = PageKey.of(items.get(0), PageKey.NEWER);
+            }
+            if (prepending || items.size() >= loadSize) {
+                nextKey = PageKey.of(items.get(items.size() - 1), PageKey.OLDER);
+            }
+        }
+        return new LoadResult.Page<>(items, prevKey, nextKey);
+    }
+
+    @Nullable
+    @Override
+    public PageKey getRefreshKey(@NonNull PagingState<PageKey, ScanHistory> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        int start = Math.max(0, anchorPosition - state.getConfig().initialLoadSize / 2);
+        ScanHistory scan = state.closestItemToPosition(start);
+        return scan == null ? null : PageKey.of(scan, PageKey.AT_OR_OLDER);
+    }
+}
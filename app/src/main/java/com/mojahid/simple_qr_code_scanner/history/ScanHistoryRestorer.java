@@ -0,0 +1,119 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * The restore loop of {@link ScanHistoryBackup}, written against {@link Target} rather than Room so the
+ * same loop runs over JDBC in tests. The caller clears the history and owns the transaction.
+ */
+final class ScanHistoryRestorer implements ScanSnapshot.Sink {
+
+    private static final int PAYLOAD_CACHE_SIZE = 10_000;
+
+    static final String[] DROP_INDEXES = {
+            "DROP INDEX IF EXISTS `index_scan_history_timestamp_type_payload_id`",
+            "DROP INDEX IF EXISTS `index_scan_history_payload_id`"
+    };
+    static final String[] CREATE_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS `index_scan_history_timestamp_type_payload_id` "
+                    + "ON `scan_history` (`timestamp`, `type`, `payload_id`)",
+            "CREATE INDEX IF NOT EXISTS `index_scan_history_payload_id` ON `scan_history` (`payload_id`)"
+    };
+    static final String INSERT_EVENT =
+            "INSERT INTO `scan_history` (`id`, `type`, `timestamp`, `payload_id`) VALUES (?, ?, ?, ?)";
+    static final String INSERT_PAYLOAD =
+            "INSERT INTO `scan_payload` (`hash`, `data`, `compressed`, `ref_count`) VALUES (?, ?, ?, 0)";
+    static final String FIND_PAYLOAD = "SELECT `id` FROM `scan_payload` WHERE `hash` = ?";
+    // Counted once at the end, through the rebuilt payload_id index, instead of one update per row.
+    static final String COUNT_REFS = "UPDATE `scan_payload` SET `ref_count` = "
+            + "(SELECT COUNT(*) FROM `scan_history` WHERE `scan_history`.`payload_id` = `scan_payload`.`id`)";
+
+    /**
+     * Runs the statements above. {@code compressed} is null when {@code data} is stored as is, and the
+     * other way round.
+     */
+    interface Target {
+        void execute(String sql) throws IOException;
+
+        Long findPayloadId(byte[] hash) throws IOException;
+
+        long insertPayload(byte[] hash, String data, byte[] compressed) throws IOException;
+
+        void indexPayload(long payloadId, String data) throws IOException;
+
+        void insertEvent(long id, int type, long timestamp, long payloadId) throws IOException;
+    }
+
+    private final Target target;
+    private final ScanPayloadCodec codec = new ScanPayloadCodec();
+    // Most histories rescan a small set of codes; those are resolved without hashing.
+    private final Map<String, Long> payloadIds = new LinkedHashMap<String, Long>(PAYLOAD_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > PAYLOAD_CACHE_SIZE;
+        }
+    };
+    private long maxId;
+
+    ScanHistoryRestorer(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * Writes every record of {@code reader} into an empty history and returns how many there were.
+     * The full-text table is recreated empty first. The scan_history indexes are dropped first and built again at the end, which is far cheaper than
+     * keeping them ordered row by row; the payload hash index stays, since texts are deduplicated through
+     * it. Progress is in KiB read. Throws {@link CancellationException} between blocks once the thread
+     * is interrupted.
+     */
+    int restore(ScanSnapshot.Reader reader, int totalKib, ScanHistoryExporter.Listener listener) throws IOException {
+        // Clearing the history leaves every entry of the old payloads in the full-text table.
+        target.execute(ScanHistoryFts.DROP_TABLE);
+        target.execute(ScanHistoryFts.CREATE_TABLE);
+        for (String sql : DROP_INDEXES) {
+            target.execute(sql);
+        }
+        listener.onProgress(0, totalKib);
+        int restored = 0;
+        int count;
+        while ((count = reader.readBlock(this)) >= 0) {
+            restored += count;
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            listener.onProgress((int) (reader.getBytesRead() / 1024), totalKib);
+        }
+        for (String sql : CREATE_INDEXES) {
+            target.execute(sql);
+        }
+        target.execute(COUNT_REFS);
+        return restored;
+    }
+
+    /**
+     * The highest scan id restored so far.
+     */
+    long getMaxId() {
+        return maxId;
+    }
+
+    @Override
+    public void onRecord(long id, int type, long timestamp, String data) throws IOException {
+        Long payloadId = payloadIds.get(data);
+        if (payloadId == null) {
+            byte[] hash = ScanPayloadCodec.hash(data);
+            payloadId = target.findPayloadId(hash);
+            if (payloadId == null) {
+                byte[] compressed = codec.compress(data);
+                payloadId = target.insertPayload(hash, compressed == null ? data : null, compressed);
+                target.indexPayload(payloadId, data);
+            }
+            payloadIds.put(data, payloadId);
+        }
+        target.insertEvent(id, type, timestamp, payloadId);
+        maxId = Math.max(maxId, id);
+    }
+}
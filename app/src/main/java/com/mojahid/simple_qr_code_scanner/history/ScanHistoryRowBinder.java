@@ -0,0 +1,32 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+/**
+ * Fills one history row. It writes to a {@link Row} rather than to views, so the bind path runs as is in
+ * plain JVM tests; on a device the row is a {@link ScanHistoryAdapter.ViewHolder}.
+ */
+final class ScanHistoryRowBinder {
+
+    interface Row {
+        void setSelected(boolean selected);
+
+        void setTypeLabel(String label);
+
+        void setData(String data);
+
+        void setTimestamp(String timestamp);
+    }
+
+    private ScanHistoryRowBinder() {
+    }
+
+    // Timestamps are formatted once per scan and kept on it, so rebinding a row allocates nothing.
+    static void bind(Row row, ScanHistory scan, boolean selected) {
+        row.setSelected(selected);
+        if (scan.displayTimestamp == null) {
+            scan.displayTimestamp = ScanHistoryFormatter.formatTimestamp(scan.timestamp);
+        }
+        row.setTypeLabel(ScanHistoryFormatter.typeLabel(scan.type));
+        row.setData(scan.data);
+        row.setTimestamp(scan.displayTimestamp);
+    }
+}
@@ -0,0 +1,121 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ranked full-text matches from {@code scan_payload_fts}, best match first, then newest first.
+ * Like {@link ScanHistoryPagingSource}, pages are addressed by the (rank, timestamp, id) of their boundary
+ * row instead of an OFFSET, so a term that matches most of the history stays as cheap to page through
+ * as a rare one.
+ */
+public class ScanHistorySearchPagingSource
+        extends ListenableFuturePagingSource<ScanHistorySearchPagingSource.SearchKey, ScanHistory> {
+
+    public static final class SearchKey {
+        static final int AT_OR_AFTER = 0;
+        static final int AFTER = 1;
+        static final int BEFORE = 2;
+
+        final String rank;
+        final long timestamp;
+        final int id;
+        final int direction;
+
+        SearchKey(String rank, long timestamp, int id, int direction) {
+            this.rank = rank;
+            this.timestamp = timestamp;
+            this.id = id;
+            this.direction = direction;
+        }
+
+        static SearchKey of(ScanHistory scan, int direction) {
+            return new SearchKey(((ScanHistoryFts.Hit) scan).rank, scan.timestamp, scan.id, direction);
+        }
+    }
+
+    private final ScanDatabase database;
+    private final ScanHistoryDao dao;
+    private final String match;
+    private final InvalidationTracker.Observer observer;
+
+    public ScanHistorySearchPagingSource(ScanDatabase database, String match) {
+        this.database = database;
+        this.dao = database.scanHistoryDao();
+        this.match = match;
+        this.observer = new InvalidationTracker.Observer(ScanEvent.TABLE_NAME, ScanPayload.TABLE_NAME) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        database.getInvalidationTracker().addObserver(observer);
+        registerInvalidatedCallback(() -> {
+            database.getInvalidationTracker().removeObserver(observer);
+            return null;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<SearchKey, ScanHistory>> loadFuture(@NonNull LoadParams<SearchKey> params) {
+        return Futures.submit(() -> load(params.getKey(), params.getLoadSize()), database.getQueryExecutor());
+    }
+
+    private LoadResult<SearchKey, ScanHistory> load(@Nullable SearchKey key, int loadSize) {
+        List<ScanHistoryFts.Hit> items;
+        if (key == null) {
+            items = dao.search(ScanHistoryFts.SEARCH_AFTER, match, ScanHistoryFts.FIRST_RANK,
+                    Long.MAX_VALUE, Integer.MAX_VALUE, loadSize);
+        } else if (key.direction == SearchKey.BEFORE) {
+            items = dao.search(ScanHistoryFts.SEARCH_BEFORE, match, key.rank, key.timestamp, key.id, loadSize);
+            Collections.reverse(items);
+        } else if (key.direction == SearchKey.AFTER) {
+            items = dao.search(ScanHistoryFts.SEARCH_AFTER, match, key.rank, key.timestamp, key.id, loadSize);
+        } else {
+            items = dao.search(ScanHistoryFts.SEARCH_AT_OR_AFTER, match, key.rank, key.timestamp, key.id, loadSize);
+        }
+
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+        ScanHistory.inflatePayloads(items);
+        ScanHistoryFormatter.formatTimestamps(items);
+
+        SearchKey prevKey = null;
+        SearchKey nextKey = null;
+        if (!items.isEmpty()) {
+            boolean prepending = key != null && key.direction == SearchKey.BEFORE;
+            if (key != null && (!prepending || items.size() >= loadSize)) {
+                prevKey = SearchKey.of(items.get(0), SearchKey.BEFORE);
+            }
+            if (prepending || items.size() >= loadSize) {
+                nextKey = SearchKey.of(items.get(items.size() - 1), SearchKey.AFTER);
+            }
+        }
+        return new LoadResult.Page<>(new ArrayList<>(items), prevKey, nextKey);
+    }
+
+    @Nullable
+    @Override
+    public SearchKey getRefreshKey(@NonNull PagingState<SearchKey, ScanHistory> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        int start = Math.max(0, anchorPosition - state.getConfig().initialLoadSize / 2);
+        ScanHistory scan = state.closestItemToPosition(start);
+        return scan == null ? null : SearchKey.of(scan, SearchKey.AT_OR_AFTER);
+    }
+}
@@ -0,0 +1,67 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes scans into the split schema: each distinct text becomes one {@link ScanPayload}, found again
+ * by its hash, and each scan one {@link ScanEvent} pointing at it. A batch is one transaction, and a
+ * text repeated inside a batch is only looked up once. The scans are given their row ids before it commits.
+ */
+public class ScanHistoryStore {
+
+    private final ScanDatabase database;
+    private final ScanPayloadCodec codec;
+
+    public ScanHistoryStore(ScanDatabase database) {
+        this(database, new ScanPayloadCodec());
+    }
+
+    public ScanHistoryStore(ScanDatabase database, ScanPayloadCodec codec) {
+        this.database = database;
+        this.codec = codec;
+    }
+
+    public void insertAll(List<ScanHistory> scans) {
+        database.runInTransaction(() -> {
+            ScanHistoryDao dao = database.scanHistoryDao();
+            Map<String, Long> payloadIds = new HashMap<>();
+            Map<Long, Integer> addedRefs = new HashMap<>();
+            List<ScanEvent> events = new ArrayList<>(scans.size());
+            try (SupportSQLiteStatement indexPayload = database.compileStatement(ScanHistoryFts.INSERT)) {
+                for (ScanHistory scan : scans) {
+                    String data = scan.data == null ? "" : scan.data;
+                    Long payloadId = payloadIds.get(data);
+                    if (payloadId == null) {
+                        byte[] hash = ScanPayloadCodec.hash(data);
+                        payloadId = dao.findPayloadId(hash);
+                        if (payloadId == null) {
+                            byte[] compressed = codec.compress(data);
+                            payloadId = dao.insertPayload(new ScanPayload(hash, compressed == null ? data : null, compressed, 0));
+                            indexPayload.bindLong(1, payloadId);
+                            indexPayload.bindString(2, data);
+                            indexPayload.executeInsert();
+                        }
+                        payloadIds.put(data, payloadId);
+                    }
+                    addedRefs.merge(payloadId, 1, Integer::sum);
+                    events.add(new ScanEvent(scan.type, scan.timestamp, payloadId));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            for (Map.Entry<Long, Integer> refs : addedRefs.entrySet()) {
+                dao.addPayloadRefs(refs.getKey(), refs.getValue());
+            }
+            long[] ids = dao.insertEvents(events);
+            for (int i = 0; i < ids.length; i++) {
+                scans.get(i).id = (int) ids[i];
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queues scans and writes them in batches, one transaction per batch.
+ * A batch is flushed once it holds {@code maxBatchSize} scans or {@code maxDelayMillis}
+ * after its first scan was queued, whichever happens first. A burst larger than that is written
+ * {@code maxBatchSize} scans per transaction. A batch the sink fails to write goes back to the front
+ * of the queue and is tried again after {@code maxDelayMillis}; the failure reaches {@link #flush()}.
+ */
+public class ScanHistoryWriter {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 50;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 500;
+
+    public interface Sink {
+        void write(List<ScanHistory> batch);
+    }
+
+    private final Sink sink;
+    private final ScheduledExecutorService executor;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+
+    private final Object lock = new Object();
+    private List<ScanHistory> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public ScanHistoryWriter(Sink sink, ScheduledExecutorService executor, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.sink = sink;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public static ScanHistoryWriter create(ScanDatabase database) {
+        ScanHistoryStore store = new ScanHistoryStore(database);
+        return new ScanHistoryWriter(store::insertAll, ScanDatabase.getWriteExecutor(),
+                DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    public void enqueue(ScanHistory scan) {
+        synchronized (lock) {
+            pending.add(scan);
+            if (pending.size() >= maxBatchSize) {
+                cancelScheduledFlush();
+                executor.execute(this::writePending);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = executor.schedule(this::writePending, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes whatever is queued right now. The returned future completes once the batch is committed.
+     */
+    public Future<?> flush() {
+        synchronized (lock) {
+            cancelScheduledFlush();
+        }
+        return executor.submit(this::writePending);
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private void writePending() {
+        while (true) {
+            List<ScanHistory> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                List<ScanHistory> head = pending.subList(0, Math.min(pending.size(), maxBatchSize));
+                batch = new ArrayList<>(head);
+                head.clear();
+                cancelScheduledFlush();
+            }
+            try {
+                sink.write(batch);
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    pending.addAll(0, batch);
+                    if (scheduledFlush == null) {
+                        scheduledFlush = executor.schedule(this::writePending, maxDelayMillis, TimeUnit.MILLISECONDS);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+}
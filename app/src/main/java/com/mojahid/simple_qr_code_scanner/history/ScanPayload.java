@@ -0,0 +1,33 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Distinct scanned text, addressed by {@link ScanPayloadCodec#hash(String)}. Exactly one of
+ * {@code data} and {@code compressed} is set. {@code refCount} is the number of events pointing here;
+ * the row is deleted when it drops to zero. Ids are never reused, which the search index relies on.
+ */
+@Entity(tableName = ScanPayload.TABLE_NAME, indices = {@Index(value = "hash", unique = true)})
+public class ScanPayload {
+    public static final String TABLE_NAME = "scan_payload";
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    @NonNull
+    public byte[] hash;
+    public String data;
+    public byte[] compressed;
+    @ColumnInfo(name = "ref_count")
+    public int refCount;
+
+    public ScanPayload(@NonNull byte[] hash, String data, byte[] compressed, int refCount) {
+        this.hash = hash;
+        this.data = data;
+        this.compressed = compressed;
+        this.refCount = refCount;
+    }
+}
@@ -0,0 +1,67 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trims the scan history to the {@link RetentionSettings} once a day and compacts the database. Runs while the device is idle and the battery is not low, since the first run on an older
+ * database rewrites the whole file.
+ */
+public class ScanRetentionWorker extends Worker {
+
+    private static final String TAG = "ScanRetention";
+    private static final String WORK_NAME = "scan-retention";
+    private static final long PERIOD_HOURS = 24;
+
+    public static final String KEY_ROWS_RECLAIMED = "rows_reclaimed";
+    public static final String KEY_BYTES_RECOVERED = "bytes_recovered";
+
+    public ScanRetentionWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    public static void schedulePeriodic(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresDeviceIdle(true)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(ScanRetentionWorker.class,
+                PERIOD_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        RetentionPolicy policy = RetentionSettings.load(context);
+        try {
+            HistoryRetention.Report report = new HistoryRetention(
+                    new RoomRetentionStore(ScanDatabase.getInstance(context)), policy)
+                    .run(System.currentTimeMillis());
+            Log.i(TAG, report.toString());
+            return Result.success(new Data.Builder()
+                    .putInt(KEY_ROWS_RECLAIMED, report.getRowsReclaimed())
+                    .putLong(KEY_BYTES_RECOVERED, report.getBytesRecovered())
+                    .build());
+        } catch (RuntimeException e) {
+            // Chunks already deleted stay deleted; the next run picks up from there.
+            Log.w(TAG, "Retention run failed", e);
+            return Result.failure();
+        }
+    }
+}
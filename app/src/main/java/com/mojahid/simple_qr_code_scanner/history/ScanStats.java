@@ -0,0 +1,51 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+/**
+ * Aggregate rows for the statistics screen. All of them are computed by SQLite over a time range,
+ * reading only the {@code (timestamp, type, payload_id)} index, so no scan row is ever loaded.
+ */
+public final class ScanStats {
+
+    public static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    public static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    // Buckets are aligned in local time: offsetMillis is the zone's offset from UTC.
+    static final String COUNT_BY_BUCKET_AND_TYPE = "SELECT ((timestamp + :offsetMillis) / :bucketMillis) * :bucketMillis "
+            + "- :offsetMillis AS bucketStart, type, COUNT(*) AS count FROM scan_history "
+            + "WHERE timestamp >= :from AND timestamp < :to GROUP BY bucketStart, type ORDER BY bucketStart, type";
+
+    static final String COUNT_BY_TYPE = "SELECT type, COUNT(*) AS count FROM scan_history "
+            + "WHERE timestamp >= :from AND timestamp < :to GROUP BY type ORDER BY count DESC";
+
+    // Once ANALYZE has run, SQLite would rather walk the whole payload_id index than sort one week's rows.
+    static final String TOP_PAYLOADS = "SELECT scan_payload.id AS payloadId, scan_payload.data, scan_payload.compressed, "
+            + "top.count FROM (SELECT payload_id, COUNT(*) AS count "
+            + "FROM scan_history INDEXED BY index_scan_history_timestamp_type_payload_id "
+            + "WHERE timestamp >= :from AND timestamp < :to GROUP BY payload_id ORDER BY count DESC LIMIT :limit) AS top "
+            + "JOIN scan_payload ON scan_payload.id = top.payload_id ORDER BY top.count DESC";
+
+    public static class TimeBucket {
+        public long bucketStart;
+        public int type;
+        public int count;
+    }
+
+    public static class TypeCount {
+        public int type;
+        public int count;
+    }
+
+    public static class TopPayload {
+        public long payloadId;
+        public String data;
+        public byte[] compressed;
+        public int count;
+
+        public String text() {
+            return compressed == null ? data : ScanPayloadCodec.decompress(compressed);
+        }
+    }
+
+    private ScanStats() {
+    }
+}
@@ -0,0 +1,40 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+/**
+ * How much of each camera frame the analyzer looks at: the resolution requested from CameraX,
+ * the centred square region of interest handed to the detector, and how many frames to skip.
+ */
+public class AnalysisProfile {
+
+    public static final AnalysisProfile DEFAULT = new AnalysisProfile(1280, 720, 0.6f, 1);
+    public static final AnalysisProfile LOW_POWER = new AnalysisProfile(640, 480, 0.6f, 2);
+    public static final AnalysisProfile FULL_FRAME = new AnalysisProfile(1280, 720, 1f, 1);
+
+    public final int targetWidth;
+    public final int targetHeight;
+    // Side of the ROI square as a fraction of the shorter frame edge; 1 disables cropping.
+    public final float roiFraction;
+    // Analyse one frame out of every frameStride frames.
+    public final int frameStride;
+
+    public AnalysisProfile(int targetWidth, int targetHeight, float roiFraction, int frameStride) {
+        if (roiFraction <= 0f || roiFraction > 1f) {
+            throw new IllegalArgumentException("roiFraction must be in (0, 1]");
+        }
+        if (frameStride < 1) {
+            throw new IllegalArgumentException("frameStride must be at least 1");
+        }
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.roiFraction = roiFraction;
+        this.frameStride = frameStride;
+    }
+
+    public boolean isCropping() {
+        return roiFraction < 1f;
+    }
+
+    public boolean shouldAnalyze(long frameIndex) {
+        return frameIndex % frameStride == 0;
+    }
+}
@@ -0,0 +1,37 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import androidx.camera.core.ImageProxy;
+
+import java.io.Closeable;
+import java.util.List;
+
+/**
+ * A barcode detection engine fed from the camera analyzer. Implementations take ownership of the
+ * {@link ImageProxy} and close it once they are done with its buffers, and deliver results on the main thread.
+ */
+public interface BarcodeDecoder extends Closeable {
+
+    interface Callback {
+        void onSuccess(List<DecodedBarcode> barcodes);
+
+        void onFailure(Exception e);
+
+        /**
+         * Something that looks like a code was seen but could not be read.
+         */
+        default void onPartialDetection() {
+        }
+    }
+
+    void decode(ImageProxy imageProxy, Callback callback);
+
+    /**
+     * Asks for every code in the frame rather than the first one found. Engines that always
+     * report every code can ignore this.
+     */
+    default void setMultiCode(boolean multiCode) {
+    }
+
+    @Override
+    void close();
+}
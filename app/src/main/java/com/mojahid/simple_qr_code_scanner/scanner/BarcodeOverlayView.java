@@ -0,0 +1,92 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Draws the tracked codes over a {@code PreviewView} in its default FILL_CENTER scale type.
+ * Track bounds are relative to the analysed window, which sits centred in the upright frame.
+ */
+public class BarcodeOverlayView extends View {
+
+    private static final int MAX_LABEL_LENGTH = 24;
+
+    private final Paint boxPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelBackgroundPaint = new Paint();
+    private final RectF box = new RectF();
+    private List<BarcodeTracker.Track> tracks = Collections.emptyList();
+    private int frameWidth;
+    private int frameHeight;
+    private int windowLeft;
+    private int windowTop;
+
+    public BarcodeOverlayView(Context context) {
+        this(context, null);
+    }
+
+    public BarcodeOverlayView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        boxPaint.setStyle(Paint.Style.STROKE);
+        boxPaint.setStrokeWidth(2 * density);
+        boxPaint.setColor(Color.GREEN);
+        labelPaint.setColor(Color.WHITE);
+        labelPaint.setTextSize(11 * density);
+        labelBackgroundPaint.setColor(0x99000000);
+    }
+
+    /**
+     * @param frameWidth  upright width of the camera frame
+     * @param frameHeight upright height of the camera frame
+     * @param windowWidth upright width of the analysed window centred in it
+     * @param windowHeight upright height of the analysed window
+     */
+    public void setTracks(List<BarcodeTracker.Track> tracks, int frameWidth, int frameHeight,
+                          int windowWidth, int windowHeight) {
+        this.tracks = tracks;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.windowLeft = (frameWidth - windowWidth) / 2;
+        this.windowTop = (frameHeight - windowHeight) / 2;
+        invalidate();
+    }
+
+    public void clear() {
+        tracks = Collections.emptyList();
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (tracks.isEmpty() || frameWidth == 0 || frameHeight == 0) {
+            return;
+        }
+        float scale = Math.max((float) getWidth() / frameWidth, (float) getHeight() / frameHeight);
+        float offsetX = (getWidth() - frameWidth * scale) / 2;
+        float offsetY = (getHeight() - frameHeight * scale) / 2;
+        for (BarcodeTracker.Track track : tracks) {
+            box.set(offsetX + (windowLeft + track.left) * scale,
+                    offsetY + (windowTop + track.top) * scale,
+                    offsetX + (windowLeft + track.right) * scale,
+                    offsetY + (windowTop + track.bottom) * scale);
+            canvas.drawRect(box, boxPaint);
+
+            String label = track.rawValue.length() > MAX_LABEL_LENGTH
+                    ? track.rawValue.substring(0, MAX_LABEL_LENGTH) + "..." : track.rawValue;
+            float textWidth = labelPaint.measureText(label);
+            float textHeight = labelPaint.getTextSize();
+            canvas.drawRect(box.left, box.top - textHeight - 4, box.left + textWidth + 8, box.top, labelBackgroundPaint);
+            canvas.drawText(label, box.left + 4, box.top - 4, labelPaint);
+        }
+    }
+}
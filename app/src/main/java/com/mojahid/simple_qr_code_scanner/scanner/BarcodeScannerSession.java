@@ -0,0 +1,62 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
+import com.google.mlkit.vision.barcode.BarcodeScanning;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Owns a single ML Kit {@link BarcodeScanner} for the lifetime of a camera session.
+ * The client is created once and reused for every analysis frame, then released in {@link #close()}.
+ */
+public class BarcodeScannerSession implements Closeable {
+
+    private static final int WARM_UP_SIZE = 64;
+
+    private final BarcodeScanner scanner;
+    private volatile boolean closed = false;
+
+    public BarcodeScannerSession() {
+        BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
+                .setBarcodeFormats(
+                        Barcode.FORMAT_QR_CODE,
+                        Barcode.FORMAT_EAN_13,
+                        Barcode.FORMAT_EAN_8,
+                        Barcode.FORMAT_UPC_A,
+                        Barcode.FORMAT_UPC_E,
+                        Barcode.FORMAT_CODE_128)
+                .build();
+        scanner = BarcodeScanning.getClient(options);
+    }
+
+    public Task<List<Barcode>> process(InputImage image) {
+        if (closed) {
+            return Tasks.forResult(Collections.emptyList());
+        }
+        return scanner.process(image);
+    }
+
+    /**
+     * Runs one blank frame through the detector so its model is loaded before the first camera frame arrives.
+     */
+    public Task<List<Barcode>> warmUp() {
+        byte[] blank = new byte[WARM_UP_SIZE * WARM_UP_SIZE * 3 / 2];
+        return scanner.process(InputImage.fromByteArray(blank, WARM_UP_SIZE, WARM_UP_SIZE, 0, InputImage.IMAGE_FORMAT_NV21));
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scanner.close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the slow tiers of a {@link TieredDecoder} on a background thread, for frames where the fast pass
+ * saw a code it could not read. One frame escalates at a time: while it runs, later frames keep going
+ * through the fast pass and any that would escalate are counted as skipped instead of queueing up.
+ */
+public class DecodeEscalator {
+
+    private final TieredDecoder decoder;
+    private final ScanMetrics metrics;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean busy = new AtomicBoolean();
+    // Only touched by the thread that won busy, then by the escalation thread.
+    private byte[] luma = new byte[0];
+    private volatile boolean closed = false;
+
+    public DecodeEscalator(TieredDecoder decoder, ScanMetrics metrics) {
+        this.decoder = decoder;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Copies the frame's Y plane and escalates it, delivering the outcome to {@code callback} on the main
+     * thread. The window is the one the fast pass read; bounds are relative to it. Returns false, leaving
+     * the callback to the caller, if another frame is still escalating. The caller still closes the frame.
+     */
+    public boolean offer(ImageProxy imageProxy, int left, int top, int width, int height,
+                         BarcodeDecoder.Callback callback) {
+        if (closed) {
+            return false;
+        }
+        if (!busy.compareAndSet(false, true)) {
+            metrics.onEscalationSkipped();
+            return false;
+        }
+        ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
+        int rowStride = plane.getRowStride();
+        int frameWidth = imageProxy.getWidth();
+        int frameHeight = imageProxy.getHeight();
+        int rotation = imageProxy.getImageInfo().getRotationDegrees();
+        ByteBuffer buffer = plane.getBuffer();
+        int size = Math.min(buffer.remaining(), rowStride * frameHeight);
+        if (luma.length < rowStride * frameHeight) {
+            luma = new byte[rowStride * frameHeight];
+        }
+        int position = buffer.position();
+        buffer.get(luma, 0, size);
+        buffer.position(position);
+
+        try {
+            executor.execute(() -> escalate(rowStride, frameWidth, frameHeight, left, top, width, height, rotation, callback));
+        } catch (RejectedExecutionException e) {
+            // Closed from the camera thread while this frame was being copied.
+            busy.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    private void escalate(int rowStride, int frameWidth, int frameHeight, int left, int top, int width, int height,
+                          int rotation, BarcodeDecoder.Callback callback) {
+        List<DecodedBarcode> barcodes;
+        try {
+            barcodes = decoder.escalate(luma, rowStride, frameWidth, frameHeight, left, top, width, height, rotation);
+        } catch (RuntimeException e) {
+            mainHandler.post(() -> callback.onFailure(e));
+            return;
+        } finally {
+            busy.set(false);
+        }
+        if (closed) {
+            return;
+        }
+        mainHandler.post(() -> {
+            if (barcodes.isEmpty()) {
+                callback.onPartialDetection();
+            }
+            callback.onSuccess(barcodes);
+        });
+    }
+
+    public void close() {
+        closed = true;
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,160 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import android.graphics.Rect;
+import android.media.Image;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.camera.core.ImageProxy;
+
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes frames with ML Kit through a long-lived {@link BarcodeScannerSession}.
+ * When the profile crops, only the region of interest is handed to the detector.
+ * ML Kit is the fast tier here. It never reports a code it located but could not read, so when it finds
+ * nothing the window is checked for QR finder patterns; if there are some, the frame goes to the ZXing
+ * tiers of a {@link DecodeEscalator} before it is closed.
+ */
+public class MlKitBarcodeDecoder implements BarcodeDecoder {
+
+    private final BarcodeScannerSession session;
+    private final AnalysisProfile profile;
+    private final ScanMetrics metrics;
+    // Only touched on the analysis thread.
+    private final RoiCropper roiCropper = new RoiCropper();
+    private final TieredDecoder tieredDecoder;
+    private final DecodeEscalator escalator;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Filled on the analysis thread, read on the detector's once the frame's task completes.
+    private byte[] roi;
+    private byte[] yPlane = new byte[0];
+
+    public MlKitBarcodeDecoder(AnalysisProfile profile, ScanMetrics metrics) {
+        this(new BarcodeScannerSession(), profile, metrics);
+    }
+
+    /**
+     * Takes over a session that may already be warmed up; it is closed with this decoder.
+     */
+    public MlKitBarcodeDecoder(BarcodeScannerSession session, AnalysisProfile profile, ScanMetrics metrics) {
+        this.session = session;
+        this.profile = profile;
+        this.metrics = metrics;
+        tieredDecoder = new TieredDecoder(metrics);
+        escalator = new DecodeEscalator(tieredDecoder, metrics);
+    }
+
+    @Override
+    public void decode(ImageProxy imageProxy, Callback callback) {
+        long start = System.nanoTime();
+        InputImage image = toInputImage(imageProxy);
+        if (image == null) {
+            imageProxy.close();
+            return;
+        }
+        long converted = System.nanoTime();
+        metrics.record(ScanMetrics.Stage.CONVERSION, converted - start);
+        boolean cropping = profile.isCropping();
+        int left = cropping ? roiCropper.getLeft() : 0;
+        int top = cropping ? roiCropper.getTop() : 0;
+        int width = cropping ? roiCropper.getWidth() : imageProxy.getWidth();
+        int height = cropping ? roiCropper.getHeight() : imageProxy.getHeight();
+        // Handled on the detector's own thread, so the frame can still be copied for escalation before it
+        // is closed; only the callbacks hop to the main thread.
+        session.process(image).addOnCompleteListener(Runnable::run, task -> {
+            long detectNanos = System.nanoTime() - converted;
+            metrics.record(ScanMetrics.Stage.DETECT, detectNanos);
+            if (!task.isSuccessful()) {
+                imageProxy.close();
+                Exception e = task.getException();
+                if (e != null) {
+                    mainHandler.post(() -> callback.onFailure(e));
+                }
+                return;
+            }
+            List<DecodedBarcode> decoded = toDecodedBarcodes(task.getResult());
+            metrics.recordTier(ScanMetrics.Tier.FAST, !decoded.isEmpty(), detectNanos);
+            boolean partial = decoded.isEmpty() && hasFinderPatterns(imageProxy, cropping, left, top, width, height);
+            boolean escalated = partial && escalator.offer(imageProxy, left, top, width, height, callback);
+            imageProxy.close();
+            if (escalated) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (partial) {
+                    callback.onPartialDetection();
+                }
+                callback.onSuccess(decoded);
+            });
+        });
+    }
+
+    // A cropped frame's window is already packed at the start of the cropper's buffer, which is not reused
+    // until this frame is closed; otherwise the Y plane is copied so the probe can read it as an array.
+    private boolean hasFinderPatterns(ImageProxy imageProxy, boolean cropping, int left, int top, int width, int height) {
+        if (cropping) {
+            return tieredDecoder.hasFinderPatterns(roi, width, 0, 0, width, height);
+        }
+        ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
+        int rowStride = plane.getRowStride();
+        ByteBuffer buffer = plane.getBuffer();
+        int size = Math.min(buffer.remaining(), rowStride * imageProxy.getHeight());
+        if (yPlane.length < rowStride * imageProxy.getHeight()) {
+            yPlane = new byte[rowStride * imageProxy.getHeight()];
+        }
+        int position = buffer.position();
+        buffer.get(yPlane, 0, size);
+        buffer.position(position);
+        return tieredDecoder.hasFinderPatterns(yPlane, rowStride, left, top, width, height);
+    }
+
+    private InputImage toInputImage(ImageProxy imageProxy) {
+        int rotation = imageProxy.getImageInfo().getRotationDegrees();
+        if (profile.isCropping()) {
+            ImageProxy.PlaneProxy luma = imageProxy.getPlanes()[0];
+            roi = roiCropper.crop(luma.getBuffer(), luma.getRowStride(),
+                    imageProxy.getWidth(), imageProxy.getHeight(), profile.roiFraction);
+            return InputImage.fromByteArray(roi, roiCropper.getWidth(), roiCropper.getHeight(),
+                    rotation, InputImage.IMAGE_FORMAT_NV21);
+        }
+        @SuppressWarnings("UnsafeOptInUsageError")
+        Image mediaImage = imageProxy.getImage();
+        return mediaImage == null ? null : InputImage.fromMediaImage(mediaImage, rotation);
+    }
+
+    // ML Kit's format and value type codes are the ones DecodedBarcode uses, so they pass through unchanged.
+    // ML Kit only returns codes it has read. Binary payloads that are not valid UTF-8 come back without a
+    // raw value; their bytes are kept one char per byte, the way ZXing reads byte-mode data.
+    private static List<DecodedBarcode> toDecodedBarcodes(List<Barcode> barcodes) {
+        List<DecodedBarcode> decoded = new ArrayList<>(barcodes.size());
+        for (Barcode barcode : barcodes) {
+            String value = barcode.getRawValue();
+            if (value == null) {
+                byte[] bytes = barcode.getRawBytes();
+                if (bytes == null) {
+                    continue;
+                }
+                value = new String(bytes, StandardCharsets.ISO_8859_1);
+            }
+            Rect box = barcode.getBoundingBox();
+            decoded.add(box == null
+                    ? new DecodedBarcode(value, barcode.getFormat(), barcode.getValueType(), 0, 0, 0, 0)
+                    : new DecodedBarcode(value, barcode.getFormat(), barcode.getValueType(),
+                            box.left, box.top, box.right, box.bottom));
+        }
+        return decoded;
+    }
+
+    @Override
+    public void close() {
+        escalator.close();
+        session.close();
+    }
+}
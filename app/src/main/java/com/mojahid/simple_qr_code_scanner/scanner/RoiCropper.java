@@ -0,0 +1,64 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Copies the centred region of interest out of a frame's Y plane into a reusable NV21 buffer.
+ * Barcode detection only reads luminance, so the chroma half is filled with neutral grey once
+ * when the buffer is allocated and never touched again.
+ *
+ * <p>The buffer is reused for the next frame, so a caller must be done with it (the detector task
+ * has completed) before cropping again. CameraX guarantees this as long as the {@code ImageProxy}
+ * is only closed once detection finishes.
+ */
+public class RoiCropper {
+
+    private static final byte NEUTRAL_CHROMA = (byte) 128;
+
+    private byte[] buffer = new byte[0];
+    private int left;
+    private int top;
+    private int width;
+    private int height;
+
+    public byte[] crop(ByteBuffer luma, int rowStride, int frameWidth, int frameHeight, float roiFraction) {
+        // NV21 needs even dimensions and an even origin so chroma rows line up.
+        int side = (int) (Math.min(frameWidth, frameHeight) * roiFraction) & ~1;
+        width = side;
+        height = side;
+        left = ((frameWidth - side) / 2) & ~1;
+        top = ((frameHeight - side) / 2) & ~1;
+
+        int lumaSize = width * height;
+        int size = lumaSize + lumaSize / 2;
+        if (buffer.length != size) {
+            buffer = new byte[size];
+            Arrays.fill(buffer, lumaSize, size, NEUTRAL_CHROMA);
+        }
+
+        int position = luma.position();
+        for (int row = 0; row < height; row++) {
+            luma.position((top + row) * rowStride + left);
+            luma.get(buffer, row * width, width);
+        }
+        luma.position(position);
+        return buffer;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
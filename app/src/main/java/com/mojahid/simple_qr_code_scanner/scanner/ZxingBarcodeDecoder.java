@@ -0,0 +1,102 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decodes frames with ZXing on the analysis thread itself, so the next frame is not delivered until this one
+ * is done. The Y plane is copied into one reused array and the region of interest is read in place from it.
+ * Single codes go through the fast tier of a {@link TieredDecoder}; frames it cannot read but that look
+ * like a code are handed to a {@link DecodeEscalator}, which answers the callback in their place.
+ */
+public class ZxingBarcodeDecoder implements BarcodeDecoder {
+
+    private final ZxingDecoder decoder = new ZxingDecoder();
+    private final TieredDecoder tieredDecoder;
+    private final DecodeEscalator escalator;
+    private final AnalysisProfile profile;
+    private final ScanMetrics metrics;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private byte[] luma = new byte[0];
+    private volatile boolean closed = false;
+    private volatile boolean multiCode = false;
+
+    public ZxingBarcodeDecoder(AnalysisProfile profile, ScanMetrics metrics) {
+        this.profile = profile;
+        this.metrics = metrics;
+        tieredDecoder = new TieredDecoder(metrics);
+        escalator = new DecodeEscalator(tieredDecoder, metrics);
+    }
+
+    @Override
+    public void decode(ImageProxy imageProxy, Callback callback) {
+        List<DecodedBarcode> barcodes;
+        boolean partial;
+        try {
+            if (closed) {
+                return;
+            }
+            long start = System.nanoTime();
+            ImageProxy.PlaneProxy plane = imageProxy.getPlanes()[0];
+            int rowStride = plane.getRowStride();
+            int frameWidth = imageProxy.getWidth();
+            int frameHeight = imageProxy.getHeight();
+            ByteBuffer buffer = plane.getBuffer();
+            int size = Math.min(buffer.remaining(), rowStride * frameHeight);
+            if (luma.length < rowStride * frameHeight) {
+                luma = new byte[rowStride * frameHeight];
+            }
+            int position = buffer.position();
+            buffer.get(luma, 0, size);
+            buffer.position(position);
+
+            long converted = System.nanoTime();
+            metrics.record(ScanMetrics.Stage.CONVERSION, converted - start);
+
+            int side = (int) (Math.min(frameWidth, frameHeight) * profile.roiFraction);
+            int width = profile.isCropping() ? side : frameWidth;
+            int height = profile.isCropping() ? side : frameHeight;
+            int left = (frameWidth - width) / 2;
+            int top = (frameHeight - height) / 2;
+            int rotation = imageProxy.getImageInfo().getRotationDegrees();
+            if (multiCode) {
+                barcodes = decoder.decodeAll(luma, rowStride, frameHeight, left, top, width, height, rotation);
+                partial = decoder.wasPartial();
+            } else {
+                barcodes = tieredDecoder.decodeFast(luma, rowStride, left, top, width, height, rotation);
+                partial = tieredDecoder.shouldEscalate();
+            }
+            metrics.record(ScanMetrics.Stage.DETECT, System.nanoTime() - converted);
+            if (partial && escalator.offer(imageProxy, left, top, width, height, callback)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            mainHandler.post(() -> callback.onFailure(e));
+            return;
+        } finally {
+            imageProxy.close();
+        }
+        mainHandler.post(() -> {
+            if (partial) {
+                callback.onPartialDetection();
+            }
+            callback.onSuccess(barcodes);
+        });
+    }
+
+    @Override
+    public void setMultiCode(boolean multiCode) {
+        this.multiCode = multiCode;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        escalator.close();
+    }
+}
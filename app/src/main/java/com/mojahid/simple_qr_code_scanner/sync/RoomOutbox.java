@@ -0,0 +1,76 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanDatabase;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@link OutboxShipper.Outbox} for one collector, over the scan history and its {@link SyncCursor} row.
+ */
+public class RoomOutbox implements OutboxShipper.Outbox {
+
+    public static final String COLLECTOR = "collector";
+
+    private final SyncDao dao;
+    private final String name;
+    private final SyncCursor cursor;
+
+    private RoomOutbox(SyncDao dao, String name, SyncCursor cursor) {
+        this.dao = dao;
+        this.name = name;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Loads the cursor for {@code name}, creating it with a fresh device id the first time.
+     */
+    public static RoomOutbox open(ScanDatabase database, String name) {
+        SyncDao dao = database.syncDao();
+        SyncCursor cursor = dao.getCursor(name);
+        if (cursor == null) {
+            dao.insertCursor(new SyncCursor(name, UUID.randomUUID().toString()));
+            cursor = dao.getCursor(name);
+        }
+        return new RoomOutbox(dao, name, cursor);
+    }
+
+    public String getDeviceId() {
+        return cursor.deviceId;
+    }
+
+    @Override
+    public long getAckedId() {
+        return cursor.ackedId;
+    }
+
+    @Override
+    public long countAfter(long ackedId) {
+        return dao.countScansAfter(ackedId);
+    }
+
+    @Override
+    public long idAfter(long ackedId, long offset) {
+        return dao.scanIdAfter(ackedId, offset);
+    }
+
+    @Override
+    public List<SyncRecord> readAfter(long ackedId, int limit) {
+        List<ScanHistory> scans = dao.getScansAfter(ackedId, limit);
+        ScanHistory.inflatePayloads(scans);
+        List<SyncRecord> records = new ArrayList<>(scans.size());
+        for (ScanHistory scan : scans) {
+            records.add(new SyncRecord(scan.id, scan.data, scan.type, scan.timestamp));
+        }
+        return records;
+    }
+
+    @Override
+    public void acknowledge(long ackedId, long dropped) {
+        dao.acknowledge(name, ackedId, dropped, System.currentTimeMillis());
+        cursor.ackedId = ackedId;
+        cursor.dropped += dropped;
+    }
+}
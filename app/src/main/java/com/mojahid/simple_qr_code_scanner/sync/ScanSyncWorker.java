@@ -0,0 +1,115 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.mojahid.simple_qr_code_scanner.R;
+import com.mojahid.simple_qr_code_scanner.history.ScanDatabase;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships unsent scans to the collector configured in {@code sync_collector_url}; nothing is scheduled
+ * while it is empty. Runs only with a network connection. A failed run is retried by WorkManager with
+ * exponential backoff, and a run that used up its batch budget queues the next one straight after itself.
+ */
+public class ScanSyncWorker extends Worker {
+
+    private static final String TAG = "ScanSync";
+    private static final String WORK_NAME = "scan-sync";
+    private static final String PERIODIC_WORK_NAME = "scan-sync-periodic";
+    // Scans saved in a burst go out together instead of one request each.
+    private static final long COALESCE_DELAY_SECONDS = 60;
+    private static final long BACKOFF_SECONDS = 30;
+    private static final long PERIOD_HOURS = 6;
+
+    public ScanSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Asks for a sync shortly, after new scans were saved. Requests made while one is waiting are merged.
+     */
+    public static void requestSync(Context context) {
+        if (isConfigured(context)) {
+            WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.KEEP,
+                    oneTimeRequest(COALESCE_DELAY_SECONDS));
+        }
+    }
+
+    /**
+     * Makes sure a sync runs every few hours even if nothing asks for one, to drain what earlier runs left.
+     */
+    public static void schedulePeriodic(Context context) {
+        if (!isConfigured(context)) {
+            return;
+        }
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(ScanSyncWorker.class, PERIOD_HOURS, TimeUnit.HOURS)
+                .setConstraints(networkConstraints())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(PERIODIC_WORK_NAME,
+                ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        if (!isConfigured(context)) {
+            return Result.success();
+        }
+        try {
+            RoomOutbox outbox = RoomOutbox.open(ScanDatabase.getInstance(context), RoomOutbox.COLLECTOR);
+            String deviceId = outbox.getDeviceId();
+            CollectorClient client = new CollectorClient(new URL(context.getString(R.string.sync_collector_url)),
+                    deviceId, CollectorClient.DEFAULT_TIMEOUT_MILLIS);
+            OutboxShipper.Result result = new OutboxShipper(outbox, client, deviceId).run();
+            Log.i(TAG, result.outcome + ": sent " + result.rowsSent + " scans in " + result.batchesSent
+                    + " batches, dropped " + result.rowsDropped);
+            switch (result.outcome) {
+                case RETRY:
+                    return Result.retry();
+                case MORE_PENDING:
+                    WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME,
+                            ExistingWorkPolicy.APPEND_OR_REPLACE, oneTimeRequest(0));
+                    return Result.success();
+                default:
+                    return Result.success();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not build a batch", e);
+            return Result.retry();
+        }
+    }
+
+    private static boolean isConfigured(Context context) {
+        return !context.getString(R.string.sync_collector_url).isEmpty();
+    }
+
+    private static OneTimeWorkRequest oneTimeRequest(long delaySeconds) {
+        return new OneTimeWorkRequest.Builder(ScanSyncWorker.class)
+                .setConstraints(networkConstraints())
+                .setInitialDelay(delaySeconds, TimeUnit.SECONDS)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static Constraints networkConstraints() {
+        return new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * How far a collector has acknowledged the scan history: every scan with an id up to {@code ackedId}
+ * has been accepted, or given up on and counted in {@code dropped}. The device id is generated once and
+ * goes into every idempotency key.
+ */
+@Entity(tableName = SyncCursor.TABLE_NAME)
+public class SyncCursor {
+    public static final String TABLE_NAME = "sync_cursor";
+
+    @PrimaryKey
+    @NonNull
+    public String name;
+    @ColumnInfo(name = "acked_id")
+    public long ackedId;
+    public long dropped;
+    @ColumnInfo(name = "device_id")
+    @NonNull
+    public String deviceId;
+    @ColumnInfo(name = "last_success")
+    public long lastSuccess;
+
+    public SyncCursor(@NonNull String name, @NonNull String deviceId) {
+        this.name = name;
+        this.deviceId = deviceId;
+    }
+}
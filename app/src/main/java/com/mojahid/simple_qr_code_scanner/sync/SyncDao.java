@@ -0,0 +1,43 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import androidx.lifecycle.LiveData;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanHistory;
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryDao;
+
+import java.util.List;
+
+/**
+ * The outbox is the history table itself, read in id order past a {@link SyncCursor}; ids are
+ * AUTOINCREMENT, so a new scan always sorts after everything already acknowledged.
+ */
+@Dao
+public interface SyncDao {
+
+    @Query("SELECT * FROM sync_cursor WHERE name = :name")
+    SyncCursor getCursor(String name);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertCursor(SyncCursor cursor);
+
+    @Query("UPDATE sync_cursor SET acked_id = :ackedId, dropped = dropped + :dropped, last_success = :now "
+            + "WHERE name = :name")
+    void acknowledge(String name, long ackedId, long dropped, long now);
+
+    // Null until the first sync creates the cursor.
+    @Query("SELECT dropped FROM sync_cursor WHERE name = :name")
+    LiveData<Long> observeDropped(String name);
+
+    @Query("SELECT COUNT(*) FROM scan_history WHERE id > :afterId")
+    long countScansAfter(long afterId);
+
+    @Query("SELECT id FROM scan_history WHERE id > :afterId ORDER BY id LIMIT 1 OFFSET :offset")
+    long scanIdAfter(long afterId, long offset);
+
+    @Query(ScanHistoryDao.SELECT_SCANS + "WHERE scan_history.id > :afterId ORDER BY scan_history.id LIMIT :limit")
+    List<ScanHistory> getScansAfter(long afterId, int limit);
+}
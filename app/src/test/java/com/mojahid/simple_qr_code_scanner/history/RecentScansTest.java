@@ -0,0 +1,88 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecentScansTest {
+
+    private final List<List<ScanHistory>> updates = new ArrayList<>();
+    private final RecentScans recent = new RecentScans(3, updates::add);
+
+    @Test
+    public void newScanIsShownBeforeItIsWritten() {
+        recent.onStored(Collections.singletonList(stored(1, "old", 1000)));
+        recent.add(new ScanHistory("new", 7, 2000));
+
+        assertEquals(Arrays.asList("new", "old"), texts(recent.getScans()));
+        assertEquals(2, updates.size());
+    }
+
+    @Test
+    public void writtenScanIsNotShownTwice() {
+        ScanHistory scan = new ScanHistory("new", 7, 2000);
+        recent.add(scan);
+        scan.id = 2;
+
+        recent.onStored(Arrays.asList(stored(2, "new", 2000), stored(1, "old", 1000)));
+
+        assertEquals(Arrays.asList("new", "old"), texts(recent.getScans()));
+    }
+
+    @Test
+    public void rowsDeletedElsewhereDropOut() {
+        recent.onStored(Arrays.asList(stored(3, "c", 3000), stored(2, "b", 2000), stored(1, "a", 1000)));
+        recent.onStored(Collections.singletonList(stored(1, "a", 1000)));
+
+        assertEquals(Collections.singletonList("a"), texts(updates.get(1)));
+    }
+
+    @Test
+    public void windowIsCapped() {
+        for (int i = 0; i < 5; i++) {
+            recent.add(new ScanHistory("scan " + i, 7, i));
+        }
+        recent.onStored(Collections.singletonList(stored(9, "stored", 0)));
+
+        assertEquals(Arrays.asList("scan 4", "scan 3", "scan 2"), texts(recent.getScans()));
+    }
+
+    @Test
+    public void payloadsAreInflatedBeforeReachingTheMainThread() {
+        List<Runnable> background = new ArrayList<>();
+        List<Runnable> main = new ArrayList<>();
+        String payload = String.join(",", Collections.nCopies(50, "https://example.com/item/42"));
+        ScanHistory row = stored(1, null, 1000);
+        row.compressed = new ScanPayloadCodec().compress(payload);
+
+        recent.onLoaded(Collections.singletonList(row), background::add, main::add);
+        background.remove(0).run();
+
+        assertEquals(payload, row.data);
+        assertNull(row.compressed);
+        assertTrue(updates.isEmpty());
+
+        main.remove(0).run();
+
+        assertEquals(Collections.singletonList(payload), texts(updates.get(0)));
+    }
+
+    private static ScanHistory stored(int id, String data, long timestamp) {
+        ScanHistory scan = new ScanHistory(data, 7, timestamp);
+        scan.id = id;
+        return scan;
+    }
+
+    private static List<String> texts(List<ScanHistory> scans) {
+        List<String> texts = new ArrayList<>();
+        for (ScanHistory scan : scans) {
+            texts.add(scan.data);
+        }
+        return texts;
+    }
+}
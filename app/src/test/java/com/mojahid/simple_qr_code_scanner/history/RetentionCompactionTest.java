@@ -0,0 +1,161 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the compaction pragmas and search index rebuild statements {@link RoomRetentionStore} ships
+ * against a write-ahead-logged database file that was created without incremental vacuum, as every
+ * existing install was.
+ */
+public class RetentionCompactionTest {
+
+    private static final int ROWS = 20_000;
+    private static final int VACUUM_PAGES = 256;
+
+    private File file;
+    private Connection connection;
+
+    @Before
+    public void seed() throws IOException, SQLException {
+        file = File.createTempFile("scan_db", ".db");
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("CREATE TABLE `scan_payload` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`hash` BLOB NOT NULL, `data` TEXT, `compressed` BLOB, `ref_count` INTEGER NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO scan_payload (hash, data, ref_count) VALUES (?, ?, 1)")) {
+            for (int i = 0; i < ROWS; i++) {
+                String data = "https://shop.example.com/item/" + i + "?ref=" + Integer.toHexString(i * 31);
+                insert.setBytes(1, ScanPayloadCodec.hash(data));
+                insert.setString(2, data);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @After
+    public void close() throws SQLException {
+        connection.close();
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+        file.delete();
+    }
+
+    @Test
+    public void releasesDeletedPagesInSteps() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            assertNotEquals(RoomRetentionStore.AUTO_VACUUM_INCREMENTAL, queryLong(RoomRetentionStore.AUTO_VACUUM));
+            statement.execute(RoomRetentionStore.ENABLE_INCREMENTAL_VACUUM);
+            statement.execute("VACUUM");
+            assertEquals(RoomRetentionStore.AUTO_VACUUM_INCREMENTAL, queryLong(RoomRetentionStore.AUTO_VACUUM));
+
+            long pagesBefore = queryLong(RoomRetentionStore.PAGE_COUNT);
+            statement.execute("DELETE FROM scan_payload WHERE id % 10 != 0");
+            long free = queryLong(RoomRetentionStore.FREELIST_COUNT);
+            assertTrue(free > VACUUM_PAGES);
+
+            int steps = 0;
+            while (queryLong(RoomRetentionStore.FREELIST_COUNT) > 0) {
+                long left = queryLong(RoomRetentionStore.FREELIST_COUNT);
+                statement.executeUpdate(String.format(Locale.ROOT, RoomRetentionStore.INCREMENTAL_VACUUM, VACUUM_PAGES));
+                assertEquals(Math.max(0, left - VACUUM_PAGES), queryLong(RoomRetentionStore.FREELIST_COUNT));
+                steps++;
+            }
+            assertEquals((free + VACUUM_PAGES - 1) / VACUUM_PAGES, steps);
+            // Pointer-map pages that only tracked the freed pages go too.
+            assertTrue(queryLong(RoomRetentionStore.PAGE_COUNT) <= pagesBefore - free);
+
+            statement.execute(RoomRetentionStore.OPTIMIZE);
+            statement.execute(RoomRetentionStore.CHECKPOINT);
+            assertEquals(queryLong(RoomRetentionStore.PAGE_COUNT) * queryLong(RoomRetentionStore.PAGE_SIZE),
+                    file.length());
+            assertEquals(0, new File(file.getPath() + "-wal").length());
+        }
+    }
+
+    @Test
+    public void rebuildDropsEntriesOfDeletedPayloads() throws SQLException {
+        String longPayload = String.join("/", Collections.nCopies(40, "archived"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(ScanHistoryFts.CREATE_TABLE);
+            statement.execute("INSERT INTO scan_payload_fts (docid, data) SELECT id, data FROM scan_payload");
+            statement.execute("DELETE FROM scan_payload WHERE id % 10 != 0");
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO scan_payload (hash, compressed, ref_count) VALUES (?, ?, 1)")) {
+                insert.setBytes(1, ScanPayloadCodec.hash(longPayload));
+                insert.setBytes(2, new ScanPayloadCodec().compress(longPayload));
+                insert.executeUpdate();
+            }
+            assertEquals(ROWS - ROWS / 10 - 1, queryLong(ScanHistoryFts.COUNT_STALE));
+
+            statement.execute(ScanHistoryFts.DROP_REBUILD_TABLE);
+            statement.execute(ScanHistoryFts.CREATE_REBUILD_TABLE);
+            connection.setAutoCommit(false);
+            long lastId = 0;
+            while (true) {
+                long afterId = lastId;
+                lastId = indexPayloads(afterId, RoomRetentionStore.REBUILD_CHUNK_ROWS);
+                connection.commit();
+                if (lastId == afterId) {
+                    break;
+                }
+            }
+            indexPayloads(lastId, Integer.MAX_VALUE);
+            statement.execute(ScanHistoryFts.DROP_TABLE);
+            statement.execute(ScanHistoryFts.RENAME_REBUILD_TABLE);
+            connection.commit();
+            connection.setAutoCommit(true);
+
+            assertEquals(0, queryLong(ScanHistoryFts.COUNT_STALE));
+            assertEquals(ROWS / 10, queryLong("SELECT COUNT(*) FROM scan_payload_fts WHERE scan_payload_fts MATCH 'shop'"));
+            assertEquals(1, queryLong("SELECT COUNT(*) FROM scan_payload_fts WHERE scan_payload_fts MATCH 'archived'"));
+        }
+    }
+
+    // The same statements RoomRetentionStore runs for one chunk.
+    private long indexPayloads(long afterId, int limit) throws SQLException {
+        long lastId = afterId;
+        try (PreparedStatement select = connection.prepareStatement(ScanHistoryFts.SELECT_PAYLOADS_AFTER);
+             PreparedStatement insert = connection.prepareStatement(ScanHistoryFts.INSERT_REBUILD)) {
+            select.setLong(1, afterId);
+            select.setInt(2, limit);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    lastId = rows.getLong(1);
+                    String data = rows.getString(2);
+                    insert.setLong(1, lastId);
+                    insert.setString(2, data == null ? ScanPayloadCodec.decompress(rows.getBytes(3)) : data);
+                    insert.executeUpdate();
+                }
+            }
+        }
+        return lastId;
+    }
+
+    private long queryLong(String pragma) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(pragma)) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+}
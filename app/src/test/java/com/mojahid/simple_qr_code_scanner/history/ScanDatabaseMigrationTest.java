@@ -0,0 +1,211 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the statements of {@link ScanDatabase#MIGRATION_4_5} against a version 4 database, then the
+ * statements of {@link ScanHistoryDao#deleteByIds} against the result.
+ */
+public class ScanDatabaseMigrationTest {
+
+    private static final int ROWS = 3000;
+    private static final int DISTINCT = 100;
+    private static final String LONG_PAYLOAD = String.join(",", Collections.nCopies(40, "https://example.com/archive"));
+
+    private Connection connection;
+
+    @Before
+    public void seedVersion4() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE `scan_history` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`data` TEXT, `type` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL)");
+            statement.execute("CREATE INDEX `index_scan_history_timestamp` ON `scan_history` (`timestamp`)");
+            statement.execute(ScanDatabase.LEGACY_FTS_CREATE_TABLE);
+            for (String trigger : ScanDatabase.LEGACY_FTS_TRIGGERS) {
+                statement.execute(trigger);
+            }
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO scan_history (data, type, timestamp) VALUES (?, 8, ?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "https://shop.example.com/item/" + (i % DISTINCT));
+                insert.setLong(2, 1_700_000_000_000L + i);
+                insert.addBatch();
+            }
+            // A payload long enough to be stored deflated, and a scan without text.
+            insert.setString(1, LONG_PAYLOAD);
+            insert.setLong(2, 1_700_000_000_000L + ROWS);
+            insert.addBatch();
+            insert.setString(1, null);
+            insert.setLong(2, 1_700_000_000_000L + ROWS + 1);
+            insert.addBatch();
+            insert.executeBatch();
+        }
+        connection.commit();
+        migrate();
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @After
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void splitsScansIntoEventsAndDeduplicatedPayloads() throws SQLException {
+        assertEquals(ROWS + 2, queryLong("SELECT COUNT(*) FROM scan_history"));
+        assertEquals(DISTINCT + 2, queryLong("SELECT COUNT(*) FROM scan_payload"));
+        assertEquals(ROWS + 2, queryLong("SELECT SUM(ref_count) FROM scan_payload"));
+        assertEquals(ROWS / DISTINCT, queryLong("SELECT ref_count FROM scan_payload WHERE data = 'https://shop.example.com/item/7'"));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM scan_payload WHERE hash = X''"));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM sqlite_master WHERE name LIKE 'scan_history_fts%' "
+                + "OR name LIKE 'room_fts_content_sync_%' OR name = 'migration_scan_payload_data'"));
+
+        // Ids and types survive, and every event still reads back its own text.
+        assertEquals("https://shop.example.com/item/41", queryString("SELECT scan_payload.data FROM scan_history "
+                + "JOIN scan_payload ON scan_payload.id = scan_history.payload_id WHERE scan_history.id = 42"));
+        assertEquals(ROWS, queryLong("SELECT COUNT(*) FROM scan_history WHERE type = 8 AND id <= " + ROWS));
+        assertEquals(LONG_PAYLOAD, ScanPayloadCodec.decompress(queryBytes(
+                "SELECT compressed FROM scan_payload WHERE data IS NULL")));
+        assertEquals("", queryString("SELECT data FROM scan_payload WHERE ref_count = 1 AND data IS NOT NULL"));
+    }
+
+    @Test
+    public void searchFindsMigratedPayloads() throws SQLException {
+        assertEquals(ROWS / DISTINCT, search("item 42"));
+        assertEquals(ROWS, search("shop"));
+        assertEquals(1, search("archive"));
+    }
+
+    @Test
+    public void deletingTheLastReferenceRemovesThePayload() throws SQLException {
+        long payloadId = queryLong("SELECT id FROM scan_payload WHERE data = 'https://shop.example.com/item/7'");
+        List<Long> ids = queryLongs("SELECT id FROM scan_history WHERE payload_id = " + payloadId + " ORDER BY id");
+        long untouched = queryLong("SELECT ref_count FROM scan_payload WHERE data = 'https://shop.example.com/item/8'");
+
+        assertEquals(ids.size() - 1, deleteByIds(ids.subList(0, ids.size() - 1)));
+        assertEquals(1, queryLong("SELECT ref_count FROM scan_payload WHERE id = " + payloadId));
+
+        // The last reference goes together with a scan of another payload.
+        long other = queryLong("SELECT MIN(id) FROM scan_history WHERE payload_id != " + payloadId);
+        assertEquals(2, deleteByIds(Arrays.asList(ids.get(ids.size() - 1), other)));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM scan_payload WHERE id = " + payloadId));
+        assertEquals(DISTINCT + 1, queryLong("SELECT COUNT(*) FROM scan_payload"));
+        assertEquals(ROWS + 2 - ids.size() - 1, queryLong("SELECT SUM(ref_count) FROM scan_payload"));
+        assertEquals(untouched, queryLong("SELECT ref_count FROM scan_payload WHERE data = 'https://shop.example.com/item/8'"));
+    }
+
+    // The statements MIGRATION_4_5 runs, with its Java pass over the payloads.
+    private void migrate() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : ScanDatabase.MIGRATION_4_5_SPLIT) {
+                statement.execute(sql);
+            }
+        }
+        ScanPayloadCodec codec = new ScanPayloadCodec();
+        try (Statement statement = connection.createStatement();
+             PreparedStatement page = connection.prepareStatement(ScanDatabase.ENCODE_PAYLOADS_PAGE);
+             PreparedStatement update = connection.prepareStatement(ScanDatabase.ENCODE_PAYLOAD);
+             PreparedStatement index = connection.prepareStatement(ScanHistoryFts.INSERT)) {
+            long lastId = 0;
+            int rows;
+            do {
+                rows = 0;
+                page.setLong(1, lastId);
+                page.setInt(2, ScanDatabase.MIGRATION_PAGE_SIZE);
+                try (ResultSet result = page.executeQuery()) {
+                    while (result.next()) {
+                        lastId = result.getLong(1);
+                        String data = result.getString(2);
+                        byte[] compressed = codec.compress(data);
+                        update.setBytes(1, ScanPayloadCodec.hash(data));
+                        update.setString(2, compressed == null ? data : null);
+                        update.setBytes(3, compressed);
+                        update.setLong(4, lastId);
+                        update.executeUpdate();
+                        index.setLong(1, lastId);
+                        index.setString(2, data);
+                        index.executeUpdate();
+                        rows++;
+                    }
+                }
+            } while (rows == ScanDatabase.MIGRATION_PAGE_SIZE);
+            statement.execute(ScanDatabase.MIGRATION_4_5_INDEX_HASH);
+        }
+    }
+
+    // Room expands the :ids list; here the ids are spliced in as literals.
+    private int deleteByIds(List<Long> ids) throws SQLException {
+        String list = ids.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(ScanHistoryDao.RELEASE_PAYLOADS.replace(":ids", list));
+            statement.executeUpdate(ScanHistoryDao.DELETE_RELEASED_PAYLOADS.replace(":ids", list));
+            int deleted = statement.executeUpdate(ScanHistoryDao.DELETE_EVENTS.replace(":ids", list));
+            connection.commit();
+            return deleted;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private long search(String text) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*) FROM scan_history JOIN scan_payload_fts ON scan_payload_fts.docid = scan_history.payload_id "
+                        + "WHERE scan_payload_fts MATCH ?")) {
+            statement.setString(1, ScanHistoryFts.toMatchQuery(text));
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getLong(1) : 0;
+            }
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            return result.next() ? result.getLong(1) : 0;
+        }
+    }
+
+    private List<Long> queryLongs(String sql) throws SQLException {
+        List<Long> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            while (result.next()) {
+                values.add(result.getLong(1));
+            }
+        }
+        return values;
+    }
+
+    private String queryString(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            assertTrue(result.next());
+            return result.getString(1);
+        }
+    }
+
+    private byte[] queryBytes(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            assertTrue(result.next());
+            return result.getBytes(1);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Times {@link ScanHistoryRestorer} over JDBC on a one million row snapshot. Run with -Pbenchmarks.
+ * The JDBC driver costs more per statement than a compiled Android statement, so a device restores faster.
+ */
+public class ScanHistoryRestoreBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int PAYLOADS = 20_000;
+
+    private File snapshot;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws IOException, SQLException {
+        snapshot = File.createTempFile("scan_history", ".qrsb");
+        ScanHistoryRestoreTest.writeSnapshot(snapshot, ROWS, PAYLOADS);
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        ScanHistoryRestoreTest.createSchema(connection);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+        snapshot.delete();
+    }
+
+    @Test
+    public void restoreAMillionRows() throws IOException, SQLException {
+        long start = System.nanoTime();
+        int restored = ScanHistoryRestoreTest.restore(connection, snapshot);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Restored " + restored + " rows in " + millis + " ms");
+
+        assertEquals(ROWS, restored);
+    }
+}
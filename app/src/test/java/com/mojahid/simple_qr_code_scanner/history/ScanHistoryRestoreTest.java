@@ -0,0 +1,242 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link ScanHistoryRestorer}, the loop {@link ScanHistoryBackup} restores with, over JDBC against
+ * a 10k row snapshot.
+ */
+public class ScanHistoryRestoreTest {
+
+    private static final int ROWS = 10_000;
+    private static final int PAYLOADS = 200;
+    private static final long START = 1_700_006_400_000L;
+    private static final String LONG_PAYLOAD = String.join(",", Collections.nCopies(40, "https://example.com/archive"));
+
+    private File snapshot;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws IOException, SQLException {
+        snapshot = File.createTempFile("scan_history", ".qrsb");
+        writeSnapshot(snapshot, ROWS, PAYLOADS);
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        createSchema(connection);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        connection.close();
+        snapshot.delete();
+    }
+
+    @Test
+    public void restoresEveryScanOntoDeduplicatedPayloads() throws IOException, SQLException {
+        assertEquals(ROWS, restore(connection, snapshot));
+
+        assertEquals(ROWS, queryLong("SELECT COUNT(*) FROM scan_history"));
+        assertEquals(ROWS, queryLong("SELECT MAX(id) FROM scan_history"));
+        assertEquals(PAYLOADS + 1, queryLong("SELECT COUNT(*) FROM scan_payload"));
+        assertEquals(ROWS, queryLong("SELECT SUM(ref_count) FROM scan_payload"));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM scan_payload WHERE ref_count != "
+                + "(SELECT COUNT(*) FROM scan_history WHERE payload_id = scan_payload.id)"));
+        assertEquals(2, queryLong("SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' "
+                + "AND tbl_name = 'scan_history' AND name LIKE 'index_%'"));
+
+        // Long texts are stored deflated, and every payload is searchable.
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT compressed FROM scan_payload WHERE data IS NULL")) {
+            assertTrue(result.next());
+            assertEquals(LONG_PAYLOAD, ScanPayloadCodec.decompress(result.getBytes(1)));
+        }
+        assertEquals(PAYLOADS + 1, queryLong("SELECT COUNT(*) FROM scan_payload_fts WHERE scan_payload_fts MATCH 'https*'"));
+        assertEquals(1, queryLong("SELECT COUNT(*) FROM scan_payload_fts WHERE scan_payload_fts MATCH 'archive'"));
+    }
+
+    @Test
+    public void dropsFullTextEntriesOfTheClearedHistory() throws IOException, SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO scan_payload_fts (docid, data) VALUES (1, 'stale'), (9999, 'stale')");
+        }
+
+        restore(connection, snapshot);
+
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM scan_payload_fts WHERE scan_payload_fts MATCH 'stale'"));
+        assertEquals(PAYLOADS + 1, queryLong("SELECT COUNT(*) FROM scan_payload_fts_docsize"));
+    }
+
+    // One in a thousand scans is of a text long enough to be stored deflated.
+    static void writeSnapshot(File file, int rows, int payloads) throws IOException {
+        try (ScanSnapshot.Writer writer = new ScanSnapshot.Writer(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            for (int i = 0; i < rows; i++) {
+                String data = i % 1000 == 999 ? LONG_PAYLOAD : "https://shop.example.com/item/" + (i % payloads);
+                writer.write(i + 1, i % 5, START + i * 10_000L, data);
+            }
+        }
+    }
+
+    static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE `scan_history` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`type` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL, `payload_id` INTEGER NOT NULL)");
+            for (String sql : ScanHistoryRestorer.CREATE_INDEXES) {
+                statement.execute(sql);
+            }
+            statement.execute("CREATE TABLE `scan_payload` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`hash` BLOB NOT NULL, `data` TEXT, `compressed` BLOB, `ref_count` INTEGER NOT NULL)");
+            statement.execute("CREATE UNIQUE INDEX `index_scan_payload_hash` ON `scan_payload` (`hash`)");
+            statement.execute(ScanHistoryFts.CREATE_TABLE);
+        }
+    }
+
+    // Restores in one transaction, as ScanHistoryBackup does, and rolls back if the restore fails.
+    static int restore(Connection connection, File snapshot) throws IOException, SQLException {
+        connection.setAutoCommit(false);
+        try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ);
+             JdbcTarget target = new JdbcTarget(connection)) {
+            int restored = new ScanHistoryRestorer(target).restore(new ScanSnapshot.Reader(channel),
+                    (int) (channel.size() / 1024), new NoProgress());
+            connection.commit();
+            return restored;
+        } catch (IOException | SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static final class JdbcTarget implements ScanHistoryRestorer.Target, AutoCloseable {
+        private final Connection connection;
+        private final PreparedStatement findPayload;
+        private final PreparedStatement insertPayload;
+        private final PreparedStatement indexPayload;
+        private final PreparedStatement insertEvent;
+
+        JdbcTarget(Connection connection) throws SQLException {
+            this.connection = connection;
+            findPayload = connection.prepareStatement(ScanHistoryRestorer.FIND_PAYLOAD);
+            insertPayload = connection.prepareStatement(ScanHistoryRestorer.INSERT_PAYLOAD);
+            indexPayload = connection.prepareStatement(ScanHistoryFts.INSERT);
+            insertEvent = connection.prepareStatement(ScanHistoryRestorer.INSERT_EVENT);
+        }
+
+        @Override
+        public void execute(String sql) throws IOException {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public Long findPayloadId(byte[] hash) throws IOException {
+            try {
+                findPayload.setBytes(1, hash);
+                try (ResultSet result = findPayload.executeQuery()) {
+                    return result.next() ? result.getLong(1) : null;
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public long insertPayload(byte[] hash, String data, byte[] compressed) throws IOException {
+            try {
+                insertPayload.setBytes(1, hash);
+                insertPayload.setString(2, data);
+                if (compressed == null) {
+                    insertPayload.setNull(3, Types.BLOB);
+                } else {
+                    insertPayload.setBytes(3, compressed);
+                }
+                insertPayload.executeUpdate();
+                try (ResultSet keys = insertPayload.getGeneratedKeys()) {
+                    keys.next();
+                    return keys.getLong(1);
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void indexPayload(long payloadId, String data) throws IOException {
+            try {
+                indexPayload.setLong(1, payloadId);
+                indexPayload.setString(2, data);
+                indexPayload.executeUpdate();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void insertEvent(long id, int type, long timestamp, long payloadId) throws IOException {
+            try {
+                insertEvent.setLong(1, id);
+                insertEvent.setInt(2, type);
+                insertEvent.setLong(3, timestamp);
+                insertEvent.setLong(4, payloadId);
+                insertEvent.executeUpdate();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            findPayload.close();
+            insertPayload.close();
+            indexPayload.close();
+            insertEvent.close();
+        }
+    }
+
+    private static final class NoProgress implements ScanHistoryExporter.Listener {
+        @Override
+        public void onProgress(int written, int total) {
+        }
+
+        @Override
+        public void onComplete(int written) {
+        }
+
+        @Override
+        public void onCancelled() {
+        }
+
+        @Override
+        public void onError(Exception e) {
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Binding a history row must not allocate. The row here only keeps what it is given, so what is measured is
+ * the bind path the adapter's view holder runs.
+ */
+public class ScanHistoryRowBinderTest {
+
+    private static final int WARMUP_BINDS = 50_000;
+    private static final int MEASURED_BINDS = 100_000;
+
+    @Test
+    public void bindFillsTheRow() {
+        RecordingRow row = new RecordingRow();
+        ScanHistory scan = new ScanHistory("https://example.com/a", 7, 1_700_000_000_000L);
+
+        ScanHistoryRowBinder.bind(row, scan, true);
+
+        assertTrue(row.selected);
+        assertEquals("Text Type", row.typeLabel);
+        assertEquals("https://example.com/a", row.data);
+        assertEquals(ScanHistoryFormatter.formatTimestamp(scan.timestamp), row.timestamp);
+        assertSame(scan.displayTimestamp, row.timestamp);
+    }
+
+    @Test
+    public void bindDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        RecordingRow row = new RecordingRow();
+        ScanHistory[] scans = new ScanHistory[64];
+        for (int i = 0; i < scans.length; i++) {
+            scans[i] = new ScanHistory("https://example.com/" + i, i % 14, 1_700_000_000_000L + i * 60_000L);
+        }
+        // The first bind of each scan formats its timestamp; only rebinding has to be free.
+        for (int i = 0; i < WARMUP_BINDS; i++) {
+            ScanHistoryRowBinder.bind(row, scans[i % scans.length], (i & 1) == 0);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_BINDS; i++) {
+            ScanHistoryRowBinder.bind(row, scans[i % scans.length], (i & 1) == 0);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // Allow for the measurement call itself; a single object per bind would be megabytes here.
+        assertTrue("bind allocated " + allocated + " bytes over " + MEASURED_BINDS + " binds",
+                allocated < 4096);
+        assertEquals(scans[(MEASURED_BINDS - 1) % scans.length].data, row.data);
+    }
+
+    @Test
+    public void everyValueTypeHasALabel() {
+        for (int type = 0; type <= 12; type++) {
+            assertNotNull(ScanHistoryFormatter.typeLabel(type));
+        }
+        assertEquals("Text Type", ScanHistoryFormatter.typeLabel(7));
+        assertEquals("Unknown Type", ScanHistoryFormatter.typeLabel(99));
+        assertEquals("Unknown Type", ScanHistoryFormatter.typeLabel(-1));
+    }
+
+    private static final class RecordingRow implements ScanHistoryRowBinder.Row {
+        boolean selected;
+        String typeLabel;
+        String data;
+        String timestamp;
+
+        @Override
+        public void setSelected(boolean selected) {
+            this.selected = selected;
+        }
+
+        @Override
+        public void setTypeLabel(String label) {
+            typeLabel = label;
+        }
+
+        @Override
+        public void setData(String data) {
+            this.data = data;
+        }
+
+        @Override
+        public void setTimestamp(String timestamp) {
+            this.timestamp = timestamp;
+        }
+    }
+}
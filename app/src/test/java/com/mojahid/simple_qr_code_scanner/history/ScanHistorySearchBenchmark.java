@@ -0,0 +1,62 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Times the FTS4 search path against a LIKE scan on a 100k row history. Run with -Pbenchmarks.
+ */
+public class ScanHistorySearchBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int RUNS = 20;
+
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        ScanHistorySearchTest.seed(connection, ROWS);
+    }
+
+    @AfterClass
+    public static void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void rareTerms() throws SQLException {
+        run("pallet-%d", true);
+    }
+
+    // A prefix most payloads share: every match is ranked before the first page comes back.
+    @Test
+    public void commonPrefix() throws SQLException {
+        run("https", false);
+    }
+
+    private static void run(String term, boolean varyTerm) throws SQLException {
+        ScanHistorySearchTest.ftsSearch(connection, String.format(term, 4242), 50);
+        ScanHistorySearchTest.likeSearch(connection, String.format(term, 4242), 50);
+
+        long ftsNanos = 0;
+        long likeNanos = 0;
+        for (int run = 0; run < RUNS; run++) {
+            String text = varyTerm ? String.format(term, 1000 + run * 37) : term;
+            long start = System.nanoTime();
+            ScanHistorySearchTest.ftsSearch(connection, text, 50);
+            ftsNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ScanHistorySearchTest.likeSearch(connection, text, 50);
+            likeNanos += System.nanoTime() - start;
+        }
+        System.out.printf("History search for \"%s\" over %d rows: fts=%.3f ms/query, like=%.3f ms/query%n",
+                term, ROWS, ftsNanos / 1e6 / RUNS, likeNanos / 1e6 / RUNS);
+    }
+}
@@ -0,0 +1,245 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryFts.Hit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the full-text table and query SQL that the app ships against a 10k row history.
+ * Rows share payloads the way the store writes them.
+ */
+public class ScanHistorySearchTest {
+
+    private static final int ROWS = 10_000;
+    static final String LIKE_QUERY = ScanHistoryDao.SELECT_SCANS + "WHERE scan_payload.data LIKE ? "
+            + "ORDER BY scan_history.timestamp DESC LIMIT ? OFFSET ?";
+
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        seed(connection, ROWS);
+    }
+
+    @AfterClass
+    public static void close() throws SQLException {
+        connection.close();
+    }
+
+    static void seed(Connection connection, int rows) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS `scan_history` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`type` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL, `payload_id` INTEGER NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS `index_scan_history_timestamp_type_payload_id` "
+                    + "ON `scan_history` (`timestamp`, `type`, `payload_id`)");
+            statement.execute("CREATE INDEX IF NOT EXISTS `index_scan_history_payload_id` ON `scan_history` (`payload_id`)");
+            statement.execute("CREATE TABLE IF NOT EXISTS `scan_payload` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`hash` BLOB NOT NULL, `data` TEXT, `compressed` BLOB, `ref_count` INTEGER NOT NULL)");
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS `index_scan_payload_hash` ON `scan_payload` (`hash`)");
+            statement.execute(ScanHistoryFts.CREATE_TABLE);
+        }
+        connection.setAutoCommit(false);
+        Map<String, Long> payloadIds = new HashMap<>();
+        try (PreparedStatement insertPayload = connection.prepareStatement(
+                "INSERT INTO scan_payload (id, hash, data, ref_count) VALUES (?, ?, ?, 1)");
+             PreparedStatement index = connection.prepareStatement(ScanHistoryFts.INSERT);
+             PreparedStatement addRef = connection.prepareStatement(
+                     "UPDATE scan_payload SET ref_count = ref_count + 1 WHERE id = ?");
+             PreparedStatement event = connection.prepareStatement(
+                     "INSERT INTO scan_history (type, timestamp, payload_id) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                String data = payload(i);
+                Long payloadId = payloadIds.get(data);
+                if (payloadId == null) {
+                    payloadId = (long) payloadIds.size() + 1;
+                    payloadIds.put(data, payloadId);
+                    insertPayload.setLong(1, payloadId);
+                    insertPayload.setBytes(2, ScanPayloadCodec.hash(data));
+                    insertPayload.setString(3, data);
+                    insertPayload.executeUpdate();
+                    index.setLong(1, payloadId);
+                    index.setString(2, data);
+                    index.executeUpdate();
+                } else {
+                    addRef.setLong(1, payloadId);
+                    addRef.executeUpdate();
+                }
+                event.setInt(1, 8);
+                event.setLong(2, 1_700_000_000_000L + i);
+                event.setLong(3, payloadId);
+                event.addBatch();
+            }
+            event.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @Test
+    public void ftsFindsSameRowsAsLike() throws SQLException {
+        List<Integer> fts = ftsSearch(connection, "pallet-4242", 50);
+        List<Integer> like = likeSearch(connection, "pallet-4242", 50);
+
+        assertFalse(fts.isEmpty());
+        assertEquals(like.size(), fts.size());
+        assertTrue(fts.containsAll(like));
+    }
+
+    @Test
+    public void searchReadsMatchesFromTheFullTextIndex() throws SQLException {
+        String plan = plan(ScanHistoryFts.SEARCH_AFTER, "pallet* 4242*");
+
+        assertTrue(plan, plan.contains("VIRTUAL TABLE INDEX"));
+        assertTrue(plan, plan.contains("SEARCH scan_payload USING INTEGER PRIMARY KEY"));
+        assertFalse(plan, plan.contains("SCAN scan_history"));
+    }
+
+    @Test
+    public void keysetPagesMatchOneOrderedQuery() throws SQLException {
+        String match = ScanHistoryFts.toMatchQuery("https");
+        List<Hit> all = search(ScanHistoryFts.SEARCH_AFTER, match, null, ROWS);
+        assertEquals(ROWS / 4, all.size());
+
+        List<Hit> paged = new ArrayList<>();
+        List<Hit> page;
+        do {
+            page = search(ScanHistoryFts.SEARCH_AFTER, match, paged.isEmpty() ? null : paged.get(paged.size() - 1), 97);
+            paged.addAll(page);
+        } while (page.size() == 97);
+        assertEquals(ids(all), ids(paged));
+
+        // A refresh starts at its key, and a prepend returns the rows before it nearest first.
+        Hit middle = all.get(1000);
+        assertEquals(middle.id, search(ScanHistoryFts.SEARCH_AT_OR_AFTER, match, middle, 1).get(0).id);
+        List<Hit> before = search(ScanHistoryFts.SEARCH_BEFORE, match, middle, 50);
+        assertEquals(ids(all.subList(950, 1000)), reversed(ids(before)));
+    }
+
+    @Test
+    public void repeatedPayloadsAreStoredOnce() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet counts = statement.executeQuery("SELECT (SELECT COUNT(*) FROM scan_payload), "
+                     + "(SELECT SUM(ref_count) FROM scan_payload), (SELECT COUNT(*) FROM scan_history)")) {
+            assertTrue(counts.next());
+            assertTrue(counts.getInt(1) < ROWS);
+            assertEquals(ROWS, counts.getInt(2));
+            assertEquals(ROWS, counts.getInt(3));
+        }
+    }
+
+    @Test
+    public void matchQueryUsesPrefixTerms() {
+        assertEquals("https* example* com*", ScanHistoryFts.toMatchQuery("https://Example.com"));
+        assertEquals("pallet* 42*", ScanHistoryFts.toMatchQuery("  pallet \"42\" "));
+        assertNull(ScanHistoryFts.toMatchQuery(" -- "));
+        assertNull(ScanHistoryFts.toMatchQuery(null));
+    }
+
+    static List<Integer> ftsSearch(Connection connection, String text, int limit) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(ScanHistoryFts.SEARCH_AFTER)) {
+            bindSearch(query, ScanHistoryFts.toMatchQuery(text), null, limit);
+            return ids(query);
+        }
+    }
+
+    static List<Integer> likeSearch(Connection connection, String text, int limit) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(LIKE_QUERY)) {
+            query.setString(1, "%" + text + "%");
+            query.setInt(2, limit);
+            query.setInt(3, 0);
+            return ids(query);
+        }
+    }
+
+    private static List<Integer> ids(PreparedStatement query) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (ResultSet result = query.executeQuery()) {
+            while (result.next()) {
+                ids.add(result.getInt("id"));
+            }
+        }
+        return ids;
+    }
+
+    // The key of the row to start from, or the first page when after is null, bound the way the DAO does.
+    private static void bindSearch(PreparedStatement query, String match, Hit after, int limit) throws SQLException {
+        query.setString(1, match);
+        query.setString(2, after == null ? ScanHistoryFts.FIRST_RANK : after.rank);
+        query.setLong(3, after == null ? Long.MAX_VALUE : after.timestamp);
+        query.setInt(4, after == null ? Integer.MAX_VALUE : after.id);
+        query.setInt(5, limit);
+    }
+
+    private static List<Hit> search(String sql, String match, Hit after, int limit) throws SQLException {
+        List<Hit> hits = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            bindSearch(query, match, after, limit);
+            try (ResultSet result = query.executeQuery()) {
+                while (result.next()) {
+                    Hit hit = new Hit(result.getString("data"), result.getInt("type"), result.getLong("timestamp"));
+                    hit.id = result.getInt("id");
+                    hit.rank = result.getString("rank");
+                    hits.add(hit);
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static List<Integer> ids(List<Hit> hits) {
+        List<Integer> ids = new ArrayList<>();
+        for (Hit hit : hits) {
+            ids.add(hit.id);
+        }
+        return ids;
+    }
+
+    private static List<Integer> reversed(List<Integer> ids) {
+        List<Integer> copy = new ArrayList<>(ids);
+        Collections.reverse(copy);
+        return copy;
+    }
+
+    private static String plan(String sql, String match) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement query = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            bindSearch(query, match, null, 50);
+            try (ResultSet result = query.executeQuery()) {
+                while (result.next()) {
+                    plan.append(result.getString("detail")).append('\n');
+                }
+            }
+        }
+        return plan.toString();
+    }
+
+    private static String payload(int i) {
+        switch (i % 4) {
+            case 0:
+                return "https://shop.example.com/item/" + i;
+            case 1:
+                return "WIFI:S:warehouse-" + (i % 50) + ";T:WPA;P:secret" + i + ";;";
+            case 2:
+                return "pallet-" + (i % 10_000) + " bay " + (i % 97);
+            default:
+                return "4006381" + String.format("%06d", i % 5_000);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares single-row and batched {@link ScanHistoryWriter} throughput against a real SQLite file,
+ * so every commit pays the same journal and fsync cost as on device. Run with -Pbenchmarks.
+ */
+public class ScanHistoryWriterBenchmark {
+
+    private static final int ROWS = 500;
+
+    private ScheduledExecutorService executor;
+    private File dbFile;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        dbFile = File.createTempFile("scan_history", ".db");
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        dbFile.delete();
+        new File(dbFile.getAbsolutePath() + "-wal").delete();
+        new File(dbFile.getAbsolutePath() + "-shm").delete();
+    }
+
+    @Test
+    public void batchedWritesAgainstSingleRowTransactions() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("CREATE TABLE scan_history (id INTEGER PRIMARY KEY AUTOINCREMENT, data TEXT, type INTEGER NOT NULL, timestamp INTEGER NOT NULL)");
+            }
+            connection.setAutoCommit(false);
+            ScanHistoryWriter.Sink sink = batch -> insertInTransaction(connection, batch);
+
+            double singleRowsPerSecond = measureSingleRows(sink);
+            double batchedRowsPerSecond = measure(new ScanHistoryWriter(sink, executor, 100, 50));
+
+            System.out.printf("ScanHistoryWriter: single=%.0f rows/s, batched=%.0f rows/s%n",
+                    singleRowsPerSecond, batchedRowsPerSecond);
+            assertEquals(ROWS * 2, countRows(connection));
+        }
+    }
+
+    // The baseline: one transaction per scan, as inserting each scan as it is decoded would do.
+    private static double measureSingleRows(ScanHistoryWriter.Sink sink) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            sink.write(Collections.singletonList(new ScanHistory("https://example.com/item/" + i, 8, 1_700_000_000_000L + i)));
+        }
+        long elapsed = System.nanoTime() - start;
+        return ROWS / (elapsed / 1e9);
+    }
+
+    private double measure(ScanHistoryWriter writer) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROWS; i++) {
+            writer.enqueue(new ScanHistory("https://example.com/item/" + i, 8, 1_700_000_000_000L + i));
+        }
+        writer.flush().get();
+        long elapsed = System.nanoTime() - start;
+        return ROWS / (elapsed / 1e9);
+    }
+
+    private static void insertInTransaction(Connection connection, List<ScanHistory> batch) {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO scan_history (data, type, timestamp) VALUES (?, ?, ?)")) {
+            for (ScanHistory scan : batch) {
+                insert.setString(1, scan.data);
+                insert.setInt(2, scan.type);
+                insert.setLong(3, scan.timestamp);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static int countRows(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM scan_history")) {
+            result.next();
+            return result.getInt(1);
+        }
+    }
+}
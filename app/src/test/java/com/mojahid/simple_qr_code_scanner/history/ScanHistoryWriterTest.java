@@ -0,0 +1,134 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ScanHistoryWriterTest {
+
+    private ScheduledExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void flushesWhenBatchIsFull() throws Exception {
+        List<List<ScanHistory>> batches = new CopyOnWriteArrayList<>();
+        ScanHistoryWriter writer = new ScanHistoryWriter(batches::add, executor, 10, TimeUnit.HOURS.toMillis(1));
+
+        for (int i = 0; i < 10; i++) {
+            writer.enqueue(scan(i));
+        }
+        executor.submit(() -> { }).get();
+
+        assertEquals(1, batches.size());
+        assertEquals(10, batches.get(0).size());
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    public void flushesAfterDelay() throws Exception {
+        List<List<ScanHistory>> batches = new CopyOnWriteArrayList<>();
+        ScanHistoryWriter writer = new ScanHistoryWriter(batches::add, executor, 100, 50);
+
+        writer.enqueue(scan(1));
+        writer.enqueue(scan(2));
+        assertTrue(batches.isEmpty());
+
+        Thread.sleep(300);
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+    }
+
+    @Test
+    public void explicitFlushWritesPendingScans() throws Exception {
+        List<List<ScanHistory>> batches = new CopyOnWriteArrayList<>();
+        ScanHistoryWriter writer = new ScanHistoryWriter(batches::add, executor, 100, TimeUnit.HOURS.toMillis(1));
+
+        writer.enqueue(scan(1));
+        writer.flush().get();
+
+        assertEquals(1, batches.size());
+        writer.flush().get();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void scansQueuedWhileWriterIsBusyShareFullTransactions() throws Exception {
+        List<List<ScanHistory>> batches = new CopyOnWriteArrayList<>();
+        ScanHistoryWriter writer = new ScanHistoryWriter(batches::add, executor, 100, 50);
+        CountDownLatch busy = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        for (int i = 0; i < 500; i++) {
+            writer.enqueue(scan(i));
+        }
+        busy.countDown();
+        writer.flush().get();
+
+        assertEquals(5, batches.size());
+        for (List<ScanHistory> batch : batches) {
+            assertEquals(100, batch.size());
+        }
+        assertEquals("https://example.com/item/499", batches.get(4).get(99).data);
+    }
+
+    @Test
+    public void failedBatchIsKeptAndWrittenAgain() throws Exception {
+        List<List<ScanHistory>> batches = new CopyOnWriteArrayList<>();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        ScanHistoryWriter writer = new ScanHistoryWriter(batch -> {
+            if (failing.get()) {
+                throw new IllegalStateException("disk full");
+            }
+            batches.add(batch);
+        }, executor, 100, TimeUnit.HOURS.toMillis(1));
+
+        for (int i = 0; i < 3; i++) {
+            writer.enqueue(scan(i));
+        }
+        try {
+            writer.flush().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+        assertEquals(3, writer.getPendingCount());
+
+        failing.set(false);
+        writer.enqueue(scan(3));
+        writer.flush().get();
+
+        assertEquals(1, batches.size());
+        assertEquals(4, batches.get(0).size());
+        assertEquals("https://example.com/item/0", batches.get(0).get(0).data);
+    }
+
+    private static ScanHistory scan(int i) {
+        return new ScanHistory("https://example.com/item/" + i, 8, 1_700_000_000_000L + i);
+    }
+}
@@ -0,0 +1,89 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Times the statistics SQL over a 500k row history, a scan every 10 seconds for about 58 days.
+ * Run with -Pbenchmarks.
+ */
+public class ScanStatsBenchmark {
+
+    private static final int ROWS = 500_000;
+    private static final long STEP_MILLIS = 10_000;
+    private static final int RUNS = 10;
+
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        ScanStatsQueryTest.seed(connection, ROWS, STEP_MILLIS);
+    }
+
+    @AfterClass
+    public static void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void hourlyBucketsByTypeForOneDay() throws SQLException {
+        long from = ScanStatsQueryTest.START + 10 * ScanStats.DAY_MILLIS;
+        try (PreparedStatement query = ScanStatsQueryTest.prepare(connection, ScanStats.COUNT_BY_BUCKET_AND_TYPE,
+                "offsetMillis", "bucketMillis", "bucketMillis", "offsetMillis", "from", "to")) {
+            query.setLong(1, 0);
+            query.setLong(2, ScanStats.HOUR_MILLIS);
+            query.setLong(3, ScanStats.HOUR_MILLIS);
+            query.setLong(4, 0);
+            query.setLong(5, from);
+            query.setLong(6, from + ScanStats.DAY_MILLIS);
+            time("hourly buckets", query);
+        }
+    }
+
+    @Test
+    public void countsByTypeForAWeek() throws SQLException {
+        long from = ScanStatsQueryTest.START + 20 * ScanStats.DAY_MILLIS;
+        try (PreparedStatement query = ScanStatsQueryTest.prepare(connection, ScanStats.COUNT_BY_TYPE, "from", "to")) {
+            query.setLong(1, from);
+            query.setLong(2, from + 7 * ScanStats.DAY_MILLIS);
+            time("counts by type", query);
+        }
+    }
+
+    @Test
+    public void topPayloadsForAWeek() throws SQLException {
+        long from = ScanStatsQueryTest.START + 30 * ScanStats.DAY_MILLIS;
+        try (PreparedStatement query = ScanStatsQueryTest.prepare(connection, ScanStats.TOP_PAYLOADS,
+                "from", "to", "limit")) {
+            query.setLong(1, from);
+            query.setLong(2, from + 7 * ScanStats.DAY_MILLIS);
+            query.setInt(3, 50);
+            time("top payloads", query);
+        }
+    }
+
+    private static void time(String name, PreparedStatement query) throws SQLException {
+        drain(query);
+        long start = System.nanoTime();
+        for (int run = 0; run < RUNS; run++) {
+            drain(query);
+        }
+        System.out.printf("History stats over %d rows: %s=%.3f ms%n", ROWS, name, (System.nanoTime() - start) / 1e6 / RUNS);
+    }
+
+    private static void drain(PreparedStatement query) throws SQLException {
+        try (ResultSet result = query.executeQuery()) {
+            while (result.next()) {
+                result.getLong(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the statistics SQL that the app ships against a 100k row history and checks the answers and
+ * query plans. Scans arrive every minute for about 69 days.
+ */
+public class ScanStatsQueryTest {
+
+    private static final int ROWS = 100_000;
+    private static final int PAYLOADS = 20_000;
+    private static final int TYPES = 5;
+    static final long START = 1_700_006_400_000L;
+    private static final long STEP_MILLIS = 60_000;
+
+    private static Connection connection;
+
+    @BeforeClass
+    public static void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        seed(connection, ROWS, STEP_MILLIS);
+    }
+
+    @AfterClass
+    public static void close() throws SQLException {
+        connection.close();
+    }
+
+    static void seed(Connection connection, int rows, long stepMillis) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE `scan_history` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`type` INTEGER NOT NULL, `timestamp` INTEGER NOT NULL, `payload_id` INTEGER NOT NULL)");
+            statement.execute("CREATE INDEX `index_scan_history_timestamp_type_payload_id` "
+                    + "ON `scan_history` (`timestamp`, `type`, `payload_id`)");
+            statement.execute("CREATE INDEX `index_scan_history_payload_id` ON `scan_history` (`payload_id`)");
+            statement.execute("CREATE TABLE `scan_payload` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`hash` BLOB NOT NULL, `data` TEXT, `compressed` BLOB, `ref_count` INTEGER NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement payload = connection.prepareStatement(
+                "INSERT INTO scan_payload (id, hash, data, ref_count) VALUES (?, ?, ?, 0)")) {
+            for (int i = 1; i <= PAYLOADS; i++) {
+                String data = "https://shop.example.com/item/" + i;
+                payload.setInt(1, i);
+                payload.setBytes(2, ScanPayloadCodec.hash(data));
+                payload.setString(3, data);
+                payload.addBatch();
+            }
+            payload.executeBatch();
+        }
+        try (PreparedStatement event = connection.prepareStatement(
+                "INSERT INTO scan_history (type, timestamp, payload_id) VALUES (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                event.setInt(1, i % TYPES);
+                event.setLong(2, START + i * stepMillis);
+                // Payload 1 is scanned on every 100th row, the rest spread evenly.
+                event.setInt(3, i % 100 == 0 ? 1 : 2 + i % (PAYLOADS - 1));
+                event.addBatch();
+            }
+            event.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @Test
+    public void hourlyBucketsByTypeForOneDay() throws SQLException {
+        long from = START + 10 * ScanStats.DAY_MILLIS;
+        int buckets = 0;
+        int total = 0;
+        try (PreparedStatement query = prepare(connection, ScanStats.COUNT_BY_BUCKET_AND_TYPE,
+                "offsetMillis", "bucketMillis", "bucketMillis", "offsetMillis", "from", "to")) {
+            query.setLong(1, 0);
+            query.setLong(2, ScanStats.HOUR_MILLIS);
+            query.setLong(3, ScanStats.HOUR_MILLIS);
+            query.setLong(4, 0);
+            query.setLong(5, from);
+            query.setLong(6, from + ScanStats.DAY_MILLIS);
+            try (ResultSet result = query.executeQuery()) {
+                while (result.next()) {
+                    assertEquals(0, (result.getLong("bucketStart") - from) % ScanStats.HOUR_MILLIS);
+                    buckets++;
+                    total += result.getInt("count");
+                }
+            }
+        }
+
+        assertEquals(24 * TYPES, buckets);
+        assertEquals(ScanStats.DAY_MILLIS / STEP_MILLIS, total);
+    }
+
+    @Test
+    public void countsByTypeForAWeek() throws SQLException {
+        long from = START + 20 * ScanStats.DAY_MILLIS;
+        int types = 0;
+        int total = 0;
+        try (PreparedStatement query = prepare(connection, ScanStats.COUNT_BY_TYPE, "from", "to")) {
+            query.setLong(1, from);
+            query.setLong(2, from + 7 * ScanStats.DAY_MILLIS);
+            try (ResultSet result = query.executeQuery()) {
+                while (result.next()) {
+                    types++;
+                    total += result.getInt("count");
+                }
+            }
+        }
+
+        assertEquals(TYPES, types);
+        assertEquals(7 * ScanStats.DAY_MILLIS / STEP_MILLIS, total);
+    }
+
+    @Test
+    public void topPayloadsForAWeek() throws SQLException {
+        long from = START + 30 * ScanStats.DAY_MILLIS;
+        int rows = 0;
+        String first = null;
+        try (PreparedStatement query = prepare(connection, ScanStats.TOP_PAYLOADS, "from", "to", "limit")) {
+            query.setLong(1, from);
+            query.setLong(2, from + 7 * ScanStats.DAY_MILLIS);
+            query.setInt(3, 50);
+            try (ResultSet result = query.executeQuery()) {
+                while (result.next()) {
+                    if (first == null) {
+                        first = result.getString("data");
+                    }
+                    rows++;
+                }
+            }
+        }
+
+        assertEquals(50, rows);
+        assertEquals("https://shop.example.com/item/1", first);
+    }
+
+    @Test
+    public void rangeQueriesOnlyReadTheIndex() throws SQLException {
+        String byType = plan(ScanStats.COUNT_BY_TYPE.replace(":from", "0").replace(":to", "1"));
+        String byBucket = plan(ScanStats.COUNT_BY_BUCKET_AND_TYPE.replace(":offsetMillis", "0")
+                .replace(":bucketMillis", "3600000").replace(":from", "0").replace(":to", "1"));
+
+        assertTrue(byType, byType.contains("COVERING INDEX index_scan_history_timestamp_type_payload_id"));
+        assertTrue(byBucket, byBucket.contains("COVERING INDEX index_scan_history_timestamp_type_payload_id"));
+    }
+
+    @Test
+    public void topPayloadsLooksUpOnlyTheWinners() throws SQLException {
+        String plan = plan(ScanStats.TOP_PAYLOADS.replace(":from", "0").replace(":to", "1").replace(":limit", "50"));
+
+        assertTrue(plan, plan.contains("COVERING INDEX index_scan_history_timestamp_type_payload_id"));
+        assertTrue(plan, plan.contains("SEARCH scan_payload USING INTEGER PRIMARY KEY"));
+        assertFalse(plan, plan.contains("SCAN scan_payload"));
+    }
+
+    // Binds named parameters in the order they appear, the way Room expands them.
+    static PreparedStatement prepare(Connection connection, String sql, String... names) throws SQLException {
+        for (String name : names) {
+            sql = sql.replaceFirst(":" + name + "\\b", "?");
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    private static String plan(String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (result.next()) {
+                plan.append(result.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class RoiCropperTest {
+
+    @Test
+    public void copiesCentredSquareFromPaddedRows() {
+        int width = 8;
+        int height = 6;
+        int rowStride = 10;
+        ByteBuffer luma = ByteBuffer.allocate(rowStride * height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < rowStride; x++) {
+                luma.put(y * rowStride + x, (byte) (y * 16 + x));
+            }
+        }
+
+        RoiCropper cropper = new RoiCropper();
+        byte[] nv21 = cropper.crop(luma, rowStride, width, height, 0.5f);
+
+        assertEquals(2, cropper.getLeft());
+        assertEquals(2, cropper.getTop());
+        assertEquals(2, cropper.getWidth());
+        assertEquals(2, cropper.getHeight());
+        assertArrayEquals(new byte[]{34, 35, 50, 51, (byte) 128, (byte) 128}, nv21);
+        assertEquals(0, luma.position());
+    }
+
+    @Test
+    public void reusesBufferForSameSize() {
+        ByteBuffer luma = ByteBuffer.allocate(640 * 480);
+        RoiCropper cropper = new RoiCropper();
+
+        byte[] first = cropper.crop(luma, 640, 640, 480, 0.6f);
+        byte[] second = cropper.crop(luma, 640, 640, 480, 0.6f);
+
+        assertSame(first, second);
+        assertEquals(0, cropper.getWidth() % 2);
+    }
+
+    @Test
+    public void frameStrideSkipsFrames() {
+        AnalysisProfile profile = new AnalysisProfile(640, 480, 0.5f, 3);
+        assertTrue(profile.shouldAnalyze(0));
+        assertFalse(profile.shouldAnalyze(1));
+        assertFalse(profile.shouldAnalyze(2));
+        assertTrue(profile.shouldAnalyze(3));
+    }
+}
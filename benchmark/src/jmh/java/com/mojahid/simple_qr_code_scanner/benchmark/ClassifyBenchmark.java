@@ -0,0 +1,73 @@
+package com.mojahid.simple_qr_code_scanner.benchmark;
+
+import com.mojahid.simple_qr_code_scanner.scanner.DecodedBarcode;
+import com.mojahid.simple_qr_code_scanner.scanner.ScanResultClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning a decoded value into its type and follow-up action, as done for every accepted scan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ClassifyBenchmark {
+
+    @Param({"URL", "WIFI", "PHONE", "SMS", "GEO", "CONTACT", "TEXT", "PRODUCT"})
+    public String payload;
+
+    private DecodedBarcode barcode;
+
+    @Setup
+    public void setUp() {
+        String raw;
+        int format = DecodedBarcode.FORMAT_QR_CODE;
+        switch (payload) {
+            case "URL":
+                raw = "https://example.com/item/1234567890?ref=scan";
+                break;
+            case "WIFI":
+                raw = "WIFI:S:office-guest;T:WPA;P:correct horse battery staple;;";
+                break;
+            case "PHONE":
+                raw = "tel:+15551234567";
+                break;
+            case "SMS":
+                raw = "SMSTO:+15551234567:See you at the gate";
+                break;
+            case "GEO":
+                raw = "geo:23.8103,90.4125";
+                break;
+            case "CONTACT":
+                raw = "BEGIN:VCARD\nVERSION:3.0\nFN:Sam Rahman\nTEL:+15551234567\nEMAIL:sam@example.com\nEND:VCARD";
+                break;
+            case "PRODUCT":
+                raw = Fixtures.EAN_13_CONTENTS;
+                format = DecodedBarcode.FORMAT_EAN_13;
+                break;
+            default:
+                raw = "Plain text printed on a shelf label";
+        }
+        barcode = new DecodedBarcode(raw, format, ScanResultClassifier.valueTypeOf(raw, format), 0, 0, 0, 0);
+    }
+
+    @Benchmark
+    public int valueType() {
+        return ScanResultClassifier.valueTypeOf(barcode.rawValue, barcode.format);
+    }
+
+    @Benchmark
+    public void classify(Blackhole blackhole) {
+        blackhole.consume(ScanResultClassifier.classify(barcode));
+    }
+}
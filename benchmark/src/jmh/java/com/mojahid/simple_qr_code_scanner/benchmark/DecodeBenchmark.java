@@ -0,0 +1,54 @@
+package com.mojahid.simple_qr_code_scanner.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.mojahid.simple_qr_code_scanner.scanner.DecodedBarcode;
+import com.mojahid.simple_qr_code_scanner.scanner.ZxingDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One analysis frame through {@link ZxingDecoder}. Rotated 1D fixtures are expected to miss on a single pass;
+ * they measure what a failed frame costs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecodeBenchmark {
+
+    @Param({"QR_CODE", "EAN_13", "CODE_128"})
+    public String format;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"0", "90"})
+    public int rotation;
+
+    private final ZxingDecoder decoder = new ZxingDecoder();
+    private byte[] luma;
+    private int width;
+    private int height;
+
+    @Setup
+    public void setUp() throws Exception {
+        String[] size = resolution.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        luma = Fixtures.frame(BarcodeFormat.valueOf(format), width, height, rotation);
+    }
+
+    @Benchmark
+    public List<DecodedBarcode> decode() {
+        return decoder.decode(luma, width, height, rotation);
+    }
+}
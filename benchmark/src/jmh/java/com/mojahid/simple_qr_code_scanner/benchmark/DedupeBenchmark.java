@@ -0,0 +1,52 @@
+package com.mojahid.simple_qr_code_scanner.benchmark;
+
+import com.mojahid.simple_qr_code_scanner.scanner.ScanDeduplicator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ScanDeduplicator#accept} with a code held in view (repeat), a small working set that fits the cache,
+ * and a stream of distinct codes that keeps evicting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DedupeBenchmark {
+
+    private static final int QR = 256;
+
+    @Param({"1", "64", "4096"})
+    public int distinctCodes;
+
+    private ScanDeduplicator deduplicator;
+    private String[] codes;
+    private int next;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        deduplicator = new ScanDeduplicator();
+        codes = new String[distinctCodes];
+        for (int i = 0; i < distinctCodes; i++) {
+            codes[i] = "https://example.com/item/" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean accept() {
+        String code = codes[next];
+        next = next + 1 == codes.length ? 0 : next + 1;
+        // Roughly one analysed frame every 33 ms.
+        now += 33;
+        return deduplicator.accept(code, QR, now);
+    }
+}
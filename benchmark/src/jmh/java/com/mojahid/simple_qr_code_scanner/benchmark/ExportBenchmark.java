@@ -0,0 +1,101 @@
+package com.mojahid.simple_qr_code_scanner.benchmark;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryExportWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialising a whole history through {@link ScanHistoryExportWriter}, buffered the way the exporter does it,
+ * into a sink that only counts characters so the numbers are not dominated by storage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExportBenchmark {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Param({"CSV", "JSON"})
+    public String format;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    private String[] data;
+    private int[] types;
+    private long[] timestamps;
+
+    @Setup
+    public void setUp() {
+        data = new String[rows];
+        types = new int[rows];
+        timestamps = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            switch (i % 4) {
+                case 0:
+                    data[i] = "https://example.com/item/" + i;
+                    types[i] = 8;
+                    break;
+                case 1:
+                    data[i] = "WIFI:S:net-" + i + ";T:WPA;P:pass,\"" + i + "\";;";
+                    types[i] = 9;
+                    break;
+                case 2:
+                    data[i] = Long.toString(4006381333931L + i);
+                    types[i] = 5;
+                    break;
+                default:
+                    data[i] = "Line one " + i + "\nline two";
+                    types[i] = 7;
+            }
+            timestamps[i] = 1_700_000_000_000L + i * 1000L;
+        }
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        try (ScanHistoryExportWriter writer = ScanHistoryExportWriter.Format.valueOf(format)
+                .open(new BufferedWriter(sink, BUFFER_SIZE))) {
+            for (int i = 0; i < rows; i++) {
+                writer.writeRow(data[i], types[i], timestamps[i]);
+            }
+        }
+        return sink.count;
+    }
+
+    static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
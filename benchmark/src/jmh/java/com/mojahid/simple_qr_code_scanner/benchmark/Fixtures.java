@@ -0,0 +1,80 @@
+package com.mojahid.simple_qr_code_scanner.benchmark;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Synthetic camera frames: a barcode drawn into the middle of a white Y plane, turned the way a sensor
+ * would see it when the device is held at the given rotation.
+ */
+final class Fixtures {
+
+    static final String QR_CONTENTS = "https://example.com/item/1234567890";
+    static final String EAN_13_CONTENTS = "4006381333931";
+    static final String CODE_128_CONTENTS = "SCAN-0001234567";
+
+    private Fixtures() {
+    }
+
+    static String contentsFor(BarcodeFormat format) {
+        switch (format) {
+            case QR_CODE:
+                return QR_CONTENTS;
+            case EAN_13:
+                return EAN_13_CONTENTS;
+            case CODE_128:
+                return CODE_128_CONTENTS;
+            default:
+                throw new IllegalArgumentException("No fixture for " + format);
+        }
+    }
+
+    static byte[] frame(BarcodeFormat format, int width, int height, int rotationDegrees) throws WriterException {
+        int side = Math.min(width, height) / 2;
+        boolean square = format == BarcodeFormat.QR_CODE;
+        // Upright size of the code; 1D codes are wide and short.
+        int codeWidth = square ? side : side * 3 / 2;
+        int codeHeight = square ? side : side / 2;
+        BitMatrix matrix = new MultiFormatWriter().encode(contentsFor(format), format, codeWidth, codeHeight);
+
+        boolean sideways = rotationDegrees == 90 || rotationDegrees == 270;
+        int drawnWidth = sideways ? matrix.getHeight() : matrix.getWidth();
+        int drawnHeight = sideways ? matrix.getWidth() : matrix.getHeight();
+        int left = (width - drawnWidth) / 2;
+        int top = (height - drawnHeight) / 2;
+
+        byte[] luma = new byte[width * height];
+        Arrays.fill(luma, (byte) 0xf0);
+        for (int y = 0; y < drawnHeight; y++) {
+            for (int x = 0; x < drawnWidth; x++) {
+                int mx;
+                int my;
+                switch (rotationDegrees) {
+                    case 90:
+                        mx = y;
+                        my = drawnWidth - 1 - x;
+                        break;
+                    case 180:
+                        mx = drawnWidth - 1 - x;
+                        my = drawnHeight - 1 - y;
+                        break;
+                    case 270:
+                        mx = drawnHeight - 1 - y;
+                        my = x;
+                        break;
+                    default:
+                        mx = x;
+                        my = y;
+                }
+                if (matrix.get(mx, my)) {
+                    luma[(top + y) * width + left + x] = 0x10;
+                }
+            }
+        }
+        return luma;
+    }
+}
@@ -0,0 +1,82 @@
+package com.mojahid.simple_qr_code_scanner.generator;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Encodes QR codes into packed ARGB pixels ready for {@code Bitmap.setPixels}. The pixel buffer
+ * and row scratch space are reused between calls, so one instance must stay on one thread.
+ *
+ * <p>ZXing scales the matrix to the requested size, so neighbouring pixel rows inside one module
+ * are identical; such rows are copied from the row above instead of being filled again.
+ */
+public class QrRenderer {
+
+    public static final int DARK = 0xFF000000;
+    public static final int LIGHT = 0xFFFFFFFF;
+    public static final int DEFAULT_MARGIN = 2;
+
+    private final QRCodeWriter writer = new QRCodeWriter();
+    private final Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+    private BitArray row = new BitArray(1);
+    private int[] previousBits = new int[0];
+    private int[] pixels = new int[0];
+
+    public QrRenderer() {
+        this(DEFAULT_MARGIN);
+    }
+
+    public QrRenderer(int margin) {
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        hints.put(EncodeHintType.MARGIN, margin);
+    }
+
+    /**
+     * Returns the shared pixel buffer holding a {@code size} by {@code size} image, row by row.
+     * It is overwritten by the next call.
+     */
+    public int[] render(String content, int size, ErrorCorrectionLevel level) throws WriterException {
+        hints.put(EncodeHintType.ERROR_CORRECTION, level);
+        BitMatrix matrix = writer.encode(content, BarcodeFormat.QR_CODE, size, size, hints);
+        return render(matrix);
+    }
+
+    int[] render(BitMatrix matrix) {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+        }
+        if (row.getSize() < width) {
+            row = new BitArray(width);
+        }
+        boolean hasPrevious = false;
+        for (int y = 0; y < height; y++) {
+            row = matrix.getRow(y, row);
+            int[] bits = row.getBitArray();
+            int offset = y * width;
+            if (hasPrevious && Arrays.equals(bits, previousBits)) {
+                System.arraycopy(pixels, offset - width, pixels, offset, width);
+                continue;
+            }
+            for (int x = 0; x < width; x++) {
+                pixels[offset + x] = (bits[x >> 5] & (1 << (x & 0x1f))) != 0 ? DARK : LIGHT;
+            }
+            if (previousBits.length != bits.length) {
+                previousBits = new int[bits.length];
+            }
+            System.arraycopy(bits, 0, previousBits, 0, bits.length);
+            hasPrevious = true;
+        }
+        return pixels;
+    }
+}
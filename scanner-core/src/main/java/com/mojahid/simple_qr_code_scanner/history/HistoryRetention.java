@@ -0,0 +1,190 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Applies a {@link RetentionPolicy} to the scan history, then compacts the database.
+ *
+ * <p>Scans are deleted oldest first, at most {@code chunkRows} per {@link Store#delete} call, and each
+ * call is its own transaction, so scans saved while a large backlog is trimmed only ever wait for one
+ * chunk. Per-type rules run first, then the age limit for every other type, then the row limit.
+ * Once {@code rebuildStaleEntries} search index entries point at deleted payloads, the index is rebuilt
+ * from the payloads that are left. Free pages are then handed back to the file system {@code vacuumPages}
+ * at a time and the query planner statistics are refreshed.
+ */
+public class HistoryRetention {
+
+    // Store#delete binds every id twice, so this stays well under SQLite's 999 variable limit.
+    public static final int DEFAULT_CHUNK_ROWS = 200;
+    public static final int DEFAULT_VACUUM_PAGES = 256;
+    public static final long DEFAULT_REBUILD_STALE_ENTRIES = 1000;
+
+    /**
+     * The scan history being trimmed. Id lists are oldest first.
+     */
+    public interface Store {
+        List<Integer> idsOfTypeBefore(int type, long before, int limit);
+
+        List<Integer> idsBefore(long before, Collection<Integer> exceptTypes, int limit);
+
+        List<Integer> oldestIds(int limit);
+
+        long count();
+
+        /**
+         * Deletes the scans, and payloads no remaining scan points to, in one transaction. Returns the
+         * number of scans deleted.
+         */
+        int delete(List<Integer> ids);
+
+        long sizeBytes();
+
+        /**
+         * The number of search index entries left behind by deleted payloads.
+         */
+        long staleSearchEntries();
+
+        /**
+         * Rebuilds the search index from the payloads still stored.
+         */
+        void rebuildSearchIndex();
+
+        /**
+         * Switches the database to incremental vacuum, if it was created without it.
+         */
+        void enableIncrementalVacuum();
+
+        /**
+         * Releases up to {@code maxPages} free pages. Returns true while free pages remain.
+         */
+        boolean vacuum(int maxPages);
+
+        void analyze();
+    }
+
+    public static final class Report {
+        public final int expiredByType;
+        public final int expiredByAge;
+        public final int overLimit;
+        // Zero unless the search index was rebuilt.
+        public final long staleSearchEntries;
+        public final long bytesBefore;
+        public final long bytesAfter;
+
+        Report(int expiredByType, int expiredByAge, int overLimit, long staleSearchEntries, long bytesBefore,
+               long bytesAfter) {
+            this.expiredByType = expiredByType;
+            this.expiredByAge = expiredByAge;
+            this.overLimit = overLimit;
+            this.staleSearchEntries = staleSearchEntries;
+            this.bytesBefore = bytesBefore;
+            this.bytesAfter = bytesAfter;
+        }
+
+        public int getRowsReclaimed() {
+            return expiredByType + expiredByAge + overLimit;
+        }
+
+        public long getBytesRecovered() {
+            return Math.max(0, bytesBefore - bytesAfter);
+        }
+
+        @Override
+        public String toString() {
+            return "reclaimed " + getRowsReclaimed() + " scans (" + expiredByType + " by type, " + expiredByAge
+                    + " by age, " + overLimit + " over limit), " + staleSearchEntries + " search entries, "
+                    + getBytesRecovered() + " bytes ("
+                    + bytesBefore + " -> " + bytesAfter + ")";
+        }
+    }
+
+    private final Store store;
+    private final RetentionPolicy policy;
+    private final int chunkRows;
+    private final int vacuumPages;
+    private final long rebuildStaleEntries;
+
+    public HistoryRetention(Store store, RetentionPolicy policy) {
+        this(store, policy, DEFAULT_CHUNK_ROWS, DEFAULT_VACUUM_PAGES);
+    }
+
+    public HistoryRetention(Store store, RetentionPolicy policy, int chunkRows, int vacuumPages) {
+        this(store, policy, chunkRows, vacuumPages, DEFAULT_REBUILD_STALE_ENTRIES);
+    }
+
+    public HistoryRetention(Store store, RetentionPolicy policy, int chunkRows, int vacuumPages,
+                            long rebuildStaleEntries) {
+        if (chunkRows < 1 || vacuumPages < 1 || rebuildStaleEntries < 1) {
+            throw new IllegalArgumentException("limits must be at least 1");
+        }
+        this.store = store;
+        this.policy = policy;
+        this.chunkRows = chunkRows;
+        this.vacuumPages = vacuumPages;
+        this.rebuildStaleEntries = rebuildStaleEntries;
+    }
+
+    public Report run(long now) {
+        long bytesBefore = store.sizeBytes();
+
+        int expiredByType = 0;
+        for (Map.Entry<Integer, Long> rule : policy.maxAgeByType.entrySet()) {
+            if (rule.getValue() > 0) {
+                int type = rule.getKey();
+                long before = now - rule.getValue();
+                expiredByType += deleteAll(limit -> store.idsOfTypeBefore(type, before, limit));
+            }
+        }
+
+        int expiredByAge = 0;
+        if (policy.maxAgeMillis > 0) {
+            long before = now - policy.maxAgeMillis;
+            expiredByAge = deleteAll(limit -> store.idsBefore(before, policy.maxAgeByType.keySet(), limit));
+        }
+
+        // Counted once, so scans saved during the run do not push out more old ones.
+        int overLimit = 0;
+        if (policy.maxRows > 0) {
+            long excess = store.count() - policy.maxRows;
+            while (excess > 0) {
+                List<Integer> ids = store.oldestIds((int) Math.min(chunkRows, excess));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                overLimit += store.delete(ids);
+                excess -= ids.size();
+            }
+        }
+
+        // Counts payloads deleted from the history screen since the last run too.
+        long stale = store.staleSearchEntries();
+        if (stale >= rebuildStaleEntries) {
+            store.rebuildSearchIndex();
+        } else {
+            stale = 0;
+        }
+
+        store.enableIncrementalVacuum();
+        while (store.vacuum(vacuumPages)) {
+            // Each step is short, so writes queued behind it get in between.
+        }
+        store.analyze();
+        return new Report(expiredByType, expiredByAge, overLimit, stale, bytesBefore, store.sizeBytes());
+    }
+
+    private int deleteAll(IntFunction<List<Integer>> nextIds) {
+        int deleted = 0;
+        while (true) {
+            List<Integer> ids = nextIds.apply(chunkRows);
+            if (!ids.isEmpty()) {
+                deleted += store.delete(ids);
+            }
+            if (ids.size() < chunkRows) {
+                return deleted;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * How much scan history to keep. Zero turns a limit off.
+ *
+ * <p>A per-type rule replaces {@link #maxAgeMillis} for scans of that value type, so a rule of zero keeps
+ * that type however old it gets. {@link #maxRows} applies to all scans together, after the age limits.
+ */
+public final class RetentionPolicy {
+
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    public static final RetentionPolicy KEEP_ALL = new RetentionPolicy(0, 0, Collections.emptyMap());
+
+    public final long maxAgeMillis;
+    public final long maxRows;
+    // Value type to maximum age, in type order.
+    public final Map<Integer, Long> maxAgeByType;
+
+    public RetentionPolicy(long maxAgeMillis, long maxRows, Map<Integer, Long> maxAgeByType) {
+        if (maxAgeMillis < 0 || maxRows < 0) {
+            throw new IllegalArgumentException("Limits cannot be negative");
+        }
+        for (long maxAge : maxAgeByType.values()) {
+            if (maxAge < 0) {
+                throw new IllegalArgumentException("Limits cannot be negative");
+            }
+        }
+        this.maxAgeMillis = maxAgeMillis;
+        this.maxRows = maxRows;
+        this.maxAgeByType = Collections.unmodifiableMap(new TreeMap<>(maxAgeByType));
+    }
+
+    /**
+     * Builds a policy from resource values. Each type rule is {@code "<value type>:<days>"}, e.g.
+     * {@code "8:30"} keeps URLs for 30 days.
+     */
+    public static RetentionPolicy fromConfig(int maxAgeDays, int maxRows, String[] typeRules) {
+        Map<Integer, Long> maxAgeByType = new TreeMap<>();
+        for (String rule : typeRules) {
+            int colon = rule.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Expected <type>:<days>, got " + rule);
+            }
+            try {
+                int type = Integer.parseInt(rule.substring(0, colon).trim());
+                int days = Integer.parseInt(rule.substring(colon + 1).trim());
+                maxAgeByType.put(type, days * DAY_MILLIS);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected <type>:<days>, got " + rule, e);
+            }
+        }
+        return new RetentionPolicy(maxAgeDays * DAY_MILLIS, maxRows, maxAgeByType);
+    }
+}
@@ -0,0 +1,173 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Streams scan rows to a {@link Writer} one at a time, so an export never holds more than
+ * the current row in memory. Closing the writer finishes the document and closes the output.
+ */
+public abstract class ScanHistoryExportWriter implements Closeable {
+
+    public enum Format {
+        CSV("text/csv", "scan_history.csv"),
+        JSON("application/json", "scan_history.json");
+
+        public final String mimeType;
+        public final String fileName;
+
+        Format(String mimeType, String fileName) {
+            this.mimeType = mimeType;
+            this.fileName = fileName;
+        }
+
+        public ScanHistoryExportWriter open(Writer out) throws IOException {
+            return this == CSV ? new Csv(out) : new Json(out);
+        }
+    }
+
+    protected final Writer out;
+
+    protected ScanHistoryExportWriter(Writer out) {
+        this.out = out;
+    }
+
+    public abstract void writeRow(String data, int type, long timestamp) throws IOException;
+
+    protected void finish() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    static final class Csv extends ScanHistoryExportWriter {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        private final Date date = new Date();
+
+        Csv(Writer out) throws IOException {
+            super(out);
+            out.write("Data,Type,Timestamp\r\n");
+        }
+
+        @Override
+        public void writeRow(String data, int type, long timestamp) throws IOException {
+            writeField(data);
+            out.write(',');
+            out.write(Integer.toString(type));
+            out.write(',');
+            date.setTime(timestamp);
+            out.write(dateFormat.format(date));
+            out.write("\r\n");
+        }
+
+        // RFC 4180: quote fields containing separators, quotes or line breaks and double embedded quotes.
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            int start = 0;
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) == '"') {
+                    out.write(value, start, i + 1 - start);
+                    out.write('"');
+                    start = i + 1;
+                }
+            }
+            out.write(value, start, value.length() - start);
+            out.write('"');
+        }
+    }
+
+    static final class Json extends ScanHistoryExportWriter {
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+        private boolean first = true;
+
+        Json(Writer out) throws IOException {
+            super(out);
+            out.write('[');
+        }
+
+        @Override
+        public void writeRow(String data, int type, long timestamp) throws IOException {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.write("{\"data\":");
+            writeString(data);
+            out.write(",\"type\":");
+            out.write(Integer.toString(type));
+            out.write(",\"timestamp\":");
+            out.write(Long.toString(timestamp));
+            out.write('}');
+        }
+
+        @Override
+        protected void finish() throws IOException {
+            out.write(']');
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.write("null");
+                return;
+            }
+            out.write('"');
+            int start = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != '"' && c != '\\' && c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                    continue;
+                }
+                out.write(value, start, i - start);
+                start = i + 1;
+                switch (c) {
+                    case '"':
+                        out.write("\\\"");
+                        break;
+                    case '\\':
+                        out.write("\\\\");
+                        break;
+                    case '\n':
+                        out.write("\\n");
+                        break;
+                    case '\r':
+                        out.write("\\r");
+                        break;
+                    case '\t':
+                        out.write("\\t");
+                        break;
+                    default:
+                        out.write("\\u");
+                        out.write(HEX[(c >> 12) & 0xf]);
+                        out.write(HEX[(c >> 8) & 0xf]);
+                        out.write(HEX[(c >> 4) & 0xf]);
+                        out.write(HEX[c & 0xf]);
+                }
+            }
+            out.write(value, start, value.length() - start);
+            out.write('"');
+        }
+    }
+}
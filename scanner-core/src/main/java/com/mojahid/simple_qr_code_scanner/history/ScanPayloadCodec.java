@@ -0,0 +1,86 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Hashing and compression for stored scan payloads. A payload is addressed by the first
+ * {@link #HASH_BYTES} bytes of its SHA-256, so the same text scanned many times is stored once.
+ * Payloads of at least {@code compressMinBytes} UTF-8 bytes are deflated, and kept only if that
+ * actually saves space; short URLs and product codes are stored as plain text.
+ */
+public class ScanPayloadCodec {
+
+    public static final int HASH_BYTES = 16;
+    public static final int DEFAULT_COMPRESS_MIN_BYTES = 256;
+    public static final int NO_COMPRESSION = Integer.MAX_VALUE;
+
+    private final int compressMinBytes;
+
+    public ScanPayloadCodec() {
+        this(DEFAULT_COMPRESS_MIN_BYTES);
+    }
+
+    public ScanPayloadCodec(int compressMinBytes) {
+        this.compressMinBytes = compressMinBytes;
+    }
+
+    public static byte[] hash(String data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Arrays.copyOf(digest.digest(data.getBytes(StandardCharsets.UTF_8)), HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the deflated payload, or null when it should be stored as text.
+     */
+    public byte[] compress(String data) {
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < compressMinBytes) {
+            return null;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] out = new byte[bytes.length];
+            int length = 0;
+            while (!deflater.finished() && length < out.length) {
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            return deflater.finished() && length < bytes.length ? Arrays.copyOf(out, length) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] compressed) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated payload");
+                }
+                out.write(buffer, 0, length);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary copy of the scan history, for backing up one device and restoring onto another.
+ *
+ * <pre>
+ * file   := "QRSB" version:u8 block* 0:u32 total:varint
+ * block  := length:u32 body[length] crc32(body):u32
+ * body   := count:varint record[count]
+ * record := length:varint id timestamp type dataLength:varint data
+ * </pre>
+ *
+ * Fixed-width integers are big-endian and varints are unsigned LEB128. The id, timestamp and type are
+ * zigzag varints; id and timestamp hold the difference from the previous record in the same block, so
+ * consecutive scans cost a few bytes each and every block decodes on its own. Data is UTF-8.
+ *
+ * <p>The high four bits of the version are its major version and the low four its minor. A newer minor
+ * version may only append fields to records; a record starts with its own length, so a reader skips
+ * them and takes any snapshot of its own major version. Any other change bumps the major version.
+ */
+public final class ScanSnapshot {
+
+    public static final String MIME_TYPE = "application/octet-stream";
+    public static final String FILE_NAME = "scan_history.qrsb";
+    public static final int VERSION = 1;
+    private static final int MAJOR_VERSION_MASK = 0xf0;
+
+    static final byte[] MAGIC = {'Q', 'R', 'S', 'B'};
+    static final int BLOCK_TARGET_BYTES = 64 * 1024;
+    // A corrupt length must not make the reader allocate gigabytes.
+    static final int MAX_BLOCK_BYTES = 16 * 1024 * 1024;
+
+    private static final int MAX_VARINT_BYTES = 10;
+    private static final byte[] EMPTY = new byte[0];
+
+    private ScanSnapshot() {
+    }
+
+    public interface Sink {
+        void onRecord(long id, int type, long timestamp, String data) throws IOException;
+    }
+
+    /**
+     * Appends records to a block buffer and writes each block once it reaches about 64 KiB. Records should
+     * come in id order to keep the deltas small. Closing the writer writes the last block and the trailer.
+     */
+    public static final class Writer implements Closeable {
+        private final OutputStream out;
+        private final CRC32 crc = new CRC32();
+        private final byte[] fields = new byte[4 * MAX_VARINT_BYTES];
+        private final byte[] frame = new byte[4 + MAX_VARINT_BYTES];
+        private byte[] block = new byte[BLOCK_TARGET_BYTES * 2];
+        private int blockLength;
+        private int blockCount;
+        private long previousId;
+        private long previousTimestamp;
+        private long total;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(MAGIC);
+            out.write(VERSION);
+        }
+
+        public void write(long id, int type, long timestamp, String data) throws IOException {
+            byte[] bytes = data == null ? EMPTY : data.getBytes(StandardCharsets.UTF_8);
+            int length = putVarint(fields, 0, zigzag(id - previousId));
+            length = putVarint(fields, length, zigzag(timestamp - previousTimestamp));
+            length = putVarint(fields, length, zigzag(type));
+            length = putVarint(fields, length, bytes.length);
+            int recordLength = length + bytes.length;
+            if (block.length < blockLength + MAX_VARINT_BYTES + recordLength) {
+                block = Arrays.copyOf(block, Math.max(block.length * 2, blockLength + MAX_VARINT_BYTES + recordLength));
+            }
+            blockLength = putVarint(block, blockLength, recordLength);
+            System.arraycopy(fields, 0, block, blockLength, length);
+            System.arraycopy(bytes, 0, block, blockLength + length, bytes.length);
+            blockLength += recordLength;
+            blockCount++;
+            total++;
+            previousId = id;
+            previousTimestamp = timestamp;
+            if (blockLength >= BLOCK_TARGET_BYTES) {
+                writeBlock();
+            }
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        private void writeBlock() throws IOException {
+            int countLength = putVarint(frame, 4, blockCount) - 4;
+            putInt(frame, 0, countLength + blockLength);
+            out.write(frame, 0, 4 + countLength);
+            out.write(block, 0, blockLength);
+            crc.reset();
+            crc.update(frame, 4, countLength);
+            crc.update(block, 0, blockLength);
+            putInt(frame, 0, (int) crc.getValue());
+            out.write(frame, 0, 4);
+            blockLength = 0;
+            blockCount = 0;
+            previousId = 0;
+            previousTimestamp = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (blockCount > 0) {
+                    writeBlock();
+                }
+                putInt(frame, 0, 0);
+                out.write(frame, 0, putVarint(frame, 4, total));
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot block by block from a channel into one reused buffer. Each block's checksum is
+     * checked before any of its records reach the sink. The caller closes the channel.
+     */
+    public static final class Reader {
+        private final ReadableByteChannel channel;
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer frame = ByteBuffer.allocate(4);
+        private ByteBuffer block = ByteBuffer.allocate(BLOCK_TARGET_BYTES * 2);
+        private byte[] bytes = block.array();
+        private int position;
+        private long blocks;
+        private long total;
+        private long bytesRead;
+        private boolean finished;
+
+        /**
+         * Reads and checks the header, so a file that is not a snapshot fails before anything is written.
+         */
+        public Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1);
+            readFully(header);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) {
+                    throw new IOException("Not a scan history snapshot");
+                }
+            }
+            int version = header.get(MAGIC.length) & 0xff;
+            if ((version & MAJOR_VERSION_MASK) != (VERSION & MAJOR_VERSION_MASK)) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+        }
+
+        /**
+         * Hands the next block's records to {@code sink}. Returns how many there were, or -1 once the
+         * trailer has been read and its record count matched.
+         */
+        public int readBlock(Sink sink) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            frame.clear();
+            readFully(frame);
+            int length = frame.getInt(0);
+            if (length == 0) {
+                long expected = readTrailer();
+                if (expected != total) {
+                    throw new IOException("Snapshot holds " + total + " records but its trailer says " + expected);
+                }
+                finished = true;
+                return -1;
+            }
+            if (length < 0 || length > MAX_BLOCK_BYTES) {
+                throw new IOException("Corrupt length in block " + blocks);
+            }
+            if (block.capacity() < length + 4) {
+                block = ByteBuffer.allocate(Math.max(block.capacity() * 2, length + 4));
+                bytes = block.array();
+            }
+            block.clear().limit(length + 4);
+            readFully(block);
+            crc.reset();
+            crc.update(bytes, 0, length);
+            if ((int) crc.getValue() != block.getInt(length)) {
+                throw new IOException("Checksum mismatch in block " + blocks);
+            }
+
+            position = 0;
+            long count = getVarint(length);
+            long id = 0;
+            long timestamp = 0;
+            for (long i = 0; i < count; i++) {
+                int recordLength = checkedLength(getVarint(length), length - position);
+                int end = position + recordLength;
+                id += unzigzag(getVarint(end));
+                timestamp += unzigzag(getVarint(end));
+                int type = (int) unzigzag(getVarint(end));
+                int dataLength = checkedLength(getVarint(end), end - position);
+                String data = new String(bytes, position, dataLength, StandardCharsets.UTF_8);
+                position = end;
+                sink.onRecord(id, type, timestamp, data);
+            }
+            if (position != length) {
+                throw new IOException("Corrupt record count in block " + blocks);
+            }
+            blocks++;
+            total += count;
+            return (int) count;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        private long readTrailer() throws IOException {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                one.clear();
+                readFully(one);
+                byte b = one.get(0);
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt snapshot trailer");
+        }
+
+        private long getVarint(int limit) throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64 && position < limit; shift += 7) {
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt varint in block " + blocks);
+        }
+
+        private int checkedLength(long length, int available) throws IOException {
+            if (length < 0 || length > available) {
+                throw new IOException("Corrupt record in block " + blocks);
+            }
+            return (int) length;
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("Snapshot is truncated");
+                }
+                bytesRead += read;
+            }
+        }
+    }
+
+    static int putVarint(byte[] buffer, int position, long value) {
+        while ((value & ~0x7fL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static void putInt(byte[] buffer, int position, int value) {
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,167 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Follows the codes in view from frame to frame so a sweep over many labels captures each one once.
+ * A detection joins the nearest live track with the same format and value, otherwise it starts a new track.
+ * A track is dropped after it is missing from {@link #MAX_MISSED_FRAMES} decoded frames in a row.
+ *
+ * <p>Once every track has held still for {@link #STABLE_AFTER_FRAMES} frames, {@link #shouldDecode(long)}
+ * lets only one frame in {@link #STABLE_DECODE_STRIDE} through; any movement, new code or lost code
+ * brings decoding back to full rate. Methods are synchronized because the analyzer asks
+ * {@code shouldDecode} on the camera thread while results are applied on the main thread.
+ */
+public class BarcodeTracker {
+
+    public static final int MAX_MISSED_FRAMES = 5;
+    public static final int STABLE_AFTER_FRAMES = 5;
+    public static final int STABLE_DECODE_STRIDE = 4;
+    // A track still counts as still if its centre moved less than this fraction of its size.
+    private static final float STABLE_MOVEMENT = 0.1f;
+    // Detections further than this many box sizes from a track's centre start a new track.
+    private static final float MAX_MATCH_DISTANCE = 1.5f;
+
+    public static final class Track {
+        public final int id;
+        public final String rawValue;
+        public final int format;
+        public final int left;
+        public final int top;
+        public final int right;
+        public final int bottom;
+
+        Track(int id, String rawValue, int format, int left, int top, int right, int bottom) {
+            this.id = id;
+            this.rawValue = rawValue;
+            this.format = format;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+    }
+
+    private static final class LiveTrack {
+        final int id;
+        DecodedBarcode latest;
+        int missedFrames;
+        boolean matched;
+
+        LiveTrack(int id, DecodedBarcode barcode) {
+            this.id = id;
+            this.latest = barcode;
+        }
+    }
+
+    private final List<LiveTrack> tracks = new ArrayList<>();
+    private final Set<String> emitted = new HashSet<>();
+    private int nextId = 1;
+    private int stableFrames = 0;
+
+    /**
+     * Applies one decoded frame and returns the codes seen for the first time in this session.
+     */
+    public synchronized List<DecodedBarcode> update(List<DecodedBarcode> barcodes) {
+        for (LiveTrack track : tracks) {
+            track.matched = false;
+        }
+        boolean changed = false;
+        List<DecodedBarcode> newCodes = new ArrayList<>();
+        for (DecodedBarcode barcode : barcodes) {
+            if (barcode.rawValue == null) {
+                continue;
+            }
+            LiveTrack track = nearestTrack(barcode);
+            if (track == null) {
+                LiveTrack created = new LiveTrack(nextId++, barcode);
+                created.matched = true;
+                tracks.add(created);
+                changed = true;
+                if (emitted.add(ScanDeduplicator.key(barcode.rawValue, barcode.format))) {
+                    newCodes.add(barcode);
+                }
+                continue;
+            }
+            if (moved(track.latest, barcode)) {
+                changed = true;
+            }
+            track.latest = barcode;
+            track.missedFrames = 0;
+            track.matched = true;
+        }
+        for (int i = tracks.size() - 1; i >= 0; i--) {
+            LiveTrack track = tracks.get(i);
+            if (track.matched) {
+                continue;
+            }
+            if (++track.missedFrames > MAX_MISSED_FRAMES) {
+                tracks.remove(i);
+                changed = true;
+            }
+        }
+        stableFrames = changed ? 0 : stableFrames + 1;
+        return newCodes;
+    }
+
+    public synchronized boolean shouldDecode(long frameIndex) {
+        return stableFrames < STABLE_AFTER_FRAMES || frameIndex % STABLE_DECODE_STRIDE == 0;
+    }
+
+    public synchronized List<Track> getTracks() {
+        if (tracks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Track> snapshot = new ArrayList<>(tracks.size());
+        for (LiveTrack track : tracks) {
+            DecodedBarcode b = track.latest;
+            snapshot.add(new Track(track.id, b.rawValue, b.format, b.left, b.top, b.right, b.bottom));
+        }
+        return snapshot;
+    }
+
+    public synchronized int getEmittedCount() {
+        return emitted.size();
+    }
+
+    public synchronized void reset() {
+        tracks.clear();
+        emitted.clear();
+        stableFrames = 0;
+    }
+
+    private LiveTrack nearestTrack(DecodedBarcode barcode) {
+        LiveTrack nearest = null;
+        long nearestDistance = Long.MAX_VALUE;
+        for (LiveTrack track : tracks) {
+            DecodedBarcode last = track.latest;
+            if (track.matched || last.format != barcode.format || !last.rawValue.equals(barcode.rawValue)) {
+                continue;
+            }
+            long dx = last.centerX() - barcode.centerX();
+            long dy = last.centerY() - barcode.centerY();
+            long distance = dx * dx + dy * dy;
+            float limit = MAX_MATCH_DISTANCE * size(last);
+            if (distance <= limit * limit && distance < nearestDistance) {
+                nearest = track;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    private static boolean moved(DecodedBarcode previous, DecodedBarcode current) {
+        float limit = STABLE_MOVEMENT * size(previous);
+        return Math.abs(previous.centerX() - current.centerX()) > limit
+                || Math.abs(previous.centerY() - current.centerY()) > limit;
+    }
+
+    // Codes without bounds (size 0) still match each other exactly at the origin.
+    private static float size(DecodedBarcode barcode) {
+        return Math.max(1, Math.max(barcode.right - barcode.left, barcode.bottom - barcode.top));
+    }
+}
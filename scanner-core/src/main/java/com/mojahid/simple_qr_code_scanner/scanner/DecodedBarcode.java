@@ -0,0 +1,65 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+/**
+ * A barcode found in a frame, independent of the engine that decoded it.
+ * Format and value type codes use the same numbering as ML Kit's {@code Barcode}, so history rows,
+ * dedupe keys and type labels stay the same whichever engine is active.
+ * Bounds are in the coordinates of the analysed image after rotation to upright.
+ */
+public final class DecodedBarcode {
+
+    public static final int FORMAT_UNKNOWN = -1;
+    public static final int FORMAT_CODE_128 = 1;
+    public static final int FORMAT_CODE_39 = 2;
+    public static final int FORMAT_CODE_93 = 4;
+    public static final int FORMAT_CODABAR = 8;
+    public static final int FORMAT_DATA_MATRIX = 16;
+    public static final int FORMAT_EAN_13 = 32;
+    public static final int FORMAT_EAN_8 = 64;
+    public static final int FORMAT_ITF = 128;
+    public static final int FORMAT_QR_CODE = 256;
+    public static final int FORMAT_UPC_A = 512;
+    public static final int FORMAT_UPC_E = 1024;
+    public static final int FORMAT_PDF417 = 2048;
+    public static final int FORMAT_AZTEC = 4096;
+
+    public static final int TYPE_UNKNOWN = 0;
+    public static final int TYPE_CONTACT_INFO = 1;
+    public static final int TYPE_EMAIL = 2;
+    public static final int TYPE_ISBN = 3;
+    public static final int TYPE_PHONE = 4;
+    public static final int TYPE_PRODUCT = 5;
+    public static final int TYPE_SMS = 6;
+    public static final int TYPE_TEXT = 7;
+    public static final int TYPE_URL = 8;
+    public static final int TYPE_WIFI = 9;
+    public static final int TYPE_GEO = 10;
+    public static final int TYPE_CALENDAR_EVENT = 11;
+    public static final int TYPE_DRIVER_LICENSE = 12;
+
+    public final String rawValue;
+    public final int format;
+    public final int valueType;
+    public final int left;
+    public final int top;
+    public final int right;
+    public final int bottom;
+
+    public DecodedBarcode(String rawValue, int format, int valueType, int left, int top, int right, int bottom) {
+        this.rawValue = rawValue;
+        this.format = format;
+        this.valueType = valueType;
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int centerX() {
+        return (left + right) / 2;
+    }
+
+    public int centerY() {
+        return (top + bottom) / 2;
+    }
+}
@@ -0,0 +1,105 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the spirit of HdrHistogram.
+ * Values below {@value #SUB_BUCKETS} microseconds get a bucket each; above that every power of two is split
+ * into {@value #HALF_SUB_BUCKETS} buckets, so any recorded value is reported within about 1.6%.
+ * Recording is a couple of atomic increments and never allocates, so it is safe on the camera thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 128;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int SUB_BUCKET_BITS = 7;
+    // Covers up to about 2^37 microseconds, far beyond any stage worth measuring.
+    private static final int MAX_SHIFT = 30;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + MAX_SHIFT * HALF_SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(indexOf(micros));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalMicros.get() / count;
+    }
+
+    /**
+     * Returns the value at the given percentile (0-100), or 0 if nothing was recorded.
+     * Concurrent recording may make the answer off by the values recorded while it runs.
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(middleOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> shift);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (sub - HALF_SUB_BUCKETS);
+    }
+
+    static long middleOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long sub = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return (sub << shift) + (1L << (shift - 1));
+    }
+}
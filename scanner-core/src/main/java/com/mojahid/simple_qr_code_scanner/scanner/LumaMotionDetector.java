@@ -0,0 +1,57 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cheap scene-change check on a Y plane. Reads a {@value #GRID}x{@value #GRID} grid of pixels, so it costs
+ * the same at any resolution, and reports motion when either the samples change on average by more than
+ * {@link #MEAN_DIFFERENCE_THRESHOLD} levels or the luma variance shifts by more than a quarter.
+ * A code entering the frame adds high-contrast edges, which shows up as a jump in variance even when
+ * the average brightness barely moves. Not thread-safe.
+ */
+public class LumaMotionDetector {
+
+    static final int GRID = 16;
+    static final int MEAN_DIFFERENCE_THRESHOLD = 12;
+    private static final float VARIANCE_CHANGE_THRESHOLD = 0.25f;
+
+    private final byte[] previous = new byte[GRID * GRID];
+    private final byte[] current = new byte[GRID * GRID];
+    private boolean hasPrevious = false;
+    private double previousVariance;
+
+    public boolean update(ByteBuffer luma, int rowStride, int width, int height) {
+        long sum = 0;
+        long sumOfSquares = 0;
+        long difference = 0;
+        int base = luma.position();
+        for (int gy = 0; gy < GRID; gy++) {
+            int row = base + ((2 * gy + 1) * height / (2 * GRID)) * rowStride;
+            for (int gx = 0; gx < GRID; gx++) {
+                int i = gy * GRID + gx;
+                int value = luma.get(row + (2 * gx + 1) * width / (2 * GRID)) & 0xff;
+                current[i] = (byte) value;
+                sum += value;
+                sumOfSquares += value * value;
+                difference += Math.abs(value - (previous[i] & 0xff));
+            }
+        }
+        int samples = GRID * GRID;
+        double mean = (double) sum / samples;
+        double variance = (double) sumOfSquares / samples - mean * mean;
+
+        boolean motion = false;
+        if (hasPrevious) {
+            double varianceChange = Math.abs(variance - previousVariance) / Math.max(previousVariance, 1.0);
+            motion = difference / samples > MEAN_DIFFERENCE_THRESHOLD || varianceChange > VARIANCE_CHANGE_THRESHOLD;
+        }
+        System.arraycopy(current, 0, previous, 0, samples);
+        previousVariance = variance;
+        hasPrevious = true;
+        return motion;
+    }
+
+    public void reset() {
+        hasPrevious = false;
+    }
+}
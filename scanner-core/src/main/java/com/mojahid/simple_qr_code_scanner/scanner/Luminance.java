@@ -0,0 +1,36 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+/**
+ * Converts packed ARGB pixels, as returned by {@code Bitmap.getPixels}, into a Y plane the decoder can read.
+ */
+public final class Luminance {
+
+    private Luminance() {
+    }
+
+    /**
+     * Writes the luminance of the first {@code count} pixels into {@code out}, using the BT.601 weights
+     * in 8-bit fixed point. Transparent pixels are treated as white, the way they print.
+     */
+    public static void fromArgb(int[] argb, int count, byte[] out) {
+        fromArgb(argb, count, out, 0);
+    }
+
+    /**
+     * As {@link #fromArgb(int[], int, byte[])}, writing from {@code outOffset} on, so a frame can be
+     * converted a strip of rows at a time.
+     */
+    public static void fromArgb(int[] argb, int count, byte[] out, int outOffset) {
+        for (int i = 0; i < count; i++) {
+            int pixel = argb[i];
+            if ((pixel >>> 24) == 0) {
+                out[outOffset + i] = (byte) 0xff;
+                continue;
+            }
+            int r = (pixel >> 16) & 0xff;
+            int g = (pixel >> 8) & 0xff;
+            int b = pixel & 0xff;
+            out[outOffset + i] = (byte) ((r * 77 + g * 150 + b * 29 + 128) >> 8);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+/**
+ * Decides how many camera frames are worth analysing. At full rate every frame goes to the decoder;
+ * after {@code idleAfterMillis} without a decode, a partial detection or motion, only one frame in
+ * {@code idleStride} does. Any of those events brings it straight back to full rate.
+ * Thermal status, using the {@code PowerManager.THERMAL_STATUS_*} levels, stretches the stride further
+ * in either state. State changes are published to {@link ScanMetrics}.
+ */
+public class PowerGovernor {
+
+    public static final long DEFAULT_IDLE_AFTER_MILLIS = 5000;
+    public static final int DEFAULT_IDLE_STRIDE = 6;
+
+    public static final int THERMAL_STATUS_NONE = 0;
+    public static final int THERMAL_STATUS_MODERATE = 2;
+    public static final int THERMAL_STATUS_SEVERE = 3;
+
+    public enum State {
+        ACTIVE,
+        IDLE
+    }
+
+    private final long idleAfterMillis;
+    private final int idleStride;
+    private final ScanMetrics metrics;
+    private long lastActivityMillis = -1;
+    private int thermalStatus = THERMAL_STATUS_NONE;
+    private State state = State.ACTIVE;
+
+    public PowerGovernor(long idleAfterMillis, int idleStride, ScanMetrics metrics) {
+        if (idleStride < 1) {
+            throw new IllegalArgumentException("idleStride must be at least 1");
+        }
+        this.idleAfterMillis = idleAfterMillis;
+        this.idleStride = idleStride;
+        this.metrics = metrics;
+        metrics.setGovernorState(state.name(), thermalStatus);
+    }
+
+    /**
+     * Called for every frame the camera delivers, with whether the motion check fired on it.
+     */
+    public synchronized boolean shouldAnalyze(long frameIndex, long nowMillis, boolean motion) {
+        if (lastActivityMillis < 0 || motion) {
+            lastActivityMillis = nowMillis;
+        }
+        setState(nowMillis - lastActivityMillis >= idleAfterMillis ? State.IDLE : State.ACTIVE);
+        return frameIndex % getStride() == 0;
+    }
+
+    public synchronized void onDecoded(long nowMillis) {
+        lastActivityMillis = nowMillis;
+        setState(State.ACTIVE);
+    }
+
+    public synchronized void onPartialDetection(long nowMillis) {
+        onDecoded(nowMillis);
+    }
+
+    public synchronized void setThermalStatus(int thermalStatus) {
+        this.thermalStatus = thermalStatus;
+        metrics.setGovernorState(state.name(), thermalStatus);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getStride() {
+        int stride = state == State.IDLE ? idleStride : 1;
+        if (thermalStatus >= THERMAL_STATUS_SEVERE) {
+            stride *= 4;
+        } else if (thermalStatus >= THERMAL_STATUS_MODERATE) {
+            stride *= 2;
+        }
+        return stride;
+    }
+
+    private void setState(State next) {
+        if (state != next) {
+            state = next;
+            metrics.setGovernorState(next.name(), thermalStatus);
+        }
+    }
+}
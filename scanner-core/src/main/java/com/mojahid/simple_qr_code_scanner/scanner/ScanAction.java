@@ -0,0 +1,42 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+/**
+ * What the scanner should do with a decoded barcode: the message to show and the fields the
+ * follow-up intent needs. Built by {@link ScanResultClassifier}.
+ */
+public final class ScanAction {
+
+    public static final int WIFI_OPEN = 1;
+    public static final int WIFI_WPA = 2;
+    public static final int WIFI_WEP = 3;
+
+    /** One of the {@code DecodedBarcode.TYPE_*} values. */
+    public final int type;
+    public final String message;
+    /** URL, phone number, email address, SMS recipient or WiFi SSID, depending on {@link #type}. */
+    public final String target;
+    /** SMS body or WiFi password. */
+    public final String extra;
+    public final int wifiEncryption;
+    public final double latitude;
+    public final double longitude;
+
+    ScanAction(int type, String message, String target, String extra, int wifiEncryption,
+               double latitude, double longitude) {
+        this.type = type;
+        this.message = message;
+        this.target = target;
+        this.extra = extra;
+        this.wifiEncryption = wifiEncryption;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    static ScanAction of(int type, String message) {
+        return new ScanAction(type, message, null, null, 0, 0, 0);
+    }
+
+    static ScanAction of(int type, String message, String target) {
+        return new ScanAction(type, message, target, null, 0, 0, 0);
+    }
+}
@@ -0,0 +1,54 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Suppresses repeated sightings of the same code within a time window.
+ * Entries are keyed by format and raw value and the cache is bounded with LRU eviction,
+ * so a long continuous session never grows it past {@code maxEntries}.
+ */
+public class ScanDeduplicator {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 3000;
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final long windowMillis;
+    private final LinkedHashMap<String, Long> lastSeen;
+
+    public ScanDeduplicator() {
+        this(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ScanDeduplicator(long windowMillis, int maxEntries) {
+        this.windowMillis = windowMillis;
+        this.lastSeen = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Records a sighting and returns true if it is the first one inside the window.
+     * Every sighting refreshes the window, so a code held in view stays suppressed.
+     */
+    public synchronized boolean accept(String rawValue, int format, long nowMillis) {
+        String key = key(rawValue, format);
+        Long previous = lastSeen.put(key, nowMillis);
+        return previous == null || nowMillis - previous >= windowMillis;
+    }
+
+    public synchronized int size() {
+        return lastSeen.size();
+    }
+
+    public synchronized void clear() {
+        lastSeen.clear();
+    }
+
+    static String key(String rawValue, int format) {
+        return format + ":" + rawValue;
+    }
+}
@@ -0,0 +1,230 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms for each stage of the scan pipeline and each decode tier, plus frame counters.
+ * Every method may be called from any thread.
+ */
+public class ScanMetrics {
+
+    public enum Stage {
+        QUEUE_WAIT("queue_wait"),
+        CONVERSION("conversion"),
+        DETECT("detect"),
+        HANDLING("handling"),
+        DB_WRITE("db_write");
+
+        public final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * The passes of {@link TieredDecoder}, cheapest first; FAST also stands for ML Kit when it is the first pass.
+     * Each attempt is timed and counted as a hit or a miss.
+     */
+    public enum Tier {
+        FAST("fast"),
+        FULL_FRAME("full_frame"),
+        INVERTED("inverted"),
+        TRY_HARDER("try_harder"),
+        ROTATED("rotated");
+
+        public final String key;
+
+        Tier(String key) {
+            this.key = key;
+        }
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final LatencyHistogram[] tierHistograms = new LatencyHistogram[Tier.values().length];
+    private final AtomicLong[] tierHits = new AtomicLong[Tier.values().length];
+    private final AtomicLong escalationsSkipped = new AtomicLong();
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesAnalyzed = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong governorTransitions = new AtomicLong();
+    private volatile String governorState = "ACTIVE";
+    private volatile int thermalStatus = 0;
+    // Only touched by the analyzer thread.
+    private long lastFrameTimestamp;
+    private long frameIntervalNanos;
+
+    public ScanMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < tierHistograms.length; i++) {
+            tierHistograms[i] = new LatencyHistogram();
+            tierHits[i] = new AtomicLong();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].recordNanos(nanos);
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void recordTier(Tier tier, boolean hit, long nanos) {
+        tierHistograms[tier.ordinal()].recordNanos(nanos);
+        if (hit) {
+            tierHits[tier.ordinal()].incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram get(Tier tier) {
+        return tierHistograms[tier.ordinal()];
+    }
+
+    public long getHits(Tier tier) {
+        return tierHits[tier.ordinal()].get();
+    }
+
+    /**
+     * Counts a frame that deserved escalation but was dropped because the previous one was still escalating.
+     */
+    public void onEscalationSkipped() {
+        escalationsSkipped.incrementAndGet();
+    }
+
+    /**
+     * Counts a frame handed to the analyzer, using sensor timestamps to spot frames the camera dropped
+     * in between. With {@code STRATEGY_KEEP_ONLY_LATEST} those never reach the analyzer, so a gap of
+     * several frame intervals is the only trace they leave. The interval is learned from normal gaps.
+     * Call from the analyzer thread only.
+     */
+    public void onFrameReceived(long sensorTimestampNanos) {
+        framesReceived.incrementAndGet();
+        long previous = lastFrameTimestamp;
+        lastFrameTimestamp = sensorTimestampNanos;
+        if (previous == 0 || sensorTimestampNanos <= previous) {
+            return;
+        }
+        long gap = sensorTimestampNanos - previous;
+        if (frameIntervalNanos == 0) {
+            frameIntervalNanos = gap;
+        } else if (gap < frameIntervalNanos * 3 / 2) {
+            frameIntervalNanos = (frameIntervalNanos * 7 + gap) / 8;
+        } else {
+            framesDropped.addAndGet(Math.round((double) gap / frameIntervalNanos) - 1);
+        }
+    }
+
+    public void onFrameAnalyzed() {
+        framesAnalyzed.incrementAndGet();
+    }
+
+    public void onFrameSkipped() {
+        framesSkipped.incrementAndGet();
+    }
+
+    public void setGovernorState(String state, int thermalStatus) {
+        if (!state.equals(governorState)) {
+            governorTransitions.incrementAndGet();
+        }
+        this.governorState = state;
+        this.thermalStatus = thermalStatus;
+    }
+
+    public String getGovernorState() {
+        return governorState;
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        framesReceived.set(0);
+        framesAnalyzed.set(0);
+        framesSkipped.set(0);
+        framesDropped.set(0);
+        governorTransitions.set(0);
+        for (int i = 0; i < tierHistograms.length; i++) {
+            tierHistograms[i].reset();
+            tierHits[i].set(0);
+        }
+        escalationsSkipped.set(0);
+    }
+
+    /**
+     * A few lines for the debug overlay: p50/p95/p99 in milliseconds per stage, hits, attempts and p95
+     * per decode tier that has run, then the frame counters.
+     */
+    public String summary() {
+        StringBuilder text = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = get(stage);
+            text.append(String.format(Locale.US, "%-10s %6.1f %6.1f %6.1f ms%n", stage.key,
+                    histogram.getPercentileMicros(50) / 1000.0,
+                    histogram.getPercentileMicros(95) / 1000.0,
+                    histogram.getPercentileMicros(99) / 1000.0));
+        }
+        for (Tier tier : Tier.values()) {
+            LatencyHistogram histogram = get(tier);
+            if (histogram.getCount() > 0) {
+                text.append(String.format(Locale.US, "%-10s %6d/%-6d %6.1f ms%n", tier.key, getHits(tier),
+                        histogram.getCount(), histogram.getPercentileMicros(95) / 1000.0));
+            }
+        }
+        text.append(String.format(Locale.US, "frames %d analysed %d skipped %d dropped %d%n",
+                framesReceived.get(), framesAnalyzed.get(), framesSkipped.get(), framesDropped.get()));
+        text.append(String.format(Locale.US, "governor %s thermal %d", governorState, thermalStatus));
+        return text.toString();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"frames\":{\"received\":").append(framesReceived.get())
+                .append(",\"analyzed\":").append(framesAnalyzed.get())
+                .append(",\"skipped\":").append(framesSkipped.get())
+                .append(",\"dropped\":").append(framesDropped.get())
+                .append("},\"governor\":{\"state\":\"").append(governorState)
+                .append("\",\"thermal_status\":").append(thermalStatus)
+                .append(",\"transitions\":").append(governorTransitions.get())
+                .append("},\"stages\":{");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram histogram = get(stages[i]);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(stages[i].key).append("\":{\"count\":").append(histogram.getCount())
+                    .append(",\"mean_us\":").append(Math.round(histogram.getMeanMicros()))
+                    .append(",\"p50_us\":").append(histogram.getPercentileMicros(50))
+                    .append(",\"p95_us\":").append(histogram.getPercentileMicros(95))
+                    .append(",\"p99_us\":").append(histogram.getPercentileMicros(99))
+                    .append(",\"max_us\":").append(histogram.getMaxMicros())
+                    .append('}');
+        }
+        json.append("},\"tiers\":{");
+        Tier[] tiers = Tier.values();
+        for (int i = 0; i < tiers.length; i++) {
+            LatencyHistogram histogram = get(tiers[i]);
+            long attempts = histogram.getCount();
+            long hits = getHits(tiers[i]);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(tiers[i].key).append("\":{\"attempts\":").append(attempts)
+                    .append(",\"hits\":").append(hits)
+                    .append(",\"hit_rate\":").append(attempts == 0 ? 0 : Math.round(hits * 1000.0 / attempts) / 1000.0)
+                    .append(",\"mean_us\":").append(Math.round(histogram.getMeanMicros()))
+                    .append(",\"p95_us\":").append(histogram.getPercentileMicros(95))
+                    .append('}');
+        }
+        return json.append("},\"escalations_skipped\":").append(escalationsSkipped.get()).append('}').toString();
+    }
+}
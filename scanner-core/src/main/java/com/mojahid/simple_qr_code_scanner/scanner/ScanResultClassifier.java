@@ -0,0 +1,156 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.client.result.AddressBookParsedResult;
+import com.google.zxing.client.result.CalendarParsedResult;
+import com.google.zxing.client.result.EmailAddressParsedResult;
+import com.google.zxing.client.result.GeoParsedResult;
+import com.google.zxing.client.result.ParsedResult;
+import com.google.zxing.client.result.ResultParser;
+import com.google.zxing.client.result.SMSParsedResult;
+import com.google.zxing.client.result.TelParsedResult;
+import com.google.zxing.client.result.URIParsedResult;
+import com.google.zxing.client.result.WifiParsedResult;
+
+import java.util.Date;
+
+/**
+ * Classifies raw barcode text into one of the ML Kit value types and builds the matching {@link ScanAction}.
+ * Uses ZXing's result parsers, so it works the same for barcodes from either engine.
+ */
+public final class ScanResultClassifier {
+
+    private ScanResultClassifier() {
+    }
+
+    public static int valueTypeOf(String rawValue, int format) {
+        if (rawValue == null) {
+            return DecodedBarcode.TYPE_UNKNOWN;
+        }
+        switch (parse(rawValue, format).getType()) {
+            case ADDRESSBOOK:
+                return DecodedBarcode.TYPE_CONTACT_INFO;
+            case EMAIL_ADDRESS:
+                return DecodedBarcode.TYPE_EMAIL;
+            case PRODUCT:
+                return DecodedBarcode.TYPE_PRODUCT;
+            case URI:
+                return DecodedBarcode.TYPE_URL;
+            case GEO:
+                return DecodedBarcode.TYPE_GEO;
+            case TEL:
+                return DecodedBarcode.TYPE_PHONE;
+            case SMS:
+                return DecodedBarcode.TYPE_SMS;
+            case CALENDAR:
+                return DecodedBarcode.TYPE_CALENDAR_EVENT;
+            case WIFI:
+                return DecodedBarcode.TYPE_WIFI;
+            case ISBN:
+                return DecodedBarcode.TYPE_ISBN;
+            default:
+                return DecodedBarcode.TYPE_TEXT;
+        }
+    }
+
+    /**
+     * Builds the action for a barcode. The barcode's own value type decides the action; the parsed
+     * fields are used only when ZXing agrees on the type, otherwise the raw value stands in.
+     */
+    public static ScanAction classify(DecodedBarcode barcode) {
+        String raw = barcode.rawValue;
+        ParsedResult parsed = raw == null ? null : parse(raw, barcode.format);
+        switch (barcode.valueType) {
+            case DecodedBarcode.TYPE_URL: {
+                String url = parsed instanceof URIParsedResult ? ((URIParsedResult) parsed).getURI() : raw;
+                return ScanAction.of(barcode.valueType, "Website: " + url, url);
+            }
+            case DecodedBarcode.TYPE_PHONE: {
+                String number = parsed instanceof TelParsedResult ? ((TelParsedResult) parsed).getNumber() : raw;
+                return ScanAction.of(barcode.valueType, "Call: " + number, number);
+            }
+            case DecodedBarcode.TYPE_EMAIL: {
+                String address = parsed instanceof EmailAddressParsedResult
+                        ? first(((EmailAddressParsedResult) parsed).getTos(), raw) : raw;
+                return ScanAction.of(barcode.valueType, "Email: " + address, address);
+            }
+            case DecodedBarcode.TYPE_SMS: {
+                String number = raw;
+                String body = "";
+                if (parsed instanceof SMSParsedResult) {
+                    SMSParsedResult sms = (SMSParsedResult) parsed;
+                    number = first(sms.getNumbers(), raw);
+                    body = sms.getBody() == null ? "" : sms.getBody();
+                }
+                return new ScanAction(barcode.valueType, "SMS to: " + number + "\nMessage: " + body,
+                        number, body, 0, 0, 0);
+            }
+            case DecodedBarcode.TYPE_TEXT:
+                return ScanAction.of(barcode.valueType, "Text: " + raw);
+            case DecodedBarcode.TYPE_WIFI: {
+                if (!(parsed instanceof WifiParsedResult)) {
+                    return ScanAction.of(barcode.valueType, "WiFi: " + raw);
+                }
+                WifiParsedResult wifi = (WifiParsedResult) parsed;
+                return new ScanAction(barcode.valueType,
+                        "WiFi SSID: " + wifi.getSsid() + "\nPassword: " + wifi.getPassword(),
+                        wifi.getSsid(), wifi.getPassword(), wifiEncryption(wifi.getNetworkEncryption()), 0, 0);
+            }
+            case DecodedBarcode.TYPE_GEO: {
+                if (!(parsed instanceof GeoParsedResult)) {
+                    return ScanAction.of(barcode.valueType, "Location: " + raw);
+                }
+                GeoParsedResult geo = (GeoParsedResult) parsed;
+                return new ScanAction(barcode.valueType,
+                        "Location: Lat " + geo.getLatitude() + ", Long " + geo.getLongitude(),
+                        null, null, 0, geo.getLatitude(), geo.getLongitude());
+            }
+            case DecodedBarcode.TYPE_CONTACT_INFO: {
+                String name = parsed instanceof AddressBookParsedResult
+                        ? first(((AddressBookParsedResult) parsed).getNames(), raw) : raw;
+                return ScanAction.of(barcode.valueType, "Contact: " + name);
+            }
+            case DecodedBarcode.TYPE_CALENDAR_EVENT: {
+                if (!(parsed instanceof CalendarParsedResult)) {
+                    return ScanAction.of(barcode.valueType, "Event: " + raw);
+                }
+                CalendarParsedResult event = (CalendarParsedResult) parsed;
+                String description = event.getDescription() != null ? event.getDescription() : event.getSummary();
+                return ScanAction.of(barcode.valueType,
+                        "Event: " + description + "\nAt: " + new Date(event.getStartTimestamp()));
+            }
+            case DecodedBarcode.TYPE_DRIVER_LICENSE:
+                return ScanAction.of(barcode.valueType, "Driver License No: " + raw);
+            case DecodedBarcode.TYPE_ISBN:
+                return ScanAction.of(barcode.valueType, "Book ISBN: " + raw);
+            case DecodedBarcode.TYPE_PRODUCT:
+                return ScanAction.of(barcode.valueType, "Product Barcode: " + raw);
+            default:
+                return ScanAction.of(barcode.valueType, "Unknown QR Code");
+        }
+    }
+
+    private static ParsedResult parse(String rawValue, int format) {
+        BarcodeFormat zxingFormat = ZxingDecoder.toZxingFormat(format);
+        return ResultParser.parseResult(new Result(rawValue, null, null,
+                zxingFormat != null ? zxingFormat : BarcodeFormat.QR_CODE));
+    }
+
+    private static int wifiEncryption(String networkEncryption) {
+        if (networkEncryption == null) {
+            return ScanAction.WIFI_OPEN;
+        }
+        if (networkEncryption.startsWith("WPA") || networkEncryption.equalsIgnoreCase("SAE")) {
+            return ScanAction.WIFI_WPA;
+        }
+        if (networkEncryption.equalsIgnoreCase("WEP")) {
+            return ScanAction.WIFI_WEP;
+        }
+        return ScanAction.WIFI_OPEN;
+    }
+
+    private static String first(String[] values, String fallback) {
+        return values != null && values.length > 0 && values[0] != null ? values[0] : fallback;
+    }
+}
@@ -0,0 +1,73 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Milestones of one cold start, measured from the origin it was created with, ending at the first decoded code.
+ * Each milestone keeps the first time it was reached, so later frames and recreated activities
+ * do not move it. Milestones are marked from several threads.
+ */
+public class StartupTrace {
+
+    public enum Mark {
+        APP_CREATED("app_created"),
+        DATABASE_READY("database_ready"),
+        CAMERA_PROVIDER_READY("camera_provider_ready"),
+        DETECTOR_READY("detector_ready"),
+        ACTIVITY_CREATED("activity_created"),
+        CAMERA_BOUND("camera_bound"),
+        FIRST_FRAME("first_frame"),
+        FIRST_DECODE("first_decode");
+
+        public final String key;
+
+        Mark(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final long UNSET = -1;
+
+    private final long originNanos;
+    private final AtomicLongArray marks = new AtomicLongArray(Mark.values().length);
+
+    public StartupTrace(long originNanos) {
+        this.originNanos = originNanos;
+        for (int i = 0; i < marks.length(); i++) {
+            marks.set(i, UNSET);
+        }
+    }
+
+    /**
+     * Records the milestone unless it was already reached. Returns true only for the first call.
+     */
+    public boolean mark(Mark mark, long nowNanos) {
+        return marks.compareAndSet(mark.ordinal(), UNSET, Math.max(0, nowNanos - originNanos));
+    }
+
+    public boolean isReached(Mark mark) {
+        return marks.get(mark.ordinal()) != UNSET;
+    }
+
+    /**
+     * Milliseconds from the origin to the milestone, or -1 if it was not reached.
+     */
+    public long getMillis(Mark mark) {
+        long nanos = marks.get(mark.ordinal());
+        return nanos == UNSET ? UNSET : nanos / 1_000_000L;
+    }
+
+    public String toJson(String version) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"version\":\"").append(version).append("\",\"time_to_first_decode_ms\":")
+                .append(getMillis(Mark.FIRST_DECODE)).append(",\"marks_ms\":{");
+        Mark[] values = Mark.values();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(values[i].key).append("\":").append(getMillis(values[i]));
+        }
+        return json.append("}}").toString();
+    }
+}
@@ -0,0 +1,281 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.InvertedLuminanceSource;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.detector.Detector;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes a frame in tiers, cheapest first, recording every attempt in {@link ScanMetrics}.
+ *
+ * <p>The fast tier looks for a QR code in the region of interest at half resolution, then, if there is
+ * none, for a 1D code along a few rows of the region at full resolution. Most frames either decode there
+ * or contain nothing code-like, and stop. When the fast tier sees finder patterns,
+ * in either polarity, but cannot read them, {@link #shouldEscalate()} is true and the caller may hand the
+ * full frame to {@link #escalate}: every format at full resolution, then inverted, then with
+ * {@code TRY_HARDER}, then turned by 90 degrees. The first tier that reads something wins.
+ *
+ * <p>The two stages use separate readers, so one thread may run {@link #decodeFast} while another
+ * escalates, but neither method may be called from two threads at once.
+ */
+public class TieredDecoder {
+
+    // A QR code has three finder patterns; one alone is usually texture.
+    static final int MIN_FINDER_CANDIDATES = 2;
+
+    private final ScanMetrics metrics;
+    private final QRCodeReader fastReader = new QRCodeReader();
+    private final Map<DecodeHintType, Object> fastHints = new EnumMap<>(DecodeHintType.class);
+    private final MultiFormatReader linearReader = new MultiFormatReader();
+    private final MultiFormatReader fullReader = new MultiFormatReader();
+    private final MultiFormatReader hardReader = new MultiFormatReader();
+    private int finderCandidates;
+    private boolean escalate;
+    private byte[] small = new byte[0];
+    private byte[] rotated = new byte[0];
+
+    public TieredDecoder(ScanMetrics metrics) {
+        this.metrics = metrics;
+        fastHints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.of(BarcodeFormat.QR_CODE));
+        fastHints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, (ResultPointCallback) point -> finderCandidates++);
+        Set<BarcodeFormat> linearFormats = EnumSet.copyOf(ZxingDecoder.DEFAULT_FORMATS);
+        linearFormats.remove(BarcodeFormat.QR_CODE);
+        Map<DecodeHintType, Object> linearHints = new EnumMap<>(DecodeHintType.class);
+        linearHints.put(DecodeHintType.POSSIBLE_FORMATS, linearFormats);
+        linearReader.setHints(linearHints);
+
+        Map<DecodeHintType, Object> fullHints = new EnumMap<>(DecodeHintType.class);
+        fullHints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.copyOf(ZxingDecoder.DEFAULT_FORMATS));
+        fullReader.setHints(fullHints);
+        Map<DecodeHintType, Object> hardHints = new EnumMap<>(fullHints);
+        hardHints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        hardReader.setHints(hardHints);
+    }
+
+    /**
+     * Looks for a QR code in the {@code width x height} window at ({@code left}, {@code top}) of a Y plane
+     * whose rows are {@code dataWidth} bytes apart, sampled at half resolution, then for a 1D code in the
+     * same window at full resolution. Bounds are relative to the window at full resolution. Returns an
+     * empty list when nothing is read.
+     */
+    public List<DecodedBarcode> decodeFast(byte[] luma, int dataWidth, int left, int top, int width, int height,
+                                           int rotationDegrees) {
+        long start = System.nanoTime();
+        int smallWidth = width / 2;
+        int smallHeight = height / 2;
+        downscale(luma, dataWidth, left, top, smallWidth, smallHeight);
+        finderCandidates = 0;
+        escalate = false;
+        List<DecodedBarcode> barcodes = Collections.emptyList();
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(
+                new PlanarYUVLuminanceSource(small, smallWidth, smallHeight, 0, 0, smallWidth, smallHeight, false)));
+        try {
+            Result result = fastReader.decode(bitmap, fastHints);
+            barcodes = Collections.singletonList(
+                    scaled(ZxingDecoder.toDecodedBarcode(result, smallWidth, smallHeight, rotationDegrees)));
+        } catch (ChecksumException | FormatException e) {
+            escalate = true;
+        } catch (NotFoundException e) {
+            barcodes = decodeLinear(luma, dataWidth, left, top, width, height, rotationDegrees);
+            escalate = barcodes.isEmpty()
+                    && (finderCandidates >= MIN_FINDER_CANDIDATES || hasInvertedFinders(bitmap));
+        } finally {
+            fastReader.reset();
+        }
+        metrics.recordTier(ScanMetrics.Tier.FAST, !barcodes.isEmpty(), System.nanoTime() - start);
+        return barcodes;
+    }
+
+    /**
+     * Runs only the fast tier's finder search over the window, at half resolution and in both polarities,
+     * without decoding anything. For detectors that never report a code they located but could not read.
+     */
+    public boolean hasFinderPatterns(byte[] luma, int dataWidth, int left, int top, int width, int height) {
+        int smallWidth = width / 2;
+        int smallHeight = height / 2;
+        downscale(luma, dataWidth, left, top, smallWidth, smallHeight);
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(
+                new PlanarYUVLuminanceSource(small, smallWidth, smallHeight, 0, 0, smallWidth, smallHeight, false)));
+        try {
+            return hasFinders(bitmap.getBlackMatrix()) || hasInvertedFinders(bitmap);
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * True if the last {@link #decodeFast} read nothing but saw what looks like a code.
+     */
+    public boolean shouldEscalate() {
+        return escalate;
+    }
+
+    /**
+     * Runs the slower tiers over the whole {@code frameWidth x frameHeight} frame until one reads a code.
+     * The window is the one the fast tier looked at; bounds are returned relative to it, like the fast
+     * tier's, even if the code lies partly outside it.
+     */
+    public List<DecodedBarcode> escalate(byte[] luma, int dataWidth, int frameWidth, int frameHeight,
+                                         int left, int top, int width, int height, int rotationDegrees) {
+        LuminanceSource frame = new PlanarYUVLuminanceSource(
+                luma, dataWidth, frameHeight, 0, 0, frameWidth, frameHeight, false);
+        Result result = attempt(ScanMetrics.Tier.FULL_FRAME, fullReader, frame);
+        if (result == null) {
+            result = attempt(ScanMetrics.Tier.INVERTED, fullReader, new InvertedLuminanceSource(frame));
+        }
+        if (result == null) {
+            result = attempt(ScanMetrics.Tier.TRY_HARDER, hardReader, frame);
+        }
+        DecodedBarcode barcode;
+        if (result != null) {
+            barcode = ZxingDecoder.toDecodedBarcode(result, frameWidth, frameHeight, rotationDegrees);
+        } else {
+            long start = System.nanoTime();
+            rotateClockwise(luma, dataWidth, frameWidth, frameHeight);
+            result = attempt(ScanMetrics.Tier.ROTATED, hardReader, new PlanarYUVLuminanceSource(
+                    rotated, frameHeight, frameWidth, 0, 0, frameHeight, frameWidth, false), start);
+            if (result == null) {
+                return Collections.emptyList();
+            }
+            barcode = ZxingDecoder.toDecodedBarcode(result, frameHeight, frameWidth, (rotationDegrees + 270) % 360);
+        }
+        return Collections.singletonList(relativeToWindow(barcode, frameWidth, frameHeight,
+                left, top, width, height, rotationDegrees));
+    }
+
+    // 1D readers only sample a handful of rows, so the window is read in place at full resolution.
+    private List<DecodedBarcode> decodeLinear(byte[] luma, int dataWidth, int left, int top, int width, int height,
+                                              int rotationDegrees) {
+        LuminanceSource window = new PlanarYUVLuminanceSource(
+                luma, dataWidth, top + height, left, top, width, height, false);
+        try {
+            Result result = linearReader.decodeWithState(new BinaryBitmap(new HybridBinarizer(window)));
+            return Collections.singletonList(ZxingDecoder.toDecodedBarcode(result, width, height, rotationDegrees));
+        } catch (NotFoundException e) {
+            return Collections.emptyList();
+        } finally {
+            linearReader.reset();
+        }
+    }
+
+    private Result attempt(ScanMetrics.Tier tier, MultiFormatReader reader, LuminanceSource source) {
+        return attempt(tier, reader, source, System.nanoTime());
+    }
+
+    private Result attempt(ScanMetrics.Tier tier, MultiFormatReader reader, LuminanceSource source, long start) {
+        Result result = null;
+        try {
+            result = reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source)));
+        } catch (ReaderException e) {
+            // Nothing readable at this tier; try the next one.
+        } finally {
+            reader.reset();
+        }
+        metrics.recordTier(tier, result != null, System.nanoTime() - start);
+        return result;
+    }
+
+    // Light-on-dark codes never produce finder candidates in the normal polarity, so look again with
+    // the binarised window flipped. Only the finder search runs; nothing is decoded.
+    private boolean hasInvertedFinders(BinaryBitmap bitmap) {
+        try {
+            BitMatrix inverted = bitmap.getBlackMatrix().clone();
+            inverted.flip();
+            return hasFinders(inverted);
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    private boolean hasFinders(BitMatrix matrix) {
+        finderCandidates = 0;
+        try {
+            new Detector(matrix).detect(fastHints);
+            return true;
+        } catch (ReaderException e) {
+            return finderCandidates >= MIN_FINDER_CANDIDATES;
+        }
+    }
+
+    // Averages each 2x2 block of the window into one pixel of the reused small buffer.
+    private void downscale(byte[] luma, int dataWidth, int left, int top, int smallWidth, int smallHeight) {
+        if (small.length < smallWidth * smallHeight) {
+            small = new byte[smallWidth * smallHeight];
+        }
+        for (int y = 0; y < smallHeight; y++) {
+            int row = (top + 2 * y) * dataWidth + left;
+            int out = y * smallWidth;
+            for (int x = 0; x < smallWidth; x++) {
+                int i = row + 2 * x;
+                int sum = (luma[i] & 0xff) + (luma[i + 1] & 0xff)
+                        + (luma[i + dataWidth] & 0xff) + (luma[i + dataWidth + 1] & 0xff);
+                small[out + x] = (byte) ((sum + 2) >> 2);
+            }
+        }
+    }
+
+    // Turns the frame 90 degrees clockwise into the reused rotated buffer, which is frameHeight pixels wide.
+    private void rotateClockwise(byte[] luma, int dataWidth, int frameWidth, int frameHeight) {
+        if (rotated.length < frameWidth * frameHeight) {
+            rotated = new byte[frameWidth * frameHeight];
+        }
+        for (int y = 0; y < frameHeight; y++) {
+            int row = y * dataWidth;
+            int column = frameHeight - 1 - y;
+            for (int x = 0; x < frameWidth; x++) {
+                rotated[x * frameHeight + column] = luma[row + x];
+            }
+        }
+    }
+
+    private static DecodedBarcode scaled(DecodedBarcode barcode) {
+        return new DecodedBarcode(barcode.rawValue, barcode.format, barcode.valueType,
+                barcode.left * 2, barcode.top * 2, barcode.right * 2, barcode.bottom * 2);
+    }
+
+    // Bounds come back upright relative to the whole frame; shift them by where the window sits once upright.
+    static DecodedBarcode relativeToWindow(DecodedBarcode barcode, int frameWidth, int frameHeight,
+                                           int left, int top, int width, int height, int rotationDegrees) {
+        int dx;
+        int dy;
+        switch (rotationDegrees) {
+            case 90:
+                dx = frameHeight - top - height;
+                dy = left;
+                break;
+            case 180:
+                dx = frameWidth - left - width;
+                dy = frameHeight - top - height;
+                break;
+            case 270:
+                dx = top;
+                dy = frameWidth - left - width;
+                break;
+            default:
+                dx = left;
+                dy = top;
+        }
+        return new DecodedBarcode(barcode.rawValue, barcode.format, barcode.valueType,
+                barcode.left - dx, barcode.top - dy, barcode.right - dx, barcode.bottom - dy);
+    }
+}
@@ -0,0 +1,247 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.qrcode.detector.FinderPattern;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure-JVM decoder over a luminance (Y) plane using ZXing. The reader and its hints are built once
+ * and reused for every frame; callers pass in their own reusable luma buffer.
+ * Not thread-safe: use one instance per analysis thread.
+ */
+public class ZxingDecoder {
+
+    public static final Collection<BarcodeFormat> DEFAULT_FORMATS = Collections.unmodifiableSet(EnumSet.of(
+            BarcodeFormat.QR_CODE,
+            BarcodeFormat.EAN_13,
+            BarcodeFormat.EAN_8,
+            BarcodeFormat.UPC_A,
+            BarcodeFormat.UPC_E,
+            BarcodeFormat.CODE_128));
+
+    private final MultiFormatReader reader = new MultiFormatReader();
+    private final Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+    private final GenericMultipleBarcodeReader multipleReader = new GenericMultipleBarcodeReader(reader);
+    private int finderCandidates;
+    private boolean partial;
+
+    public ZxingDecoder() {
+        this(DEFAULT_FORMATS);
+    }
+
+    public ZxingDecoder(Collection<BarcodeFormat> formats) {
+        this(formats, false);
+    }
+
+    /**
+     * @param tryHarder spend more time per image looking for a code; worth it for still images,
+     *                  too slow for live frames.
+     */
+    public ZxingDecoder(Collection<BarcodeFormat> formats, boolean tryHarder) {
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, EnumSet.copyOf(formats));
+        if (tryHarder) {
+            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+        // MultiFormatReader reports every failure as NotFoundException, so a code that was located but not
+        // read is recognised by its QR finder patterns. The 1D readers report guard points, which texture
+        // matches all the time, so only finder patterns count.
+        hints.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, (ResultPointCallback) point -> {
+            if (point instanceof FinderPattern) {
+                finderCandidates++;
+            }
+        });
+        reader.setHints(hints);
+    }
+
+    /**
+     * Decodes the first {@code width * height} bytes of {@code luma} as a tightly packed Y plane.
+     * Returns an empty list when nothing is found.
+     */
+    public List<DecodedBarcode> decode(byte[] luma, int width, int height, int rotationDegrees) {
+        return decode(luma, width, height, 0, 0, width, height, rotationDegrees);
+    }
+
+    /**
+     * Decodes the {@code width x height} window at ({@code left}, {@code top}) of a Y plane whose rows are
+     * {@code dataWidth} bytes apart, without copying it. Bounds are relative to the window.
+     */
+    public List<DecodedBarcode> decode(byte[] luma, int dataWidth, int dataHeight,
+                                       int left, int top, int width, int height, int rotationDegrees) {
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(
+                luma, dataWidth, dataHeight, left, top, width, height, false);
+        finderCandidates = 0;
+        partial = false;
+        try {
+            Result result = reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source)));
+            return Collections.singletonList(toDecodedBarcode(result, width, height, rotationDegrees));
+        } catch (NotFoundException e) {
+            partial = finderCandidates >= TieredDecoder.MIN_FINDER_CANDIDATES;
+            return Collections.emptyList();
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * Like {@link #decode(byte[], int, int, int, int, int, int, int)} but keeps looking after the first hit,
+     * returning every code in the window. Noticeably slower, so only worth it when several codes are expected.
+     */
+    public List<DecodedBarcode> decodeAll(byte[] luma, int dataWidth, int dataHeight,
+                                          int left, int top, int width, int height, int rotationDegrees) {
+        PlanarYUVLuminanceSource source = new PlanarYUVLuminanceSource(
+                luma, dataWidth, dataHeight, left, top, width, height, false);
+        finderCandidates = 0;
+        partial = false;
+        try {
+            Result[] results = multipleReader.decodeMultiple(new BinaryBitmap(new HybridBinarizer(source)), hints);
+            List<DecodedBarcode> barcodes = new ArrayList<>(results.length);
+            for (Result result : results) {
+                barcodes.add(toDecodedBarcode(result, width, height, rotationDegrees));
+            }
+            return barcodes;
+        } catch (ReaderException e) {
+            partial = finderCandidates >= TieredDecoder.MIN_FINDER_CANDIDATES;
+            return Collections.emptyList();
+        } finally {
+            reader.reset();
+        }
+    }
+
+    /**
+     * True if the last decode found something that looked like a code but could not read it,
+     * typically because it was blurred, cut off by the frame edge or still moving into view.
+     */
+    public boolean wasPartial() {
+        return partial;
+    }
+
+    static DecodedBarcode toDecodedBarcode(Result result, int width, int height, int rotationDegrees) {
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        ResultPoint[] points = result.getResultPoints();
+        if (points != null) {
+            for (ResultPoint point : points) {
+                if (point == null) {
+                    continue;
+                }
+                int x = (int) point.getX();
+                int y = (int) point.getY();
+                int uprightX;
+                int uprightY;
+                switch (rotationDegrees) {
+                    case 90:
+                        uprightX = height - y;
+                        uprightY = x;
+                        break;
+                    case 180:
+                        uprightX = width - x;
+                        uprightY = height - y;
+                        break;
+                    case 270:
+                        uprightX = y;
+                        uprightY = width - x;
+                        break;
+                    default:
+                        uprightX = x;
+                        uprightY = y;
+                }
+                left = Math.min(left, uprightX);
+                top = Math.min(top, uprightY);
+                right = Math.max(right, uprightX);
+                bottom = Math.max(bottom, uprightY);
+            }
+        }
+        if (left > right) {
+            left = top = right = bottom = 0;
+        }
+        int format = toFormat(result.getBarcodeFormat());
+        String text = result.getText();
+        return new DecodedBarcode(text, format, ScanResultClassifier.valueTypeOf(text, format), left, top, right, bottom);
+    }
+
+    static int toFormat(BarcodeFormat format) {
+        switch (format) {
+            case QR_CODE:
+                return DecodedBarcode.FORMAT_QR_CODE;
+            case EAN_13:
+                return DecodedBarcode.FORMAT_EAN_13;
+            case EAN_8:
+                return DecodedBarcode.FORMAT_EAN_8;
+            case UPC_A:
+                return DecodedBarcode.FORMAT_UPC_A;
+            case UPC_E:
+                return DecodedBarcode.FORMAT_UPC_E;
+            case CODE_128:
+                return DecodedBarcode.FORMAT_CODE_128;
+            case CODE_39:
+                return DecodedBarcode.FORMAT_CODE_39;
+            case CODE_93:
+                return DecodedBarcode.FORMAT_CODE_93;
+            case CODABAR:
+                return DecodedBarcode.FORMAT_CODABAR;
+            case DATA_MATRIX:
+                return DecodedBarcode.FORMAT_DATA_MATRIX;
+            case ITF:
+                return DecodedBarcode.FORMAT_ITF;
+            case PDF_417:
+                return DecodedBarcode.FORMAT_PDF417;
+            case AZTEC:
+                return DecodedBarcode.FORMAT_AZTEC;
+            default:
+                return DecodedBarcode.FORMAT_UNKNOWN;
+        }
+    }
+
+    static BarcodeFormat toZxingFormat(int format) {
+        switch (format) {
+            case DecodedBarcode.FORMAT_QR_CODE:
+                return BarcodeFormat.QR_CODE;
+            case DecodedBarcode.FORMAT_EAN_13:
+                return BarcodeFormat.EAN_13;
+            case DecodedBarcode.FORMAT_EAN_8:
+                return BarcodeFormat.EAN_8;
+            case DecodedBarcode.FORMAT_UPC_A:
+                return BarcodeFormat.UPC_A;
+            case DecodedBarcode.FORMAT_UPC_E:
+                return BarcodeFormat.UPC_E;
+            case DecodedBarcode.FORMAT_CODE_128:
+                return BarcodeFormat.CODE_128;
+            case DecodedBarcode.FORMAT_CODE_39:
+                return BarcodeFormat.CODE_39;
+            case DecodedBarcode.FORMAT_CODE_93:
+                return BarcodeFormat.CODE_93;
+            case DecodedBarcode.FORMAT_CODABAR:
+                return BarcodeFormat.CODABAR;
+            case DecodedBarcode.FORMAT_DATA_MATRIX:
+                return BarcodeFormat.DATA_MATRIX;
+            case DecodedBarcode.FORMAT_ITF:
+                return BarcodeFormat.ITF;
+            case DecodedBarcode.FORMAT_PDF417:
+                return BarcodeFormat.PDF_417;
+            case DecodedBarcode.FORMAT_AZTEC:
+                return BarcodeFormat.AZTEC;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Posts {@link SyncBatch batches} to the collector over HTTP, one request per batch.
+ */
+public class CollectorClient {
+
+    public enum Status {
+        // Stored, or already stored under the same idempotency key.
+        ACCEPTED,
+        // Worth sending again later: no connection, a timeout, throttling or a server error.
+        RETRY,
+        // The body was over the collector's size limit; a smaller batch may still go through.
+        TOO_LARGE,
+        // The collector will never take this batch as it is.
+        REJECTED
+    }
+
+    public static final int DEFAULT_TIMEOUT_MILLIS = 15_000;
+
+    private final URL endpoint;
+    private final String deviceId;
+    private final int timeoutMillis;
+
+    public CollectorClient(URL endpoint, String deviceId, int timeoutMillis) {
+        this.endpoint = endpoint;
+        this.deviceId = deviceId;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Status send(SyncBatch batch) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) endpoint.openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(batch.body.length);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setRequestProperty("Idempotency-Key", batch.idempotencyKey);
+            connection.setRequestProperty("X-Device-Id", deviceId);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(batch.body);
+            }
+            int code = connection.getResponseCode();
+            drain(connection, code);
+            return statusOf(code);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return Status.RETRY;
+        }
+    }
+
+    static Status statusOf(int code) {
+        if (code >= 200 && code < 300 || code == HttpURLConnection.HTTP_CONFLICT) {
+            return Status.ACCEPTED;
+        }
+        if (code == HttpURLConnection.HTTP_ENTITY_TOO_LARGE) {
+            return Status.TOO_LARGE;
+        }
+        // Malformed or unprocessable: the same bytes will fail the same way.
+        if (code == HttpURLConnection.HTTP_BAD_REQUEST || code == 422) {
+            return Status.REJECTED;
+        }
+        return Status.RETRY;
+    }
+
+    // Reading the body to the end lets the connection be reused for the next batch.
+    private static void drain(HttpURLConnection connection, int code) throws IOException {
+        try (InputStream in = code >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            if (in == null) {
+                return;
+            }
+            byte[] buffer = new byte[1024];
+            while (in.read(buffer) != -1) {
+                // Discard.
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Ships the scans after the last acknowledged id to the collector, oldest first, one batch at a time.
+ * The cursor only moves once a batch is accepted, so a run that stops half way, or a process that dies
+ * mid-request, resumes with the same batch and the same idempotency key.
+ *
+ * <p>One run sends at most {@code maxBatchesPerRun} batches of at most {@code maxBatchRows} rows and
+ * roughly {@code maxBatchBytes} of JSON each. A batch the collector finds too large is halved and sent
+ * again, and the rest of the run keeps to the smaller size; only a single row that is still too large is
+ * given up on. A rejected batch is searched for its bad row by sending halves of it, so only that row is
+ * given up on. Until the collector has accepted something in the run, a rejected row is only given up on
+ * once the row after it is accepted; a collector that rejects everything makes the run end with
+ * {@link Outcome#RETRY} instead. Every row is shipped eventually unless a {@code maxBacklog} is set: then,
+ * when more rows are waiting, as after days offline, the oldest are skipped. Rows given up on are counted
+ * as dropped.
+ */
+public class OutboxShipper {
+
+    public static final int DEFAULT_MAX_BATCH_ROWS = 1000;
+    public static final long DEFAULT_MAX_BATCH_BYTES = 256 * 1024;
+    public static final int DEFAULT_MAX_BATCHES_PER_RUN = 20;
+    public static final long NO_BACKLOG_LIMIT = Long.MAX_VALUE;
+
+    /**
+     * Where unsent scans come from and where the cursor is kept. Ids only ever grow.
+     */
+    public interface Outbox {
+        long getAckedId();
+
+        long countAfter(long ackedId);
+
+        /**
+         * The id of the row {@code offset} rows past the first row after {@code ackedId}.
+         */
+        long idAfter(long ackedId, long offset);
+
+        /**
+         * Up to {@code limit} rows after {@code ackedId}, oldest first.
+         */
+        List<SyncRecord> readAfter(long ackedId, int limit);
+
+        /**
+         * Moves the cursor to {@code ackedId}, adding {@code dropped} to the rows given up on.
+         */
+        void acknowledge(long ackedId, long dropped);
+    }
+
+    public enum Outcome {
+        // Nothing is left to send.
+        CAUGHT_UP,
+        // The run's batch budget is used up and rows are still waiting.
+        MORE_PENDING,
+        // The collector could not be reached or asked to come back later.
+        RETRY
+    }
+
+    public static final class Result {
+        public final Outcome outcome;
+        public final int batchesSent;
+        public final int rowsSent;
+        public final long rowsDropped;
+
+        Result(Outcome outcome, int batchesSent, int rowsSent, long rowsDropped) {
+            this.outcome = outcome;
+            this.batchesSent = batchesSent;
+            this.rowsSent = rowsSent;
+            this.rowsDropped = rowsDropped;
+        }
+    }
+
+    private final Outbox outbox;
+    private final CollectorClient client;
+    private final String deviceId;
+    private final int maxBatchRows;
+    private final long maxBatchBytes;
+    private final int maxBatchesPerRun;
+    private final long maxBacklog;
+
+    public OutboxShipper(Outbox outbox, CollectorClient client, String deviceId) {
+        this(outbox, client, deviceId, DEFAULT_MAX_BATCH_ROWS, DEFAULT_MAX_BATCH_BYTES,
+                DEFAULT_MAX_BATCHES_PER_RUN, NO_BACKLOG_LIMIT);
+    }
+
+    public OutboxShipper(Outbox outbox, CollectorClient client, String deviceId, int maxBatchRows,
+                         long maxBatchBytes, int maxBatchesPerRun, long maxBacklog) {
+        if (maxBatchRows < 1 || maxBatchesPerRun < 1 || maxBacklog < 1) {
+            throw new IllegalArgumentException("limits must be at least 1");
+        }
+        this.outbox = outbox;
+        this.client = client;
+        this.deviceId = deviceId;
+        this.maxBatchRows = maxBatchRows;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.maxBacklog = maxBacklog;
+    }
+
+    public Result run() throws IOException {
+        long acked = outbox.getAckedId();
+        long dropped = 0;
+        long backlog = outbox.countAfter(acked);
+        if (backlog > maxBacklog) {
+            dropped = backlog - maxBacklog;
+            acked = outbox.idAfter(acked, dropped - 1);
+            outbox.acknowledge(acked, dropped);
+        }
+
+        int batches = 0;
+        int rows = 0;
+        int batchRows = maxBatchRows;
+        // While a rejected batch is searched for its bad row, batches are cut to the half still to be tried.
+        int searchRows = Integer.MAX_VALUE;
+        while (batches < maxBatchesPerRun) {
+            List<SyncRecord> records = outbox.readAfter(acked, Math.min(batchRows, searchRows));
+            if (records.isEmpty()) {
+                return new Result(Outcome.CAUGHT_UP, batches, rows, dropped);
+            }
+            SyncBatch batch = SyncBatch.encode(deviceId, records, maxBatchBytes);
+            CollectorClient.Status status = client.send(batch);
+            while (status == CollectorClient.Status.TOO_LARGE && batch.count > 1) {
+                batchRows = batch.count / 2;
+                batch = SyncBatch.encode(deviceId, records.subList(0, batchRows), maxBatchBytes);
+                status = client.send(batch);
+            }
+            if (status == CollectorClient.Status.RETRY) {
+                return new Result(Outcome.RETRY, batches, rows, dropped);
+            }
+            if (status == CollectorClient.Status.REJECTED) {
+                if (batch.count > 1) {
+                    searchRows = batch.count / 2;
+                    continue;
+                }
+                if (rows == 0 && !acceptsNext(batch.lastId)) {
+                    return new Result(Outcome.RETRY, batches, rows, dropped);
+                }
+                searchRows = Integer.MAX_VALUE;
+            }
+            acked = batch.lastId;
+            if (status == CollectorClient.Status.ACCEPTED) {
+                outbox.acknowledge(acked, 0);
+                rows += batch.count;
+            } else {
+                outbox.acknowledge(acked, batch.count);
+                dropped += batch.count;
+            }
+            batches++;
+        }
+        boolean pending = !outbox.readAfter(acked, 1).isEmpty();
+        return new Result(pending ? Outcome.MORE_PENDING : Outcome.CAUGHT_UP, batches, rows, dropped);
+    }
+
+    // Whether the collector takes the row after a rejected one, which shows the rejected row itself is bad.
+    // A newest row cannot be checked yet and stays until a later scan can vouch for the collector.
+    private boolean acceptsNext(long rejectedId) throws IOException {
+        List<SyncRecord> next = outbox.readAfter(rejectedId, 1);
+        return !next.isEmpty()
+                && client.send(SyncBatch.encode(deviceId, next, maxBatchBytes)) == CollectorClient.Status.ACCEPTED;
+    }
+}
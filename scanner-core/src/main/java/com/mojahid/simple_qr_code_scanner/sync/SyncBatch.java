@@ -0,0 +1,88 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import com.mojahid.simple_qr_code_scanner.history.ScanHistoryExportWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A run of consecutive outbox records encoded for the collector: the same JSON array as the history
+ * export, gzip-compressed. The idempotency key is derived from the device and the id range, so a batch
+ * rebuilt after a crash or a failed attempt carries the same key as the one that may already have arrived.
+ */
+public final class SyncBatch {
+
+    public final String idempotencyKey;
+    public final long firstId;
+    public final long lastId;
+    public final int count;
+    public final long rawBytes;
+    public final byte[] body;
+
+    private SyncBatch(String idempotencyKey, long firstId, long lastId, int count, long rawBytes, byte[] body) {
+        this.idempotencyKey = idempotencyKey;
+        this.firstId = firstId;
+        this.lastId = lastId;
+        this.count = count;
+        this.rawBytes = rawBytes;
+        this.body = body;
+    }
+
+    /**
+     * Encodes records from the start of {@code records} until {@code maxRawBytes} of uncompressed JSON
+     * have been written. The record that crosses the limit is still included, so every batch holds at least
+     * one record and overshoots by at most one record's size.
+     */
+    public static SyncBatch encode(String deviceId, List<SyncRecord> records, long maxRawBytes) throws IOException {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("records must not be empty");
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        CountingWriter counter = new CountingWriter(
+                new OutputStreamWriter(new GZIPOutputStream(compressed), StandardCharsets.UTF_8));
+        int count = 0;
+        try (ScanHistoryExportWriter writer = ScanHistoryExportWriter.Format.JSON.open(counter)) {
+            while (count < records.size() && counter.count < maxRawBytes) {
+                SyncRecord record = records.get(count++);
+                writer.writeRow(record.data, record.type, record.timestamp);
+            }
+        }
+        long firstId = records.get(0).id;
+        long lastId = records.get(count - 1).id;
+        return new SyncBatch(deviceId + ":" + firstId + "-" + lastId, firstId, lastId, count,
+                counter.count, compressed.toByteArray());
+    }
+
+    // Counts chars rather than UTF-8 bytes; close enough to bound a batch.
+    private static final class CountingWriter extends FilterWriter {
+        long count;
+
+        CountingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.write(chars, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            out.write(text, offset, length);
+            count += length;
+        }
+    }
+}
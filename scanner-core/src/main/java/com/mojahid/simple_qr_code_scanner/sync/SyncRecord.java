@@ -0,0 +1,19 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+/**
+ * One scan waiting in the outbox, identified by its row id, which only ever grows.
+ */
+public final class SyncRecord {
+
+    public final long id;
+    public final String data;
+    public final int type;
+    public final long timestamp;
+
+    public SyncRecord(long id, String data, int type, long timestamp) {
+        this.id = id;
+        this.data = data;
+        this.type = type;
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,59 @@
+package com.mojahid.simple_qr_code_scanner.generator;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.mojahid.simple_qr_code_scanner.scanner.DecodedBarcode;
+import com.mojahid.simple_qr_code_scanner.scanner.Luminance;
+import com.mojahid.simple_qr_code_scanner.scanner.ZxingDecoder;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class QrRendererTest {
+
+    @Test
+    public void renderedCodeDecodes() throws Exception {
+        int[] pixels = new QrRenderer().render("https://example.com/label/00042", 300, ErrorCorrectionLevel.M);
+        byte[] luma = new byte[300 * 300];
+        Luminance.fromArgb(pixels, luma.length, luma);
+
+        List<DecodedBarcode> barcodes = new ZxingDecoder().decode(luma, 300, 300, 0);
+
+        assertEquals(1, barcodes.size());
+        assertEquals("https://example.com/label/00042", barcodes.get(0).rawValue);
+    }
+
+    @Test
+    public void copiedRowsMatchTheMatrix() {
+        BitMatrix matrix = new BitMatrix(70, 40);
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 70; x++) {
+                // Bands of three identical rows, with a pattern that changes between bands.
+                if (((x / 3) + (y / 3)) % 2 == 0 || x == y) {
+                    matrix.set(x, y);
+                }
+            }
+        }
+
+        int[] pixels = new QrRenderer().render(matrix);
+
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 70; x++) {
+                int expected = matrix.get(x, y) ? QrRenderer.DARK : QrRenderer.LIGHT;
+                assertEquals("pixel " + x + "," + y, expected, pixels[y * 70 + x]);
+            }
+        }
+    }
+
+    @Test
+    public void reusesBufferAcrossSizes() throws Exception {
+        QrRenderer renderer = new QrRenderer();
+        int[] large = renderer.render("first", 400, ErrorCorrectionLevel.H);
+        int[] small = renderer.render("second", 200, ErrorCorrectionLevel.L);
+
+        assertSame(large, small);
+    }
+}
@@ -0,0 +1,224 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HistoryRetentionTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final int URL = 8;
+    private static final int WIFI = 9;
+    private static final int TEXT = 7;
+
+    private final MemoryStore store = new MemoryStore();
+
+    @Test
+    public void typeRuleReplacesMaxAge() {
+        // One scan of each type per day, for 100 days.
+        for (int day = 99; day >= 0; day--) {
+            store.add(URL, NOW - day * RetentionPolicy.DAY_MILLIS);
+            store.add(WIFI, NOW - day * RetentionPolicy.DAY_MILLIS);
+            store.add(TEXT, NOW - day * RetentionPolicy.DAY_MILLIS);
+        }
+        Map<Integer, Long> byType = new HashMap<>();
+        byType.put(URL, 10 * RetentionPolicy.DAY_MILLIS);
+        byType.put(WIFI, 0L);
+        HistoryRetention.Report report = new HistoryRetention(store,
+                new RetentionPolicy(30 * RetentionPolicy.DAY_MILLIS, 0, byType), 7, 4).run(NOW);
+
+        assertEquals(89, report.expiredByType);
+        assertEquals(69, report.expiredByAge);
+        assertEquals(0, report.overLimit);
+        assertEquals(11, store.countOf(URL));
+        assertEquals(100, store.countOf(WIFI));
+        assertEquals(31, store.countOf(TEXT));
+        assertTrue(store.largestChunk <= 7);
+    }
+
+    @Test
+    public void rowLimitDeletesOldestFirst() {
+        for (int i = 0; i < 1000; i++) {
+            store.add(TEXT, NOW - (1000 - i) * 1000L);
+        }
+        HistoryRetention.Report report = new HistoryRetention(store,
+                new RetentionPolicy(0, 250, new HashMap<>()), 100, 4).run(NOW);
+
+        assertEquals(750, report.overLimit);
+        assertEquals(250, store.count());
+        assertEquals(751, (int) store.oldestIds(1).get(0));
+        assertEquals(100, store.largestChunk);
+    }
+
+    @Test
+    public void compactsAndReportsRecoveredBytes() {
+        for (int i = 0; i < 100; i++) {
+            store.add(TEXT, NOW - 100 * RetentionPolicy.DAY_MILLIS);
+        }
+        long before = store.sizeBytes();
+        HistoryRetention.Report report = new HistoryRetention(store,
+                new RetentionPolicy(RetentionPolicy.DAY_MILLIS, 0, new HashMap<>()), 30, 8).run(NOW);
+
+        assertEquals(100, report.getRowsReclaimed());
+        assertEquals(before, report.bytesBefore);
+        assertEquals(100 * 4096, report.getBytesRecovered());
+        assertTrue(store.incremental);
+        assertTrue(store.analyzed);
+        assertEquals(0, store.freePages);
+        // 100 free pages released 8 at a time.
+        assertEquals(13, store.vacuumSteps);
+    }
+
+    @Test
+    public void keepAllDeletesNothing() {
+        store.add(TEXT, 0);
+        HistoryRetention.Report report = new HistoryRetention(store, RetentionPolicy.KEEP_ALL).run(NOW);
+        assertEquals(0, report.getRowsReclaimed());
+        assertEquals(1, store.count());
+    }
+
+    @Test
+    public void rebuildsSearchIndexOnceEnoughEntriesAreStale() {
+        for (int i = 0; i < 100; i++) {
+            store.add(TEXT, NOW - 100 * RetentionPolicy.DAY_MILLIS);
+            store.add(TEXT, NOW);
+        }
+        RetentionPolicy policy = new RetentionPolicy(RetentionPolicy.DAY_MILLIS, 0, new HashMap<>());
+
+        HistoryRetention.Report first = new HistoryRetention(store, policy, 30, 8, 101).run(NOW);
+        assertEquals(0, store.rebuilds);
+        assertEquals(0, first.staleSearchEntries);
+
+        HistoryRetention.Report second = new HistoryRetention(store, policy, 30, 8, 100).run(NOW);
+        assertEquals(1, store.rebuilds);
+        assertEquals(100, second.staleSearchEntries);
+        assertEquals(0, store.staleSearchEntries());
+    }
+
+    @Test
+    public void parsesTypeRules() {
+        RetentionPolicy policy = RetentionPolicy.fromConfig(365, 50_000, new String[]{"8:30", " 9 : 0 "});
+        assertEquals(365 * RetentionPolicy.DAY_MILLIS, policy.maxAgeMillis);
+        assertEquals(50_000, policy.maxRows);
+        assertEquals(Long.valueOf(30 * RetentionPolicy.DAY_MILLIS), policy.maxAgeByType.get(8));
+        assertEquals(Long.valueOf(0), policy.maxAgeByType.get(9));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedRule() {
+        RetentionPolicy.fromConfig(0, 0, new String[]{"url=30"});
+    }
+
+    // Scans in insertion order, which is also age order; each scan takes one page.
+    private static final class MemoryStore implements HistoryRetention.Store {
+        private static final long PAGE_SIZE = 4096;
+
+        private final List<long[]> scans = new ArrayList<>();
+        private int nextId = 1;
+        private long pages = 1;
+        private long freePages;
+        private int largestChunk;
+        private int vacuumSteps;
+        private boolean incremental;
+        private boolean analyzed;
+        private long staleEntries;
+        private int rebuilds;
+
+        void add(int type, long timestamp) {
+            scans.add(new long[]{nextId++, type, timestamp});
+            pages++;
+        }
+
+        long countOf(int type) {
+            return scans.stream().filter(scan -> scan[1] == type).count();
+        }
+
+        @Override
+        public List<Integer> idsOfTypeBefore(int type, long before, int limit) {
+            List<Integer> ids = new ArrayList<>();
+            for (long[] scan : scans) {
+                if (ids.size() < limit && scan[1] == type && scan[2] < before) {
+                    ids.add((int) scan[0]);
+                }
+            }
+            return ids;
+        }
+
+        @Override
+        public List<Integer> idsBefore(long before, Collection<Integer> exceptTypes, int limit) {
+            List<Integer> ids = new ArrayList<>();
+            for (long[] scan : scans) {
+                if (ids.size() < limit && !exceptTypes.contains((int) scan[1]) && scan[2] < before) {
+                    ids.add((int) scan[0]);
+                }
+            }
+            return ids;
+        }
+
+        @Override
+        public List<Integer> oldestIds(int limit) {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, scans.size()); i++) {
+                ids.add((int) scans.get(i)[0]);
+            }
+            return ids;
+        }
+
+        @Override
+        public long count() {
+            return scans.size();
+        }
+
+        @Override
+        public int delete(List<Integer> ids) {
+            largestChunk = Math.max(largestChunk, ids.size());
+            int before = scans.size();
+            scans.removeIf(scan -> ids.contains((int) scan[0]));
+            freePages += before - scans.size();
+            staleEntries += before - scans.size();
+            return before - scans.size();
+        }
+
+        @Override
+        public long sizeBytes() {
+            return pages * PAGE_SIZE;
+        }
+
+        @Override
+        public long staleSearchEntries() {
+            return staleEntries;
+        }
+
+        @Override
+        public void rebuildSearchIndex() {
+            rebuilds++;
+            staleEntries = 0;
+        }
+
+        @Override
+        public void enableIncrementalVacuum() {
+            incremental = true;
+        }
+
+        @Override
+        public boolean vacuum(int maxPages) {
+            assertTrue(incremental);
+            vacuumSteps++;
+            long released = Math.min(maxPages, freePages);
+            freePages -= released;
+            pages -= released;
+            return freePages > 0;
+        }
+
+        @Override
+        public void analyze() {
+            analyzed = true;
+        }
+    }
+}
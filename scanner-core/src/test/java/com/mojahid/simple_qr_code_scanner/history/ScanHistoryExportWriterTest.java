@@ -0,0 +1,48 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class ScanHistoryExportWriterTest {
+
+    @Test
+    public void csvQuotesSeparatorsAndQuotes() throws IOException {
+        StringWriter out = new StringWriter();
+        try (ScanHistoryExportWriter writer = ScanHistoryExportWriter.Format.CSV.open(out)) {
+            writer.writeRow("plain", 7, 0);
+            writer.writeRow("a,b", 7, 0);
+            writer.writeRow("say \"hi\"", 7, 0);
+            writer.writeRow("line\nbreak", 7, 0);
+        }
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals("Data,Type,Timestamp", lines[0]);
+        assertTrue(lines[1].startsWith("plain,7,"));
+        assertTrue(lines[2].startsWith("\"a,b\",7,"));
+        assertTrue(lines[3].startsWith("\"say \"\"hi\"\"\",7,"));
+        assertTrue(lines[4].startsWith("\"line\nbreak\",7,"));
+    }
+
+    @Test
+    public void jsonEscapesStrings() throws IOException {
+        StringWriter out = new StringWriter();
+        try (ScanHistoryExportWriter writer = ScanHistoryExportWriter.Format.JSON.open(out)) {
+            writer.writeRow("WIFI:S:\"dock\";P:a\\b;;\n", 9, 42);
+            writer.writeRow(null, 7, 43);
+        }
+
+        assertEquals("[{\"data\":\"WIFI:S:\\\"dock\\\";P:a\\\\b;;\\n\",\"type\":9,\"timestamp\":42},"
+                + "{\"data\":null,\"type\":7,\"timestamp\":43}]", out.toString());
+    }
+
+    @Test
+    public void emptyJsonExportIsAnEmptyArray() throws IOException {
+        StringWriter out = new StringWriter();
+        ScanHistoryExportWriter.Format.JSON.open(out).close();
+        assertEquals("[]", out.toString());
+    }
+}
@@ -0,0 +1,50 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ScanPayloadCodecTest {
+
+    @Test
+    public void sameTextHashesTheSame() {
+        byte[] first = ScanPayloadCodec.hash("https://example.com/item/42");
+
+        assertEquals(ScanPayloadCodec.HASH_BYTES, first.length);
+        assertArrayEquals(first, ScanPayloadCodec.hash("https://example.com/item/42"));
+        assertFalse(Arrays.equals(first, ScanPayloadCodec.hash("https://example.com/item/43")));
+    }
+
+    @Test
+    public void shortPayloadsStayText() {
+        assertNull(new ScanPayloadCodec().compress("4006381333931"));
+    }
+
+    @Test
+    public void largePayloadsRoundTrip() {
+        StringBuilder vcard = new StringBuilder("BEGIN:VCARD\nVERSION:3.0\n");
+        for (int i = 0; i < 20; i++) {
+            vcard.append("NOTE:Aisle ").append(i).append(" - repeated warehouse note\n");
+        }
+        vcard.append("END:VCARD");
+        String data = vcard.toString();
+
+        byte[] compressed = new ScanPayloadCodec().compress(data);
+
+        assertNotNull(compressed);
+        assertTrue(compressed.length < data.length());
+        assertEquals(data, ScanPayloadCodec.decompress(compressed));
+    }
+
+    @Test
+    public void compressionCanBeTurnedOff() {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            data.append("pallet-").append(i % 3).append(';');
+        }
+
+        assertNull(new ScanPayloadCodec(ScanPayloadCodec.NO_COMPRESSION).compress(data.toString()));
+    }
+}
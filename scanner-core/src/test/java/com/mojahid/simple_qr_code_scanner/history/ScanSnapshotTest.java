@@ -0,0 +1,179 @@
+package com.mojahid.simple_qr_code_scanner.history;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class ScanSnapshotTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void roundTripsRecordsAcrossBlocks() throws IOException {
+        List<Object[]> written = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ScanSnapshot.Writer writer = new ScanSnapshot.Writer(out)) {
+            for (int i = 0; i < 20_000; i++) {
+                // Ids with gaps, clocks that go backwards and negative types all have to survive.
+                long id = 1 + i * 3L;
+                long timestamp = START + i * 1000L - (i % 7 == 0 ? 86_400_000L : 0);
+                int type = i % 13 == 0 ? -1 : i % 12;
+                String data = i % 100 == 0 ? "Wi-Fi: caf\u00e9 \u2615 \ud83d\udcf6 " + i : "https://shop.example.com/item/" + i;
+                writer.write(id, type, timestamp, data);
+                written.add(new Object[]{id, type, timestamp, data});
+            }
+            writer.write(Integer.MAX_VALUE + 10L, 0, 0, null);
+            written.add(new Object[]{Integer.MAX_VALUE + 10L, 0, 0L, ""});
+        }
+
+        List<Object[]> read = new ArrayList<>();
+        ScanSnapshot.Reader reader = reader(out.toByteArray());
+        int blocks = 0;
+        while (reader.readBlock((id, type, timestamp, data) -> read.add(new Object[]{id, type, timestamp, data})) >= 0) {
+            blocks++;
+        }
+        assertTrue(blocks > 1);
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertArrayEquals(written.get(i), read.get(i));
+        }
+        assertEquals(out.size(), reader.getBytesRead());
+        assertEquals(-1, reader.readBlock((id, type, timestamp, data) -> fail()));
+    }
+
+    @Test
+    public void consecutiveScansTakeAFewBytesBesideTheirText() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ScanSnapshot.Writer writer = new ScanSnapshot.Writer(out)) {
+            for (int i = 0; i < 10_000; i++) {
+                writer.write(i + 1, 8, START + i * 5000L, "0123456789");
+            }
+        }
+        // One byte each for id, type and data length, two for a five second step, one for the record length.
+        assertTrue(out.size() < 10_000 * (10 + 6) + 64);
+    }
+
+    @Test
+    public void rejectsCorruptBlock() throws IOException {
+        byte[] snapshot = snapshot(5000);
+        snapshot[snapshot.length / 2] ^= 0x10;
+        try {
+            readAll(snapshot);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Checksum mismatch"));
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void rejectsTruncatedFile() throws IOException {
+        byte[] snapshot = snapshot(5000);
+        readAll(Arrays.copyOf(snapshot, snapshot.length - 3));
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        try {
+            reader("[{\"data\":\"x\"}]".getBytes());
+            fail();
+        } catch (IOException e) {
+            assertEquals("Not a scan history snapshot", e.getMessage());
+        }
+    }
+
+    @Test
+    public void readsNewerMinorVersionAndSkipsAppendedFields() throws IOException {
+        List<Object[]> read = new ArrayList<>();
+        ScanSnapshot.Reader reader = reader(snapshotWithAppendedField(ScanSnapshot.VERSION + 1));
+
+        while (reader.readBlock((id, type, timestamp, data) -> read.add(new Object[]{id, type, timestamp, data})) >= 0) {
+        }
+        assertEquals(2, read.size());
+        assertArrayEquals(new Object[]{41L, 8, START, "first"}, read.get(0));
+        assertArrayEquals(new Object[]{42L, 8, START + 1000, "second"}, read.get(1));
+    }
+
+    @Test
+    public void rejectsNewerMajorVersion() {
+        try {
+            reader(snapshotWithAppendedField(0x10 | ScanSnapshot.VERSION));
+            fail();
+        } catch (IOException e) {
+            assertEquals("Unsupported snapshot version 17", e.getMessage());
+        }
+    }
+
+    @Test
+    public void emptySnapshotHasNoBlocks() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ScanSnapshot.Writer(out).close();
+        assertEquals(0, readAll(out.toByteArray()));
+        assertEquals(4 + 1 + 4 + 1, out.size());
+    }
+
+    private static byte[] snapshot(int rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ScanSnapshot.Writer writer = new ScanSnapshot.Writer(out)) {
+            for (int i = 0; i < rows; i++) {
+                writer.write(i + 1, 7, START + i, "scan " + i + " of a run long enough to fill several blocks");
+            }
+        }
+        return out.toByteArray();
+    }
+
+    // Two records written the way a later version might, with one more varint after the data.
+    private static byte[] snapshotWithAppendedField(int version) {
+        byte[] body = new byte[64];
+        int length = ScanSnapshot.putVarint(body, 0, 2);
+        length = appendRecord(body, length, 41, START, "first");
+        length = appendRecord(body, length, 1, 1000, "second");
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, length);
+        ByteBuffer file = ByteBuffer.allocate(ScanSnapshot.MAGIC.length + 1 + 4 + length + 4 + 4 + 1);
+        file.put(ScanSnapshot.MAGIC).put((byte) version);
+        file.putInt(length).put(body, 0, length).putInt((int) crc.getValue());
+        file.putInt(0).put((byte) 2);
+        return file.array();
+    }
+
+    private static int appendRecord(byte[] body, int position, long idDelta, long timestampDelta, String data) {
+        byte[] fields = new byte[64];
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        int length = ScanSnapshot.putVarint(fields, 0, idDelta << 1);
+        length = ScanSnapshot.putVarint(fields, length, timestampDelta << 1);
+        length = ScanSnapshot.putVarint(fields, length, 8 << 1);
+        length = ScanSnapshot.putVarint(fields, length, bytes.length);
+        System.arraycopy(bytes, 0, fields, length, bytes.length);
+        length = ScanSnapshot.putVarint(fields, length + bytes.length, 300);
+        position = ScanSnapshot.putVarint(body, position, length);
+        System.arraycopy(fields, 0, body, position, length);
+        return position + length;
+    }
+
+    private static int readAll(byte[] snapshot) throws IOException {
+        ScanSnapshot.Reader reader = reader(snapshot);
+        int total = 0;
+        int count;
+        while ((count = reader.readBlock((id, type, timestamp, data) -> {
+        })) >= 0) {
+            total += count;
+        }
+        return total;
+    }
+
+    private static ScanSnapshot.Reader reader(byte[] snapshot) throws IOException {
+        return new ScanSnapshot.Reader(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BarcodeTrackerTest {
+
+    @Test
+    public void emitsEachCodeOnceWhileItMoves() {
+        BarcodeTracker tracker = new BarcodeTracker();
+
+        assertEquals(2, tracker.update(Arrays.asList(qr("A", 0), qr("B", 200))).size());
+        assertTrue(tracker.update(Arrays.asList(qr("A", 20), qr("B", 220))).isEmpty());
+        assertTrue(tracker.update(Collections.singletonList(qr("A", 40))).isEmpty());
+
+        List<BarcodeTracker.Track> tracks = tracker.getTracks();
+        assertEquals(2, tracks.size());
+        assertEquals(40, tracks.get(0).left);
+        assertEquals(2, tracker.getEmittedCount());
+    }
+
+    @Test
+    public void sameValueInTwoPlacesIsTwoTracksButOneEmission() {
+        BarcodeTracker tracker = new BarcodeTracker();
+
+        List<DecodedBarcode> emitted = tracker.update(Arrays.asList(qr("LABEL", 0), qr("LABEL", 500)));
+
+        assertEquals(1, emitted.size());
+        assertEquals(2, tracker.getTracks().size());
+    }
+
+    @Test
+    public void dropsTracksAfterMissedFrames() {
+        BarcodeTracker tracker = new BarcodeTracker();
+        tracker.update(Collections.singletonList(qr("A", 0)));
+
+        for (int i = 0; i < BarcodeTracker.MAX_MISSED_FRAMES; i++) {
+            tracker.update(Collections.emptyList());
+        }
+        assertEquals(1, tracker.getTracks().size());
+
+        tracker.update(Collections.emptyList());
+        assertTrue(tracker.getTracks().isEmpty());
+        assertTrue(tracker.update(Collections.singletonList(qr("A", 0))).isEmpty());
+    }
+
+    @Test
+    public void throttlesDecodingWhileStable() {
+        BarcodeTracker tracker = new BarcodeTracker();
+        tracker.update(Collections.singletonList(qr("A", 0)));
+        assertTrue(tracker.shouldDecode(1));
+
+        for (int i = 0; i < BarcodeTracker.STABLE_AFTER_FRAMES; i++) {
+            tracker.update(Collections.singletonList(qr("A", 1)));
+        }
+        assertFalse(tracker.shouldDecode(1));
+        assertTrue(tracker.shouldDecode(BarcodeTracker.STABLE_DECODE_STRIDE));
+
+        tracker.update(Collections.singletonList(qr("A", 60)));
+        assertTrue(tracker.shouldDecode(1));
+    }
+
+    private static DecodedBarcode qr(String value, int left) {
+        return new DecodedBarcode(value, DecodedBarcode.FORMAT_QR_CODE, DecodedBarcode.TYPE_TEXT,
+                left, 100, left + 100, 200);
+    }
+}
@@ -0,0 +1,59 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 100_000; micros++) {
+            histogram.recordMicros(micros);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertWithin(50_000, histogram.getPercentileMicros(50));
+        assertWithin(95_000, histogram.getPercentileMicros(95));
+        assertWithin(99_000, histogram.getPercentileMicros(99));
+        assertEquals(50_000.5, histogram.getMeanMicros(), 0.01);
+    }
+
+    @Test
+    public void bucketsRoundTrip() {
+        for (long micros = 0; micros < 10_000_000; micros = micros * 3 / 2 + 1) {
+            long middle = LatencyHistogram.middleOf(LatencyHistogram.indexOf(micros));
+            assertTrue("value " + micros, Math.abs(middle - micros) <= Math.max(1, micros / 60));
+        }
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.recordNanos(i * 1000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(99_999, histogram.getMaxMicros());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.02);
+    }
+}
@@ -0,0 +1,44 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LuminanceTest {
+
+    @Test
+    public void convertsGreyLevelsAndTransparency() {
+        int[] argb = {0xff000000, 0xffffffff, 0xff808080, 0x00000000};
+        byte[] luma = new byte[4];
+        Luminance.fromArgb(argb, 4, luma);
+
+        assertEquals(0, luma[0] & 0xff);
+        assertEquals(255, luma[1] & 0xff);
+        assertEquals(128, luma[2] & 0xff);
+        assertEquals(255, luma[3] & 0xff);
+    }
+
+    @Test
+    public void convertsStripsIntoPlace() {
+        int[] strip = {0xff000000, 0xffffffff};
+        byte[] luma = new byte[6];
+        Luminance.fromArgb(strip, 2, luma, 4);
+
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 0, (byte) 0xff}, luma);
+    }
+
+    @Test
+    public void decodesCodeFromArgbImage() throws Exception {
+        byte[] rendered = ZxingDecoderTest.render("slip-000123", 300);
+        int[] argb = new int[rendered.length];
+        for (int i = 0; i < argb.length; i++) {
+            // Dark blue ink on a warm paper tone, as photographed slips tend to be.
+            argb[i] = rendered[i] == 0 ? 0xff1a2a6c : 0xfff2e8d5;
+        }
+        byte[] luma = new byte[argb.length];
+        Luminance.fromArgb(argb, argb.length, luma);
+
+        ZxingDecoder decoder = new ZxingDecoder(ZxingDecoder.DEFAULT_FORMATS, true);
+        assertEquals("slip-000123", decoder.decode(luma, 300, 300, 0).get(0).rawValue);
+    }
+}
@@ -0,0 +1,72 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PowerGovernorTest {
+
+    @Test
+    public void throttlesAfterIdlePeriodAndRecoversOnDecode() {
+        ScanMetrics metrics = new ScanMetrics();
+        PowerGovernor governor = new PowerGovernor(1000, 5, metrics);
+
+        assertTrue(governor.shouldAnalyze(1, 0, false));
+        assertTrue(governor.shouldAnalyze(3, 900, false));
+        assertEquals(PowerGovernor.State.ACTIVE, governor.getState());
+
+        assertFalse(governor.shouldAnalyze(3, 1000, false));
+        assertTrue(governor.shouldAnalyze(5, 1030, false));
+        assertEquals(PowerGovernor.State.IDLE, governor.getState());
+        assertEquals("IDLE", metrics.getGovernorState());
+
+        governor.onPartialDetection(1100);
+        assertTrue(governor.shouldAnalyze(7, 1130, false));
+        assertEquals(PowerGovernor.State.ACTIVE, governor.getState());
+    }
+
+    @Test
+    public void motionWakesIdleGovernor() {
+        PowerGovernor governor = new PowerGovernor(1000, 5, new ScanMetrics());
+        governor.shouldAnalyze(0, 0, false);
+        governor.shouldAnalyze(1, 2000, false);
+        assertEquals(PowerGovernor.State.IDLE, governor.getState());
+
+        assertTrue(governor.shouldAnalyze(2, 2030, true));
+        assertEquals(PowerGovernor.State.ACTIVE, governor.getState());
+    }
+
+    @Test
+    public void thermalStatusStretchesStride() {
+        PowerGovernor governor = new PowerGovernor(1000, 5, new ScanMetrics());
+        governor.setThermalStatus(PowerGovernor.THERMAL_STATUS_MODERATE);
+        assertEquals(2, governor.getStride());
+
+        governor.shouldAnalyze(0, 0, false);
+        governor.shouldAnalyze(1, 5000, false);
+        governor.setThermalStatus(PowerGovernor.THERMAL_STATUS_SEVERE);
+        assertEquals(20, governor.getStride());
+    }
+
+    @Test
+    public void motionDetectorSeesCodeEnteringStillScene() throws Exception {
+        int width = 320;
+        int height = 240;
+        byte[] scene = new byte[width * height];
+        Arrays.fill(scene, (byte) 0xc0);
+        LumaMotionDetector detector = new LumaMotionDetector();
+
+        assertFalse(detector.update(ByteBuffer.wrap(scene), width, width, height));
+        assertFalse(detector.update(ByteBuffer.wrap(scene), width, width, height));
+
+        byte[] code = ZxingDecoderTest.render("https://example.com", 200);
+        for (int y = 0; y < 200; y++) {
+            System.arraycopy(code, y * 200, scene, (20 + y) * width + 60, 200);
+        }
+        assertTrue(detector.update(ByteBuffer.wrap(scene), width, width, height));
+        assertFalse(detector.update(ByteBuffer.wrap(scene), width, width, height));
+    }
+}
@@ -0,0 +1,44 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScanDeduplicatorTest {
+
+    private static final int QR = 256;
+    private static final int EAN_13 = 32;
+
+    @Test
+    public void suppressesRepeatsInsideWindow() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(1000, 16);
+
+        assertTrue(deduplicator.accept("ABC", QR, 0));
+        assertFalse(deduplicator.accept("ABC", QR, 500));
+        assertFalse(deduplicator.accept("ABC", QR, 1400));
+        assertTrue(deduplicator.accept("ABC", QR, 2400));
+    }
+
+    @Test
+    public void keysOnFormatAndValue() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(1000, 16);
+
+        assertTrue(deduplicator.accept("4006381333931", EAN_13, 0));
+        assertTrue(deduplicator.accept("4006381333931", QR, 0));
+        assertTrue(deduplicator.accept("4006381333932", EAN_13, 0));
+    }
+
+    @Test
+    public void evictsLeastRecentlySeen() {
+        ScanDeduplicator deduplicator = new ScanDeduplicator(10_000, 2);
+
+        deduplicator.accept("A", QR, 0);
+        deduplicator.accept("B", QR, 1);
+        deduplicator.accept("A", QR, 2);
+        deduplicator.accept("C", QR, 3);
+
+        assertEquals(2, deduplicator.size());
+        assertFalse(deduplicator.accept("A", QR, 4));
+        assertTrue(deduplicator.accept("B", QR, 5));
+    }
+}
@@ -0,0 +1,48 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScanMetricsTest {
+
+    @Test
+    public void countsFramesDroppedBetweenSensorTimestamps() {
+        ScanMetrics metrics = new ScanMetrics();
+        long frame = 33_000_000L;
+        long timestamp = frame;
+        for (int i = 0; i < 10; i++) {
+            metrics.onFrameReceived(timestamp);
+            timestamp += frame;
+        }
+        metrics.onFrameReceived(timestamp + 2 * frame);
+
+        assertEquals(2, metrics.getFramesDropped());
+        assertTrue(metrics.toJson().contains("\"dropped\":2"));
+    }
+
+    @Test
+    public void jsonListsEveryStage() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.record(ScanMetrics.Stage.DETECT, 12_000_000L);
+
+        String json = metrics.toJson();
+        for (ScanMetrics.Stage stage : ScanMetrics.Stage.values()) {
+            assertTrue(json.contains("\"" + stage.key + "\":{"));
+        }
+        assertTrue(json.contains("\"detect\":{\"count\":1,"));
+    }
+
+    @Test
+    public void jsonReportsHitRatePerTier() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.recordTier(ScanMetrics.Tier.FAST, true, 2_000_000L);
+        metrics.recordTier(ScanMetrics.Tier.FAST, false, 2_000_000L);
+        metrics.recordTier(ScanMetrics.Tier.FAST, false, 2_000_000L);
+        metrics.recordTier(ScanMetrics.Tier.FAST, false, 2_000_000L);
+
+        String json = metrics.toJson();
+        assertTrue(json, json.contains("\"fast\":{\"attempts\":4,\"hits\":1,\"hit_rate\":0.25,"));
+        assertTrue(json, json.contains("\"rotated\":{\"attempts\":0,\"hits\":0,\"hit_rate\":0.0,"));
+    }
+}
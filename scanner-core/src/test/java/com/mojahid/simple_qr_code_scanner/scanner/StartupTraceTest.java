@@ -0,0 +1,35 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StartupTraceTest {
+
+    private static final long MILLIS = 1_000_000L;
+
+    @Test
+    public void keepsFirstTimeEachMarkIsReached() {
+        StartupTrace trace = new StartupTrace(1_000 * MILLIS);
+
+        assertTrue(trace.mark(StartupTrace.Mark.FIRST_FRAME, 1_450 * MILLIS));
+        assertFalse(trace.mark(StartupTrace.Mark.FIRST_FRAME, 1_900 * MILLIS));
+
+        assertEquals(450, trace.getMillis(StartupTrace.Mark.FIRST_FRAME));
+        assertFalse(trace.isReached(StartupTrace.Mark.FIRST_DECODE));
+        assertEquals(-1, trace.getMillis(StartupTrace.Mark.FIRST_DECODE));
+    }
+
+    @Test
+    public void jsonReportsTimeToFirstDecode() {
+        StartupTrace trace = new StartupTrace(0);
+        trace.mark(StartupTrace.Mark.APP_CREATED, 80 * MILLIS);
+        trace.mark(StartupTrace.Mark.FIRST_DECODE, 612 * MILLIS);
+
+        String json = trace.toJson("1.0 (1)");
+
+        assertTrue(json.startsWith("{\"version\":\"1.0 (1)\",\"time_to_first_decode_ms\":612,"));
+        assertTrue(json.contains("\"app_created\":80"));
+        assertTrue(json.contains("\"camera_bound\":-1"));
+    }
+}
@@ -0,0 +1,153 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.common.BitMatrix;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TieredDecoderTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    // The centred 0.6 region of interest of a 640x480 frame.
+    private static final int ROI_LEFT = 176;
+    private static final int ROI_TOP = 96;
+    private static final int ROI_SIDE = 288;
+
+    @Test
+    public void fastTierReadsPlainCodeWithoutEscalating() throws Exception {
+        ScanMetrics metrics = new ScanMetrics();
+        TieredDecoder decoder = new TieredDecoder(metrics);
+
+        List<DecodedBarcode> barcodes = decodeFast(decoder, frame("https://example.com/item/42", false));
+
+        assertEquals(1, barcodes.size());
+        assertEquals("https://example.com/item/42", barcodes.get(0).rawValue);
+        assertFalse(decoder.shouldEscalate());
+        assertEquals(1, metrics.getHits(ScanMetrics.Tier.FAST));
+    }
+
+    @Test
+    public void fastTierReadsEan13() throws Exception {
+        ScanMetrics metrics = new ScanMetrics();
+        TieredDecoder decoder = new TieredDecoder(metrics);
+
+        List<DecodedBarcode> barcodes = decodeFast(decoder, linearFrame(BarcodeFormat.EAN_13, "4006381333931"));
+
+        assertEquals(1, barcodes.size());
+        assertEquals("4006381333931", barcodes.get(0).rawValue);
+        assertEquals(DecodedBarcode.FORMAT_EAN_13, barcodes.get(0).format);
+        assertEquals(1, metrics.getHits(ScanMetrics.Tier.FAST));
+    }
+
+    @Test
+    public void fastTierReadsCode128() throws Exception {
+        TieredDecoder decoder = new TieredDecoder(new ScanMetrics());
+
+        List<DecodedBarcode> barcodes = decodeFast(decoder, linearFrame(BarcodeFormat.CODE_128, "PALLET-0042"));
+
+        assertEquals(1, barcodes.size());
+        assertEquals("PALLET-0042", barcodes.get(0).rawValue);
+        assertEquals(DecodedBarcode.FORMAT_CODE_128, barcodes.get(0).format);
+    }
+
+    @Test
+    public void emptyFrameIsNotEscalated() {
+        TieredDecoder decoder = new TieredDecoder(new ScanMetrics());
+        byte[] blank = new byte[WIDTH * HEIGHT];
+        Arrays.fill(blank, (byte) 0xc0);
+
+        assertTrue(decodeFast(decoder, blank).isEmpty());
+        assertFalse(decoder.shouldEscalate());
+    }
+
+    @Test
+    public void invertedCodeIsReadByEscalation() throws Exception {
+        ScanMetrics metrics = new ScanMetrics();
+        TieredDecoder decoder = new TieredDecoder(metrics);
+        byte[] luma = frame("light on dark", true);
+
+        assertTrue(decodeFast(decoder, luma).isEmpty());
+        assertTrue(decoder.shouldEscalate());
+
+        List<DecodedBarcode> barcodes = decoder.escalate(luma, WIDTH, WIDTH, HEIGHT,
+                ROI_LEFT, ROI_TOP, ROI_SIDE, ROI_SIDE, 0);
+
+        assertEquals(1, barcodes.size());
+        assertEquals("light on dark", barcodes.get(0).rawValue);
+        assertEquals(0, metrics.getHits(ScanMetrics.Tier.FULL_FRAME));
+        assertEquals(1, metrics.getHits(ScanMetrics.Tier.INVERTED));
+        assertEquals(0, metrics.get(ScanMetrics.Tier.TRY_HARDER).getCount());
+        // The code spans 24..264 of the window; its finder pattern centres lie inside that.
+        DecodedBarcode barcode = barcodes.get(0);
+        assertTrue(barcode.left > 24 && barcode.right < 264);
+        assertTrue(barcode.top > 24 && barcode.bottom < 264);
+    }
+
+    @Test
+    public void finderSearchSpotsCodesWithoutDecoding() throws Exception {
+        TieredDecoder decoder = new TieredDecoder(new ScanMetrics());
+        byte[] blank = new byte[WIDTH * HEIGHT];
+        Arrays.fill(blank, (byte) 0xc0);
+
+        assertTrue(hasFinderPatterns(decoder, frame("https://example.com/item/42", false)));
+        assertTrue(hasFinderPatterns(decoder, frame("light on dark", true)));
+        assertFalse(hasFinderPatterns(decoder, blank));
+    }
+
+    @Test
+    public void windowOffsetFollowsRotation() {
+        DecodedBarcode upright = new DecodedBarcode("x", DecodedBarcode.FORMAT_QR_CODE, DecodedBarcode.TYPE_TEXT,
+                200, 250, 300, 350);
+
+        DecodedBarcode moved = TieredDecoder.relativeToWindow(upright, WIDTH, HEIGHT,
+                ROI_LEFT, ROI_TOP, ROI_SIDE, ROI_SIDE, 90);
+
+        // Upright the frame is 480x640 and the window starts at (96, 176).
+        assertEquals(104, moved.left);
+        assertEquals(74, moved.top);
+    }
+
+    private static List<DecodedBarcode> decodeFast(TieredDecoder decoder, byte[] luma) {
+        return decoder.decodeFast(luma, WIDTH, ROI_LEFT, ROI_TOP, ROI_SIDE, ROI_SIDE, 0);
+    }
+
+    private static boolean hasFinderPatterns(TieredDecoder decoder, byte[] luma) {
+        return decoder.hasFinderPatterns(luma, WIDTH, ROI_LEFT, ROI_TOP, ROI_SIDE, ROI_SIDE);
+    }
+
+    // A 1D code 240 pixels wide and 80 high in the middle of a white 640x480 frame.
+    private static byte[] linearFrame(BarcodeFormat format, String contents) throws Exception {
+        BitMatrix matrix = new MultiFormatWriter().encode(contents, format, 240, 80);
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        Arrays.fill(luma, (byte) 0xff);
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                if (matrix.get(x, y)) {
+                    luma[(200 + y) * WIDTH + 200 + x] = 0;
+                }
+            }
+        }
+        return luma;
+    }
+
+    // A 240 pixel code in the middle of a grey 640x480 frame.
+    private static byte[] frame(String contents, boolean inverted) throws Exception {
+        byte[] code = ZxingDecoderTest.render(contents, 240);
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        Arrays.fill(luma, inverted ? 0 : (byte) 0xff);
+        for (int y = 0; y < 240; y++) {
+            for (int x = 0; x < 240; x++) {
+                byte value = code[y * 240 + x];
+                luma[(120 + y) * WIDTH + 200 + x] = inverted ? (byte) ~value : value;
+            }
+        }
+        return luma;
+    }
+}
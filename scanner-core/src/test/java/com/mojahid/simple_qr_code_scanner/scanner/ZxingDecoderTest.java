@@ -0,0 +1,108 @@
+package com.mojahid.simple_qr_code_scanner.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ZxingDecoderTest {
+
+    @Test
+    public void decodesQrCodeFromLumaPlane() throws Exception {
+        byte[] luma = render("https://example.com/item/42", 320);
+        List<DecodedBarcode> barcodes = new ZxingDecoder().decode(luma, 320, 320, 0);
+
+        assertEquals(1, barcodes.size());
+        DecodedBarcode barcode = barcodes.get(0);
+        assertEquals("https://example.com/item/42", barcode.rawValue);
+        assertEquals(DecodedBarcode.FORMAT_QR_CODE, barcode.format);
+        assertEquals(DecodedBarcode.TYPE_URL, barcode.valueType);
+        assertTrue(barcode.right > barcode.left && barcode.bottom > barcode.top);
+    }
+
+    @Test
+    public void reusesReaderAcrossFrames() throws Exception {
+        ZxingDecoder decoder = new ZxingDecoder();
+        byte[] blank = new byte[320 * 320];
+        Arrays.fill(blank, (byte) 0xff);
+
+        assertTrue(decoder.decode(blank, 320, 320, 0).isEmpty());
+        assertEquals("second", decoder.decode(render("second", 320), 320, 320, 90).get(0).rawValue);
+        assertTrue(decoder.decode(blank, 320, 320, 0).isEmpty());
+    }
+
+    @Test
+    public void damagedCodeIsReportedAsPartial() throws Exception {
+        byte[] luma = render("https://example.com/item/42", 320);
+        // Wipe the middle of the symbol; the three finder patterns in the corners survive.
+        for (int y = 110; y < 210; y++) {
+            Arrays.fill(luma, y * 320 + 110, y * 320 + 210, (byte) 0xff);
+        }
+        ZxingDecoder decoder = new ZxingDecoder();
+
+        assertTrue(decoder.decode(luma, 320, 320, 0).isEmpty());
+        assertTrue(decoder.wasPartial());
+
+        byte[] blank = new byte[320 * 320];
+        Arrays.fill(blank, (byte) 0xff);
+        assertTrue(decoder.decode(blank, 320, 320, 0).isEmpty());
+        assertFalse(decoder.wasPartial());
+    }
+
+    @Test
+    public void decodeAllFindsEveryCodeInFrame() throws Exception {
+        byte[] first = render("pallet-1", 200);
+        byte[] second = render("pallet-2", 200);
+        byte[] frame = new byte[400 * 200];
+        for (int y = 0; y < 200; y++) {
+            System.arraycopy(first, y * 200, frame, y * 400, 200);
+            System.arraycopy(second, y * 200, frame, y * 400 + 200, 200);
+        }
+
+        List<DecodedBarcode> barcodes = new ZxingDecoder().decodeAll(frame, 400, 200, 0, 0, 400, 200, 0);
+
+        assertEquals(2, barcodes.size());
+        assertNotEquals(barcodes.get(0).rawValue, barcodes.get(1).rawValue);
+    }
+
+    @Test
+    public void classifiesWifiPayload() {
+        String raw = "WIFI:S:home;T:WPA;P:secret;;";
+        DecodedBarcode barcode = new DecodedBarcode(raw, DecodedBarcode.FORMAT_QR_CODE,
+                ScanResultClassifier.valueTypeOf(raw, DecodedBarcode.FORMAT_QR_CODE), 0, 0, 0, 0);
+        ScanAction action = ScanResultClassifier.classify(barcode);
+
+        assertEquals(DecodedBarcode.TYPE_WIFI, action.type);
+        assertEquals("home", action.target);
+        assertEquals("secret", action.extra);
+        assertEquals(ScanAction.WIFI_WPA, action.wifiEncryption);
+        assertEquals("WiFi SSID: home\nPassword: secret", action.message);
+    }
+
+    @Test
+    public void classifiesRetailBarcodes() {
+        assertEquals(DecodedBarcode.TYPE_ISBN,
+                ScanResultClassifier.valueTypeOf("9780306406157", DecodedBarcode.FORMAT_EAN_13));
+        assertEquals(DecodedBarcode.TYPE_PRODUCT,
+                ScanResultClassifier.valueTypeOf("4006381333931", DecodedBarcode.FORMAT_EAN_13));
+        assertEquals(DecodedBarcode.TYPE_TEXT,
+                ScanResultClassifier.valueTypeOf("hello", DecodedBarcode.FORMAT_QR_CODE));
+    }
+
+    static byte[] render(String contents, int size) throws Exception {
+        BitMatrix matrix = new QRCodeWriter().encode(contents, BarcodeFormat.QR_CODE, size, size);
+        byte[] luma = new byte[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                luma[y * size + x] = matrix.get(x, y) ? 0 : (byte) 0xff;
+            }
+        }
+        return luma;
+    }
+}
@@ -0,0 +1,280 @@
+package com.mojahid.simple_qr_code_scanner.sync;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the shipper against a stub collector on a local port.
+ */
+public class OutboxShipperTest {
+
+    private HttpServer server;
+    private final List<String> keys = new CopyOnWriteArrayList<>();
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    // Status codes to answer with, in order; 200 once they run out.
+    private final List<Integer> replies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    // Batches holding this text are answered with 422.
+    private volatile String rejectContaining;
+    private final MemoryOutbox outbox = new MemoryOutbox();
+    private CollectorClient client;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/scans", exchange -> {
+            int index = requests.getAndIncrement();
+            assertEquals("gzip", exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            String body;
+            try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+                body = new String(readAll(in), StandardCharsets.UTF_8);
+            }
+            bodies.add(body);
+            keys.add(exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+            int code = index < replies.size() ? replies.get(index) : 200;
+            if (rejectContaining != null && body.contains(rejectContaining)) {
+                code = 422;
+            }
+            exchange.sendResponseHeaders(code, -1);
+            exchange.close();
+        });
+        server.start();
+        client = new CollectorClient(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/scans"),
+                "device-1", 2000);
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void shipsEverythingInCompressedBatches() throws IOException {
+        outbox.add(2500, "https://example.com/item/");
+
+        OutboxShipper.Result result = shipper(1000, 1 << 20, 10, 100_000).run();
+
+        assertEquals(OutboxShipper.Outcome.CAUGHT_UP, result.outcome);
+        assertEquals(3, result.batchesSent);
+        assertEquals(2500, result.rowsSent);
+        assertEquals(2500, outbox.acked);
+        assertEquals(3, keys.size());
+        assertEquals("device-1:1-1000", keys.get(0));
+        assertEquals("device-1:2001-2500", keys.get(2));
+        assertTrue(bodies.get(0).startsWith("[{\"data\":\"https://example.com/item/1\","));
+    }
+
+    @Test
+    public void failedBatchIsResentWithTheSameKey() throws IOException {
+        outbox.add(10, "scan ");
+        replies.add(503);
+
+        OutboxShipper shipper = shipper(1000, 1 << 20, 10, 100_000);
+        assertEquals(OutboxShipper.Outcome.RETRY, shipper.run().outcome);
+        assertEquals(0, outbox.acked);
+
+        assertEquals(OutboxShipper.Outcome.CAUGHT_UP, shipper.run().outcome);
+        assertEquals(10, outbox.acked);
+        assertEquals(keys.get(0), keys.get(1));
+    }
+
+    @Test
+    public void unreachableCollectorIsRetried() throws IOException {
+        outbox.add(10, "scan ");
+        server.stop(0);
+
+        assertEquals(OutboxShipper.Outcome.RETRY, shipper(1000, 1 << 20, 10, 100_000).run().outcome);
+        assertEquals(0, outbox.acked);
+    }
+
+    @Test
+    public void batchesAreBoundedBySize() throws IOException {
+        outbox.add(100, new String(new char[1000]).replace('\0', 'x'));
+
+        OutboxShipper.Result result = shipper(1000, 10_000, 100, 100_000).run();
+
+        assertEquals(100, result.rowsSent);
+        for (String body : bodies) {
+            assertTrue(body.length() < 10_000 + 1100);
+        }
+        assertEquals(10, keys.size());
+    }
+
+    @Test
+    public void longBacklogDropsOldestAndSpreadsOverRuns() throws IOException {
+        outbox.add(5000, "scan ");
+
+        OutboxShipper shipper = shipper(100, 1 << 20, 5, 1000);
+        OutboxShipper.Result first = shipper.run();
+
+        assertEquals(OutboxShipper.Outcome.MORE_PENDING, first.outcome);
+        assertEquals(4000, first.rowsDropped);
+        assertEquals(4000, outbox.dropped);
+        assertEquals("device-1:4001-4100", keys.get(0));
+        assertEquals(500, first.rowsSent);
+        assertEquals(OutboxShipper.Outcome.CAUGHT_UP, shipper.run().outcome);
+        assertEquals(5000, outbox.acked);
+    }
+
+    @Test
+    public void defaultShipperKeepsTheWholeBacklog() throws IOException {
+        outbox.add(150_000, "scan ");
+
+        OutboxShipper.Result result = new OutboxShipper(outbox, client, "device-1").run();
+
+        assertEquals(OutboxShipper.Outcome.MORE_PENDING, result.outcome);
+        assertEquals(0, result.rowsDropped);
+        assertEquals("device-1:1-1000", keys.get(0));
+        assertEquals(OutboxShipper.DEFAULT_MAX_BATCHES_PER_RUN * OutboxShipper.DEFAULT_MAX_BATCH_ROWS, outbox.acked);
+    }
+
+    @Test
+    public void oversizedBatchIsHalvedUntilAccepted() throws IOException {
+        outbox.add(20, "scan ");
+        replies.add(413);
+        replies.add(413);
+
+        OutboxShipper.Result result = shipper(20, 1 << 20, 10, 100_000).run();
+
+        assertEquals(OutboxShipper.Outcome.CAUGHT_UP, result.outcome);
+        assertEquals(20, result.rowsSent);
+        assertEquals(0, result.rowsDropped);
+        assertEquals("device-1:1-20", keys.get(0));
+        assertEquals("device-1:1-10", keys.get(1));
+        assertEquals("device-1:1-5", keys.get(2));
+        // The rest of the run keeps to the size that went through.
+        assertEquals("device-1:6-10", keys.get(3));
+        assertEquals(4, result.batchesSent);
+    }
+
+    @Test
+    public void singleRowThatIsStillTooLargeIsDropped() throws IOException {
+        outbox.add(10, "scan ");
+        replies.add(413);
+        replies.add(413);
+        replies.add(413);
+
+        OutboxShipper.Result result = shipper(4, 1 << 20, 10, 100_000).run();
+
+        assertEquals(OutboxShipper.Outcome.CAUGHT_UP, result.outcome);
+        assertEquals("device-1:1-1", keys.get(2));
+        assertEquals(1, result.rowsDropped);
+        assertEquals(1, outbox.dropped);
+        assertEquals(9, result.rowsSent);
+        assertEquals(10, outbox.acked);
+    }
+
+    @Test
+    public void onlyTheBadRowOfARejectedBatchIsDropped() throws IOException {
+        outbox.add(9, "scan ");
+        outbox.add(1, "bad ");
+        outbox.add(10, "scan ");
+        rejectContaining = "bad ";
+
+        OutboxShipper.Result result = shipper(20, 1 << 20, 10, 100_000).run();
+
+        assertEquals(OutboxShipper.Outcome.CAUGHT_UP, result.outcome);
+        assertEquals(1, result.rowsDropped);
+        assertEquals(1, outbox.dropped);
+        assertEquals(19, result.rowsSent);
+        assertEquals(20, outbox.acked);
+        assertTrue(keys.contains("device-1:10-10"));
+        // Once the bad row is gone, batches go back to their full size.
+        assertEquals("device-1:11-20", keys.get(keys.size() - 1));
+    }
+
+    @Test
+    public void collectorRejectingEverythingIsRetried() throws IOException {
+        outbox.add(20, "scan ");
+        rejectContaining = "scan ";
+
+        OutboxShipper.Result result = shipper(20, 1 << 20, 10, 100_000).run();
+
+        assertEquals(OutboxShipper.Outcome.RETRY, result.outcome);
+        assertEquals(0, result.rowsDropped);
+        assertEquals(0, outbox.dropped);
+        assertEquals(0, outbox.acked);
+        // 20, 10, 5, 2 and 1 rows, then the row after it.
+        assertEquals("device-1:2-2", keys.get(keys.size() - 1));
+        assertEquals(6, keys.size());
+    }
+
+    private OutboxShipper shipper(int maxRows, long maxBytes, int maxBatches, long maxBacklog) {
+        return new OutboxShipper(outbox, client, "device-1", maxRows, maxBytes, maxBatches, maxBacklog);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static final class MemoryOutbox implements OutboxShipper.Outbox {
+        final TreeMap<Long, SyncRecord> rows = new TreeMap<>();
+        long acked;
+        long dropped;
+
+        void add(int count, String prefix) {
+            for (int i = 0; i < count; i++) {
+                long id = rows.size() + 1;
+                rows.put(id, new SyncRecord(id, prefix + id, 8, 1_700_000_000_000L + id));
+            }
+        }
+
+        @Override
+        public long getAckedId() {
+            return acked;
+        }
+
+        @Override
+        public long countAfter(long ackedId) {
+            return rows.tailMap(ackedId, false).size();
+        }
+
+        @Override
+        public long idAfter(long ackedId, long offset) {
+            return rows.tailMap(ackedId, false).keySet().stream().skip(offset).findFirst().orElse(ackedId);
+        }
+
+        @Override
+        public List<SyncRecord> readAfter(long ackedId, int limit) {
+            List<SyncRecord> records = new ArrayList<>();
+            for (Map.Entry<Long, SyncRecord> row : rows.tailMap(ackedId, false).entrySet()) {
+                if (records.size() == limit) {
+                    break;
+                }
+                records.add(row.getValue());
+            }
+            return records;
+        }
+
+        @Override
+        public void acknowledge(long ackedId, long dropped) {
+            this.acked = ackedId;
+            this.dropped += dropped;
+        }
+    }
+}